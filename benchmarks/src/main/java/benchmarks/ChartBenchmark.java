@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Tracked-series update: one new sample for every tracked topic, as ingestion does per NT update.
+// Retention is cut to 2s so 50k tracked ring buffers fit in the heap.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ChartBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int topicCount;
+
+    private List<String> topics;
+    private long timestamp = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Dash.setRetentionSeconds(2);
+        topics = SyntheticTopics.names(topicCount);
+        for (String topic : topics) {
+            Dash.track(topic);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        Dash.clearSeries();
+    }
+
+    @Benchmark
+    public void recordTrackedSamples() throws Throwable {
+        timestamp += 10_000;
+        for (int i = 0; i < topics.size(); i++) {
+            Dash.record(topics.get(i), timestamp, i + (timestamp & 0xFF));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.application.Platform;
+import javafx.scene.layout.Region;
+
+// Redraw of one strip chart with four full 10s signals, on a headless Monocle toolkit.
+// The chart is not in a scene, so it can be drawn from the benchmark thread.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw", "-Djava.awt.headless=true"})
+public class ChartRedrawBenchmark {
+
+    private static final int SIGNALS = 4;
+    private static final int SAMPLES = 1000;
+
+    private Region chart;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Platform.startup(() -> { });
+
+        chart = Dash.newStripChart("Benchmark");
+        for (int signal = 0; signal < SIGNALS; signal++) {
+            String topic = "/Bench/Chart/signal" + signal;
+            Object timeSeries = Dash.track(topic);
+            for (int i = 0; i < SAMPLES; i++) {
+                Dash.record(topic, i * 10_000L, Math.sin(i * 0.01 + signal));
+            }
+            Dash.addSignal(chart, topic, timeSeries);
+        }
+        chart.resize(400, 120);
+        chart.layout();
+    }
+
+    @Benchmark
+    public void redraw() throws Throwable {
+        Dash.redraw(chart);
+    }
+}
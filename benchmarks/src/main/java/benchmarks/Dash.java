@@ -0,0 +1,256 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+
+import edu.wpi.first.networktables.NetworkTableValue;
+import javafx.scene.control.TreeItem;
+import javafx.scene.layout.Region;
+
+// The dashboard classes live in the default package, which JMH benchmarks (and any other named
+// package) cannot import. Their members are resolved here once by name; static final method
+// handles are constants to the JIT, so calls through them are inlined like direct calls.
+// Benchmarks run against one dashboard connection, instance methods are bound to it up front.
+final class Dash {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Class<?> NETWORK_TABLE_MANAGER = load("NetworkTableManager");
+    private static final Class<?> UI_CONTROLLER = load("UIController");
+    private static final Class<?> NT_DATA_MODEL = load("UIController$NTDataModel");
+    private static final Class<?> TIME_SERIES = load("TimeSeries");
+    private static final Class<?> TIME_SERIES_STORE = load("TimeSeriesStore");
+    private static final Class<?> TOPIC_INDEX = load("TopicIndex");
+
+    private static final Object CONNECTION = open("Benchmark", "127.0.0.1");
+    private static final Object SERIES_STORE = timeSeriesStoreOf(CONNECTION);
+
+    private static final MethodHandle CONNECT = connectionMethod("connectToNetworkTables",
+        MethodType.methodType(void.class, String.class));
+    private static final MethodHandle DISCONNECT = connectionMethod("setSource",
+        MethodType.methodType(void.class, load("TelemetrySource")))
+        .asType(MethodType.methodType(void.class, Object.class));
+    private static final MethodHandle SUBSCRIBE = connectionMethod("subscribe",
+        MethodType.methodType(load("Subscription"), String[].class, double.class, boolean.class))
+        .asType(MethodType.methodType(AutoCloseable.class, String[].class, double.class, boolean.class));
+    private static final MethodHandle POPULATE_MASTER_TABLE = connectionMethod("populateMasterTable",
+        MethodType.methodType(void.class));
+    private static final MethodHandle DECODE_NT_VALUE = staticMethod(NETWORK_TABLE_MANAGER, "decodeNTValue",
+        MethodType.methodType(Object.class, NetworkTableValue.class));
+    private static final MethodHandle GET_VALUE = connectionMethod("getValue",
+        MethodType.methodType(Object.class, String.class));
+    private static final MethodHandle INGEST_VALUE = connectionMethod("ingestValue",
+        MethodType.methodType(void.class, String.class, Object.class, long.class));
+
+    private static final MethodHandle NEW_NT_DATA_MODEL = constructor(NT_DATA_MODEL,
+        MethodType.methodType(void.class, String.class, String.class, Object.class))
+        .asType(MethodType.methodType(Object.class, String.class, String.class, Object.class));
+    private static final MethodHandle ORGANIZE_NT_TREE_DATA = staticMethod(UI_CONTROLLER, "organizeNTTreeData",
+        MethodType.methodType(void.class, TreeItem.class, Collection.class));
+    private static final MethodHandle CREATE_NESTED_TREE_ITEMS = staticMethod(UI_CONTROLLER, "createNestedTreeItems",
+        MethodType.methodType(TreeItem.class, TreeItem.class, String.class));
+    private static final MethodHandle RESET_TREE = staticMethod(UI_CONTROLLER, "resetTree",
+        MethodType.methodType(void.class, TreeItem.class));
+    private static final MethodHandle DECODE_VALUE = staticMethod(UI_CONTROLLER, "decodeValue",
+        MethodType.methodType(String.class, Object.class));
+
+    private static final MethodHandle SET_RETENTION_SECONDS = staticMethod(TIME_SERIES_STORE, "setRetentionSeconds",
+        MethodType.methodType(void.class, int.class));
+    private static final MethodHandle TRACK = virtualMethod(TIME_SERIES_STORE, "track",
+        MethodType.methodType(TIME_SERIES, String.class))
+        .bindTo(SERIES_STORE)
+        .asType(MethodType.methodType(Object.class, String.class));
+    private static final MethodHandle CLEAR_SERIES = virtualMethod(TIME_SERIES_STORE, "clear",
+        MethodType.methodType(void.class))
+        .bindTo(SERIES_STORE);
+    private static final MethodHandle RECORD = virtualMethod(TIME_SERIES_STORE, "record",
+        MethodType.methodType(void.class, String.class, long.class, double.class))
+        .bindTo(SERIES_STORE);
+
+    private static final MethodHandle NEW_TOPIC_INDEX = constructor(TOPIC_INDEX,
+        MethodType.methodType(void.class))
+        .asType(MethodType.methodType(Object.class));
+    private static final MethodHandle ADD_TO_INDEX = virtualMethod(TOPIC_INDEX, "add",
+        MethodType.methodType(int.class, String.class))
+        .asType(MethodType.methodType(int.class, Object.class, String.class));
+    private static final MethodHandle QUERY_INDEX = virtualMethod(TOPIC_INDEX, "query",
+        MethodType.methodType(int[].class, String.class))
+        .asType(MethodType.methodType(int[].class, Object.class, String.class));
+
+    // The tree benchmarks read values from whichever connection the tree shows
+    static {
+        try {
+            staticMethod(UI_CONTROLLER, "setTreeConnection", MethodType.methodType(void.class, NETWORK_TABLE_MANAGER))
+                .invoke(CONNECTION);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not show the benchmark connection in the tree", e);
+        }
+    }
+
+    // Loading StripChart starts the JavaFX toolkit (its label font), so only chart benchmarks touch this
+    private static final class Charts {
+        static final Class<?> STRIP_CHART = load("StripChart");
+
+        static final MethodHandle NEW_STRIP_CHART = constructor(STRIP_CHART,
+            MethodType.methodType(void.class, String.class))
+            .asType(MethodType.methodType(Region.class, String.class));
+        static final MethodHandle ADD_SIGNAL = virtualMethod(STRIP_CHART, "addSignal",
+            MethodType.methodType(void.class, String.class, TIME_SERIES))
+            .asType(MethodType.methodType(void.class, Region.class, String.class, Object.class));
+        static final MethodHandle REDRAW = virtualMethod(STRIP_CHART, "redraw",
+            MethodType.methodType(void.class))
+            .asType(MethodType.methodType(void.class, Region.class));
+    }
+
+    private Dash() {}
+
+    static void connectToNetworkTables(String address) throws Throwable {
+        CONNECT.invokeExact(address);
+    }
+
+    static void disconnect() throws Throwable {
+        DISCONNECT.invokeExact((Object) null);
+    }
+
+    static AutoCloseable subscribe(String[] prefixes, double periodSeconds, boolean sendAll) throws Throwable {
+        return (AutoCloseable) SUBSCRIBE.invokeExact(prefixes, periodSeconds, sendAll);
+    }
+
+    static void populateMasterTable() throws Throwable {
+        POPULATE_MASTER_TABLE.invokeExact();
+    }
+
+    static Object decodeNTValue(NetworkTableValue value) throws Throwable {
+        return (Object) DECODE_NT_VALUE.invokeExact(value);
+    }
+
+    static Object getValue(String topic) throws Throwable {
+        return (Object) GET_VALUE.invokeExact(topic);
+    }
+
+    static void ingestValue(String topic, Object value, long timestamp) throws Throwable {
+        INGEST_VALUE.invokeExact(topic, value, timestamp);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static TreeItem<Object> newTreeRoot() throws Throwable {
+        Object model = (Object) NEW_NT_DATA_MODEL.invokeExact("NetworkTable", (String) null, (Object) "...");
+        TreeItem root = new TreeItem<>(model);
+        root.setExpanded(true);
+        return root;
+    }
+
+    static void organizeNTTreeData(TreeItem<?> rootItem, Collection<String> changedTopics) throws Throwable {
+        ORGANIZE_NT_TREE_DATA.invokeExact((TreeItem) rootItem, changedTopics);
+    }
+
+    static TreeItem<?> createNestedTreeItems(TreeItem<?> rootItem, String topic) throws Throwable {
+        return (TreeItem) CREATE_NESTED_TREE_ITEMS.invokeExact((TreeItem) rootItem, topic);
+    }
+
+    static void resetTree(TreeItem<?> rootItem) throws Throwable {
+        RESET_TREE.invokeExact((TreeItem) rootItem);
+    }
+
+    static String decodeValue(Object value) throws Throwable {
+        return (String) DECODE_VALUE.invokeExact(value);
+    }
+
+    static void setRetentionSeconds(int seconds) throws Throwable {
+        SET_RETENTION_SECONDS.invokeExact(seconds);
+    }
+
+    static Object track(String topic) throws Throwable {
+        return (Object) TRACK.invokeExact(topic);
+    }
+
+    static void clearSeries() throws Throwable {
+        CLEAR_SERIES.invokeExact();
+    }
+
+    static void record(String topic, long timestamp, double value) throws Throwable {
+        RECORD.invokeExact(topic, timestamp, value);
+    }
+
+    static Object newTopicIndex() throws Throwable {
+        return (Object) NEW_TOPIC_INDEX.invokeExact();
+    }
+
+    static int addToIndex(Object index, String topic) throws Throwable {
+        return (int) ADD_TO_INDEX.invokeExact(index, topic);
+    }
+
+    static int[] queryIndex(Object index, String query) throws Throwable {
+        return (int[]) QUERY_INDEX.invokeExact(index, query);
+    }
+
+    static Region newStripChart(String title) throws Throwable {
+        return (Region) Charts.NEW_STRIP_CHART.invokeExact(title);
+    }
+
+    static void addSignal(Region chart, String topic, Object timeSeries) throws Throwable {
+        Charts.ADD_SIGNAL.invokeExact(chart, topic, timeSeries);
+    }
+
+    static void redraw(Region chart) throws Throwable {
+        Charts.REDRAW.invokeExact(chart);
+    }
+
+    private static Object open(String name, String address) {
+        try {
+            return staticMethod(NETWORK_TABLE_MANAGER, "open",
+                MethodType.methodType(NETWORK_TABLE_MANAGER, String.class, String.class)).invoke(name, address);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not open dashboard connection " + name, e);
+        }
+    }
+
+    private static Object timeSeriesStoreOf(Object connection) {
+        try {
+            return virtualMethod(NETWORK_TABLE_MANAGER, "getTimeSeriesStore",
+                MethodType.methodType(TIME_SERIES_STORE)).invoke(connection);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not get the connection's time series store", e);
+        }
+    }
+
+    // Instance method of the benchmark connection, called without the receiver
+    private static MethodHandle connectionMethod(String name, MethodType type) {
+        return virtualMethod(NETWORK_TABLE_MANAGER, name, type).bindTo(CONNECTION);
+    }
+
+    private static Class<?> load(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Dashboard class not on the classpath: " + className, e);
+        }
+    }
+
+    // Private members are reachable because the dashboard and the benchmarks share the unnamed module
+    private static MethodHandle staticMethod(Class<?> owner, String name, MethodType type) {
+        try {
+            return MethodHandles.privateLookupIn(owner, LOOKUP).findStatic(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing " + owner.getName() + "." + name + type, e);
+        }
+    }
+
+    private static MethodHandle virtualMethod(Class<?> owner, String name, MethodType type) {
+        try {
+            return MethodHandles.privateLookupIn(owner, LOOKUP).findVirtual(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing " + owner.getName() + "." + name + type, e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, MethodType type) {
+        try {
+            return MethodHandles.privateLookupIn(owner, LOOKUP).findConstructor(owner, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing constructor " + owner.getName() + type, e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.networktables.NetworkTableValue;
+
+// Full resync of every topic from NT and decoding of raw NT values, one operation covers all topics
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class IngestionBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int topicCount;
+
+    private SyntheticTopics synthetic;
+    private NetworkTableValue[] values;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        synthetic = new SyntheticTopics(topicCount);
+        synthetic.start();
+        values = synthetic.serverValues();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        synthetic.close();
+    }
+
+    @Benchmark
+    public void populateMasterTable() throws Throwable {
+        Dash.populateMasterTable();
+    }
+
+    @Benchmark
+    public void decodeNTValue(Blackhole blackhole) throws Throwable {
+        for (NetworkTableValue value : values) {
+            blackhole.consume(Dash.decodeNTValue(value));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Topic search behind the tree's search box. Needs no NT server, the index is fed topic names directly.
+// The queries each match a folder or a handful of topics, the typical narrowing search.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class SearchBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int topicCount;
+
+    private List<String> topics;
+    private Object index;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        topics = SyntheticTopics.names(topicCount);
+        index = buildIndex();
+    }
+
+    @Benchmark
+    public Object buildIndex() throws Throwable {
+        Object built = Dash.newTopicIndex();
+        for (String topic : topics) {
+            Dash.addToIndex(built, topic);
+        }
+        return built;
+    }
+
+    @Benchmark
+    public int[] prefixQuery() throws Throwable {
+        return Dash.queryIndex(index, "/Bench/Subsystem3/Group1/");
+    }
+
+    @Benchmark
+    public int[] substringQuery() throws Throwable {
+        return Dash.queryIndex(index, "boolean97");
+    }
+
+    @Benchmark
+    public int[] globQuery() throws Throwable {
+        return Dash.queryIndex(index, "*/group7/string*6");
+    }
+}
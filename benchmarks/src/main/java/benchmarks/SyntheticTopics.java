@@ -0,0 +1,128 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import edu.wpi.first.networktables.GenericPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+
+// In-process NT server publishing a synthetic robot: topics spread over nested subsystem folders
+// with a mix of doubles, booleans, strings and double arrays. The dashboard connects to it as a
+// client over loopback, so benchmarks see values that went through the real ingestion path.
+final class SyntheticTopics implements AutoCloseable {
+
+    private static final long CONNECT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(120);
+
+    private final NetworkTableInstance server = NetworkTableInstance.create();
+    private final List<String> topics;
+    private final List<GenericPublisher> publishers = new ArrayList<>();
+    private AutoCloseable subscription;
+
+    SyntheticTopics(int topicCount) {
+        topics = names(topicCount);
+    }
+
+    // Topic names only, for benchmarks that feed the dashboard without a server
+    static List<String> names(int topicCount) {
+        List<String> names = new ArrayList<>(topicCount);
+        for (int i = 0; i < topicCount; i++) {
+            names.add("/Bench/Subsystem" + (i % 32) + "/Group" + ((i / 32) % 16) + "/" + typeOf(i) + i);
+        }
+        return names;
+    }
+
+    // Value of topic i at a given step, the type depends only on the topic
+    static Object valueOf(int i, int step) {
+        return switch (typeOf(i)) {
+            case "double" -> (double) (i + step);
+            case "boolean" -> ((i + step) & 1) == 0;
+            case "string" -> "state-" + ((i + step) % 8);
+            default -> new double[] { i, step, i + step };
+        };
+    }
+
+    private static String typeOf(int i) {
+        return switch (i % 4) {
+            case 0 -> "double";
+            case 1 -> "boolean";
+            case 2 -> "string";
+            default -> "double[]";
+        };
+    }
+
+    List<String> getTopics() {
+        return topics;
+    }
+
+    // Start the server, publish every topic once and wait until the dashboard has all values
+    void start() throws Throwable {
+        server.startServer("", "127.0.0.1", NetworkTableInstance.kDefaultPort3, NetworkTableInstance.kDefaultPort4);
+        for (int i = 0; i < topics.size(); i++) {
+            publishers.add(server.getTopic(topics.get(i)).genericPublish(typeOf(i)));
+        }
+        publish(0);
+
+        Dash.connectToNetworkTables("127.0.0.1");
+        subscription = Dash.subscribe(new String[] {""}, 0.01, true);
+
+        long deadline = System.nanoTime() + CONNECT_TIMEOUT_NANOS;
+        while (!receivedAll()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Dashboard did not receive all " + topics.size() + " topics");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    void publish(int step) {
+        for (int i = 0; i < publishers.size(); i++) {
+            GenericPublisher publisher = publishers.get(i);
+            Object value = valueOf(i, step);
+            if (value instanceof Double doubleValue) {
+                publisher.setDouble(doubleValue);
+            } else if (value instanceof Boolean booleanValue) {
+                publisher.setBoolean(booleanValue);
+            } else if (value instanceof String stringValue) {
+                publisher.setString(stringValue);
+            } else {
+                publisher.setDoubleArray((double[]) value);
+            }
+        }
+        server.flush();
+    }
+
+    // Values as the server holds them, used as decoder input
+    NetworkTableValue[] serverValues() {
+        NetworkTableValue[] values = new NetworkTableValue[topics.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = server.getEntry(topics.get(i)).getValue();
+        }
+        return values;
+    }
+
+    private boolean receivedAll() throws Throwable {
+        for (int i = topics.size() - 1; i >= 0; i--) {
+            if (Dash.getValue(topics.get(i)) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (subscription != null) {
+            subscription.close();
+        }
+        try {
+            Dash.disconnect();
+        } catch (Throwable e) {
+            throw new Exception(e);
+        }
+        publishers.forEach(GenericPublisher::close);
+        server.stopServer();
+        server.close();
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javafx.scene.control.TreeItem;
+
+// NT tree maintenance. The tree update only touches TreeItems, so it runs without a JavaFX toolkit.
+// buildTree starts from an empty tree, updateTree applies a change of every topic to a built one.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class TreeBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int topicCount;
+
+    private SyntheticTopics synthetic;
+    private List<String> topics;
+    private Object[] values;
+    private TreeItem<?> rootItem;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        synthetic = new SyntheticTopics(topicCount);
+        synthetic.start();
+        topics = synthetic.getTopics();
+
+        values = new Object[topics.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Dash.getValue(topics.get(i));
+        }
+
+        rootItem = Dash.newTreeRoot();
+        Dash.organizeNTTreeData(rootItem, topics);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        Dash.resetTree(rootItem);
+        synthetic.close();
+    }
+
+    @Benchmark
+    public void buildTree() throws Throwable {
+        Dash.resetTree(rootItem);
+        Dash.organizeNTTreeData(rootItem, topics);
+    }
+
+    @Benchmark
+    public void updateTree() throws Throwable {
+        Dash.organizeNTTreeData(rootItem, topics);
+    }
+
+    // Path lookups of topics that already have a tree item
+    @Benchmark
+    public void createNestedTreeItems(Blackhole blackhole) throws Throwable {
+        for (String topic : topics) {
+            blackhole.consume(Dash.createNestedTreeItems(rootItem, topic));
+        }
+    }
+
+    @Benchmark
+    public void decodeValue(Blackhole blackhole) throws Throwable {
+        for (Object value : values) {
+            blackhole.consume(Dash.decodeValue(value));
+        }
+    }
+}
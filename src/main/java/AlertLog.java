@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Bounded ring of fired watches for one connection.
+// Written on the connection's ingest thread without allocating, the oldest slot is overwritten.
+// Appending only takes the log's lock when a watch fires, which is rare next to the sample rate,
+// and the UI holds it just long enough to copy the newest events.
+public final class AlertLog {
+
+    // One fired watch, only created when the UI reads the log
+    public record Event(long index, String watchName, String topic, String condition, long timestamp, double value) {}
+
+    private final int mask;
+    private final WatchEngine.Watch[] watches;
+    private final long[] timestamps;
+    private final double[] values;
+    // Index of the event in the slot plus one, 0 while empty or cleared
+    private final long[] sequences;
+
+    private volatile long writtenCount = 0;
+
+    // Capacity is rounded up to a power of two
+    public AlertLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        watches = new WatchEngine.Watch[size];
+        timestamps = new long[size];
+        values = new double[size];
+        sequences = new long[size];
+    }
+
+    // Called by the single ingest thread of the connection
+    void append(WatchEngine.Watch watch, long timestamp, double value) {
+        long index = writtenCount;
+        int slot = (int) (index & mask);
+        synchronized (this) {
+            sequences[slot] = 0;
+            watches[slot] = watch;
+            timestamps[slot] = timestamp;
+            values[slot] = value;
+            sequences[slot] = index + 1;
+        }
+        writtenCount = index + 1;
+    }
+
+    // Number of events ever appended, compare with an earlier count to detect new events
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    // Up to max of the newest events, newest first
+    public synchronized List<Event> recent(int max) {
+        List<Event> events = new ArrayList<>();
+        long newest = writtenCount - 1;
+        for (long index = newest; index >= 0 && index > newest - sequences.length && events.size() < max; index--) {
+            int slot = (int) (index & mask);
+            if (sequences[slot] != index + 1) {
+                break;
+            }
+            WatchEngine.Watch watch = watches[slot];
+            events.add(new Event(index, watch.getName(), watch.getTopic(), watch.getCondition(), timestamps[slot], values[slot]));
+        }
+        return events;
+    }
+
+    public synchronized void clear() {
+        for (int slot = 0; slot < sequences.length; slot++) {
+            sequences[slot] = 0;
+            watches[slot] = null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+// Keeps one NT client connected to its server.
+// The connection listener is registered once and kept until close, so starting, stopping and
+// changing the server never adds listeners. While the client is not connected it is restarted
+// after a backoff that starts short, so a rebooted robot or a radio drop reconnects quickly, and
+// doubles up to a cap so an absent robot is not hammered; ntcore keeps retrying in between.
+// The first attempt at a server gets a longer timeout, resolving a team number over mDNS routinely
+// takes seconds and a restart would start it over.
+// A purely numeric server is treated as a team number.
+public final class ConnectionLifecycle {
+
+    private static final long INITIAL_BACKOFF_MILLIS = 250;
+    private static final long FIRST_ATTEMPT_TIMEOUT_MILLIS = 5000;
+    private static final long MAX_BACKOFF_MILLIS = 8000;
+
+    // Restarts are rare and quick, one thread serves every connection
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NT Reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final NetworkTableInstance ntInst;
+    private final String identity;
+    // Called on the NT listener thread when an established connection drops
+    private final Runnable onDisconnected;
+
+    private int connectionListenerHandle = 0;
+    private String server;
+    private boolean running = false;
+    private long backoffMillis = INITIAL_BACKOFF_MILLIS;
+    private ScheduledFuture<?> pendingRestart;
+
+    private volatile long restartCount = 0;
+
+    public ConnectionLifecycle(NetworkTableInstance ntInst, String identity, Runnable onDisconnected) {
+        this.ntInst = ntInst;
+        this.identity = identity;
+        this.onDisconnected = onDisconnected;
+    }
+
+    public synchronized void start(String newServer) {
+        if (connectionListenerHandle == 0) {
+            connectionListenerHandle = ntInst.addConnectionListener(false, this::handleConnectionEvent);
+        }
+        server = newServer;
+        if (!running) {
+            ntInst.startClient4(identity);
+            running = true;
+        }
+        applyServer();
+        scheduleFirstAttemptTimeout();
+    }
+
+    // Point the running client at another server and reconnect right away
+    public synchronized void setServer(String newServer) {
+        server = newServer;
+        if (running) {
+            applyServer();
+            ntInst.disconnect();
+            scheduleFirstAttemptTimeout();
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        cancelRestart();
+        ntInst.stopClient();
+    }
+
+    // Stop and remove the connection listener
+    public synchronized void close() {
+        stop();
+        if (connectionListenerHandle != 0) {
+            ntInst.removeListener(connectionListenerHandle);
+            connectionListenerHandle = 0;
+        }
+    }
+
+    // Client restarts since the lifecycle was created
+    public long getRestartCount() {
+        return restartCount;
+    }
+
+    private void applyServer() {
+        if (!server.isEmpty() && server.chars().allMatch(Character::isDigit) && server.length() <= 5) {
+            ntInst.setServerTeam(Integer.parseInt(server), NetworkTableInstance.kDefaultPort4);
+        } else {
+            ntInst.setServer(server, NetworkTableInstance.kDefaultPort4);
+        }
+    }
+
+    // Called on the NT listener thread, the callback runs outside the lock
+    private void handleConnectionEvent(NetworkTableEvent event) {
+        if (event.is(NetworkTableEvent.Kind.kConnected)) {
+            synchronized (this) {
+                cancelRestart();
+                backoffMillis = INITIAL_BACKOFF_MILLIS;
+            }
+        } else if (event.is(NetworkTableEvent.Kind.kDisconnected)) {
+            synchronized (this) {
+                // Stopping the client also disconnects, that is not a drop
+                if (!running) {
+                    return;
+                }
+                scheduleRestart();
+            }
+            onDisconnected.run();
+        }
+    }
+
+    // Backoff only starts once the first attempt at a server timed out
+    private void scheduleFirstAttemptTimeout() {
+        cancelRestart();
+        backoffMillis = FIRST_ATTEMPT_TIMEOUT_MILLIS;
+        scheduleRestart();
+        backoffMillis = INITIAL_BACKOFF_MILLIS;
+    }
+
+    private void scheduleRestart() {
+        if (running && pendingRestart == null) {
+            pendingRestart = scheduler.schedule(this::restart, backoffMillis, TimeUnit.MILLISECONDS);
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private void cancelRestart() {
+        if (pendingRestart != null) {
+            pendingRestart.cancel(false);
+            pendingRestart = null;
+        }
+    }
+
+    private synchronized void restart() {
+        pendingRestart = null;
+        if (!running || ntInst.isConnected()) {
+            return;
+        }
+        ntInst.stopClient();
+        ntInst.startClient4(identity);
+        applyServer();
+        restartCount++;
+        scheduleRestart();
+    }
+}
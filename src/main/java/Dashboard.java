@@ -1,34 +1,74 @@
 import java.util.Arrays;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javafx.application.Application;
-import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.SplitPane;
+import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeTableView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
 public class Dashboard extends Application{
 
-    private ScheduledExecutorService scheduler;
+    private static final Color[] ROBOT_COLORS = { Color.RED, Color.BLUE, Color.LIMEGREEN, Color.ORANGE };
+
+    private static final String AUTO_OPTIONS_TOPIC = "/Shuffleboard/SmartDashboard/Auto Selector/options";
+
+    private FrameLoop frameLoop;
+    // Pose sources bind to their connections, so those are opened first
+    private final List<NetworkTableManager> connections = NetworkTableManager.openFromConfig();
+    private final List<PoseSource> poseSources = PoseSource.fromConfig();
+    // Serves the relayed connection to other viewers, null unless relay.port is set
+    private RelayServer relay;
+
+    // The auto selector follows the connection shown in the tree
+    private NetworkTableManager autoConnection;
+    private Subscription autoOptionsSubscription;
+    private TopicHandle autoOptionsHandle;
+    private int[] poseRobotIndices;
+
+    // Widgets refresh at their own rates so the frame, CSS and layout included, stays within the budget and leaves the rest of the pulse to rendering
+    private final RefreshScheduler refreshScheduler = new RefreshScheduler(DashboardConfig.getDouble("refresh.frameBudgetMs", 8.0));
+    // Topics applied to the tree since the last frame was recorded
+    private int appliedTopics = 0;
+    // Start of the current pulse's frame and its pulse time, 0 once the frame has been recorded
+    private long frameStartNanos = 0;
+    private long frameNow;
+
+    // Topics changed by NT listener events since the last tree update
+    private final Set<String> changedTopics = new HashSet<>();
     
     @Override
     public void start(Stage primaryStage) {
+        UIController.setTreeConnection(connections.get(0));
+
         // Top bar: Status indicators
         HBox topBar = UIController.createTopBar();
 
         // Field view with Contol panel
         VBox leftPanel = new VBox(10);
-        leftPanel.getChildren().addAll(UIController.createFieldView(), UIController.createControlPanel());
+        FieldRenderer fieldView = UIController.createFieldView();
+        // The field takes whatever height the controls leave
+        VBox.setVgrow(fieldView, Priority.ALWAYS);
+        leftPanel.getChildren().addAll(fieldView, UIController.createControlPanel(), UIController.createReplayControls());
         leftPanel.setPadding(new Insets(10));
 
+        // One robot on the field per configured pose source, the first one in red
+        poseRobotIndices = new int[poseSources.size()];
+        for (int i = 0; i < poseSources.size(); i++) {
+            Color color = ROBOT_COLORS[i % ROBOT_COLORS.length];
+            poseRobotIndices[i] = UIController.addFieldRobot(color, poseSources.get(i).isGhost());
+        }
+
         // Network Table viewer
         TreeTableView<UIController.NTDataModel> networkTableViewer = UIController.createNetworkTableViewer();
 
@@ -37,7 +77,7 @@ public class Dashboard extends Application{
 
         // Main layout (splitPane)
         SplitPane mainSplitPane = new SplitPane();
-        mainSplitPane.getItems().addAll(leftPanel, networkTableViewer);
+        mainSplitPane.getItems().addAll(leftPanel, UIController.createTopicBrowser(networkTableViewer));
         mainSplitPane.setDividerPositions(0.7);
 
         // BorderPane
@@ -51,27 +91,68 @@ public class Dashboard extends Application{
         primaryStage.setTitle("Chicken Dash");
         primaryStage.setScene(scene);
         primaryStage.show();
+        // A frame ends once the pulse has applied CSS and laid out what the widgets changed
+        scene.addPostLayoutPulseListener(this::endFrame);
+
+        // Samples are recorded at full rate by ingestion, these only decide how often each widget shows them
+        refreshScheduler.register("field", 50, 10, 2.0, now -> updateRobotPos());
+        refreshScheduler.register("charts", 20, 5, 4.0, now -> updateTrackedValues());
+        refreshScheduler.register("tree", 4, 1, 4.0, now -> appliedTopics += updateNTTree(UIController.getTreeConnection(), UIController.getTreeRoot()));
+        refreshScheduler.register("status", 4, 1, 0.5, now -> updateStatusBar(UIController.getTreeConnection()));
+        refreshScheduler.register("auto", 4, 1, 0.5, now -> updateAutoSelector(UIController.getTreeConnection()));
+        refreshScheduler.register("replay", 10, 2, 0.5, now -> UIController.updateReplayControls());
+        refreshScheduler.register("alerts", 10, 2, 0.5, now -> UIController.updateAlerts());
+        refreshScheduler.register("inspector", 10, 2, 2.0, now -> ValueInspector.updateAll());
+        Metrics.setRefreshScheduler(refreshScheduler);
+
+        // Update the dashboard once per JavaFX pulse
+        // Values are pushed into each connection's store by its NT listeners, so nothing is polled here
+        frameLoop = new FrameLoop(this::updateFrame);
+        frameLoop.start();
+
+        relay = RelayServer.fromConfig();
+    }
 
-        // Start the scheduled task to update the dashboard every 100ms
-        scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(() -> {
-
-            NetworkTableManager.populateMasterTable();
-
-            // Update dashboard on the JavaFX Application Thread
-            Platform.runLater(() -> updateNTTree(networkTableViewer));
-
-            Platform.runLater(() -> updateTrackedValues());
+    // Runs on the JavaFX Application Thread, stalled pulses are dropped rather than queued
+    private void updateFrame(long now) {
+        frameStartNanos = System.nanoTime();
+        frameNow = now;
+        refreshScheduler.runFrame(now);
 
-            Platform.runLater(() -> updateRobotPos());
-            Platform.runLater(() -> updateStatusBar());
-            Platform.runLater(() -> updateAutoSelector());
+        for (NetworkTableManager connection : connections) {
+            connection.flushPublishes();
+        }
+    }
 
-        }, 0, 100, TimeUnit.MILLISECONDS);
+    // Runs after the pulse's CSS and layout passes, pulses without a frame (layout only) are not recorded
+    private void endFrame() {
+        if (frameStartNanos == 0) {
+            return;
+        }
+        long frameEndNanos = System.nanoTime();
+        Metrics.recordFrame(frameEndNanos - frameStartNanos, appliedTopics);
+        appliedTopics = 0;
+        refreshScheduler.recordFrame(frameNow, frameEndNanos - frameStartNanos);
+        frameStartNanos = 0;
+        if (Metrics.update(frameEndNanos)) {
+            UIController.updateMetricsOverlay();
+        }
     }
 
-    private void updateNTTree(TreeTableView<UIController.NTDataModel> treeTableView) {
-        UIController.organizeNTTreeData(treeTableView, NetworkTableManager.getMasterTable());
+    // Returns the number of topics applied this frame
+    private int updateNTTree(NetworkTableManager treeConnection, TreeItem<UIController.NTDataModel> treeRoot) {
+        // Skip the tree walk entirely when no topic changed since the last update
+        int dirtyTopics = treeConnection.drainDirtyTopics(changedTopics);
+        if (dirtyTopics > 0) {
+            long sourceTime = treeConnection.getServerTime();
+            UIController.organizeNTTreeData(treeRoot, changedTopics);
+            for (String topic : changedTopics) {
+                Metrics.recordDisplayed(treeConnection.getTimestamp(topic), sourceTime);
+            }
+            changedTopics.clear();
+        }
+        UIController.updateTreeSubscriptions();
+        return dirtyTopics;
     }
 
     private void updateTrackedValues() {
@@ -79,37 +160,34 @@ public class Dashboard extends Application{
     }
 
     private void updateRobotPos() {
-        Object positionObject = NetworkTableManager.getValue("/Shuffleboard/Positions/Swerve Position");
-        Object rotationObject = NetworkTableManager.getValue("/Shuffleboard/SmartDashboard/Custom Field/fieldSwerveMod0/fieldSwerveMod0/angle");
-
-        if ((positionObject != "Unassigned value" && positionObject != null) && (rotationObject != "Unassigned value" && rotationObject != null)) {
-
-            String position = (String) positionObject;
-            Double rotation = (Double) rotationObject;
-
-            String[] coordinates = position.replaceAll("[()]", "").split(",\\s*");
-
-            double x = Double.parseDouble(coordinates[0]);
-            double y = Double.parseDouble(coordinates[1]);
-
-            rotation = -1.0 * (rotation - 90.0);
-
-            UIController.drawRobot(x, y, rotation);
+        for (int i = 0; i < poseSources.size(); i++) {
+            PoseSource poseSource = poseSources.get(i);
+            if (poseSource.update()) {
+                double rotation = -1.0 * (poseSource.getHeadingDegrees() - 90.0);
+                UIController.updateRobotPose(poseRobotIndices[i], poseSource.getX(), poseSource.getY(), rotation);
+            }
         }
+        UIController.renderField();
     }
 
-    private void updateStatusBar() {
-        boolean isConnected = NetworkTableManager.isConnected();
-        UIController.updateStatusBar(isConnected);
+    private void updateStatusBar(NetworkTableManager treeConnection) {
+        boolean isConnected = treeConnection.isConnected();
+        UIController.updateStatusBar(isConnected, frameLoop.getSkippedFrames());
     }
 
-    private void updateAutoSelector() {
-        Object autoSelectionOptions = NetworkTableManager.getValue("/Shuffleboard/SmartDashboard/Auto Selector/options");
-
-        if (autoSelectionOptions != "Unassigned value" && autoSelectionOptions != null) {
-            String[] stringAutoSelectionOptions = (String[]) autoSelectionOptions;
+    private void updateAutoSelector(NetworkTableManager treeConnection) {
+        if (treeConnection != autoConnection) {
+            if (autoOptionsSubscription != null) {
+                autoOptionsSubscription.close();
+            }
+            // The auto options rarely change, so they are only requested twice a second
+            autoConnection = treeConnection;
+            autoOptionsSubscription = treeConnection.subscribe(new String[] {AUTO_OPTIONS_TOPIC}, 0.5, false);
+            autoOptionsHandle = treeConnection.getHandle(AUTO_OPTIONS_TOPIC);
+        }
+        if (autoOptionsHandle.getReference() instanceof String[] stringAutoSelectionOptions) {
             String selectedItem = UIController.updateAutoSelector(Arrays.asList(stringAutoSelectionOptions));
-            NetworkTableManager.publishValue("string", "/Shuffleboard/SmartDashboard/Auto Selector/selected", selectedItem);
+            treeConnection.publishValue(PublishPipeline.TYPE_STRING, "/Shuffleboard/SmartDashboard/Auto Selector/selected", selectedItem);
         }
     }
 
@@ -124,6 +202,11 @@ public class Dashboard extends Application{
 
     @Override
     public void stop() {
-        scheduler.shutdown();
+        frameLoop.stop();
+        if (relay != null) {
+            relay.close();
+        }
+        NetworkTableManager.closeAll();
+        Metrics.close();
     }
 }
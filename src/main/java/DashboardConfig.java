@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Settings from the bundled dashboard.properties, overridden by ~/ChickenDash/dashboard.properties
+public final class DashboardConfig {
+
+    private static final Path USER_CONFIG = Path.of(System.getProperty("user.home"), "ChickenDash", "dashboard.properties");
+
+    private static final Properties properties = load();
+
+    private DashboardConfig() {}
+
+    public static String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        return (int) getDouble(key, defaultValue);
+    }
+
+    // Comma separated list, empty when the key is missing
+    public static List<String> getList(String key) {
+        List<String> values = new ArrayList<>();
+        String value = getString(key, null);
+        if (value != null) {
+            for (String element : value.split(",")) {
+                if (!element.isBlank()) {
+                    values.add(element.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    private static Properties load() {
+        Properties loaded = new Properties();
+        try (InputStream defaults = DashboardConfig.class.getResourceAsStream("/dashboard.properties")) {
+            if (defaults != null) {
+                loaded.load(defaults);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read bundled dashboard.properties: " + e.getMessage());
+        }
+
+        if (Files.exists(USER_CONFIG)) {
+            try (Reader overrides = Files.newBufferedReader(USER_CONFIG)) {
+                loaded.load(overrides);
+            } catch (IOException e) {
+                System.out.println("Could not read " + USER_CONFIG + ": " + e.getMessage());
+            }
+        }
+        return loaded;
+    }
+}
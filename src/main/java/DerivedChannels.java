@@ -0,0 +1,176 @@
+import java.util.Arrays;
+
+// Computed topics of one connection, e.g. module speed error or total current.
+// Each channel is a DerivedExpression published as /Derived/<name>. Whenever one of its inputs is
+// ingested the channel is re-evaluated on the same thread and its output goes through the
+// connection's normal ingest path, so the tree, charts and recorder see it like any other topic.
+// A channel can use the outputs of channels defined before it, which rules out cycles.
+public final class DerivedChannels {
+
+    public static final String TOPIC_PREFIX = "/Derived/";
+
+    // Inputs are streamed at the field view rate
+    private static final double SUBSCRIPTION_PERIOD = 0.02;
+
+    private static final int[] NO_DEPENDENTS = new int[0];
+
+    private static final class Channel {
+        final String name;
+        final int outputId;
+        final DerivedExpression expression;
+        final Subscription subscription;
+
+        Channel(String name, int outputId, DerivedExpression expression, Subscription subscription) {
+            this.name = name;
+            this.outputId = outputId;
+            this.expression = expression;
+            this.subscription = subscription;
+        }
+    }
+
+    // Channels and their input index, replaced as a whole on every change so the ingest path
+    // reads a consistent pair without locking
+    private static final class Snapshot {
+        final Channel[] channels;
+        // Input topic id to the indices of the channels that read it
+        final int[][] dependents;
+
+        Snapshot(Channel[] channels, int[][] dependents) {
+            this.channels = channels;
+            this.dependents = dependents;
+        }
+    }
+
+    private final NetworkTableManager connection;
+
+    private volatile Snapshot snapshot = new Snapshot(new Channel[0], new int[0][]);
+
+    DerivedChannels(NetworkTableManager connection) {
+        this.connection = connection;
+    }
+
+    // Compile and add a channel, a channel with the same name is replaced in place. Throws
+    // IllegalArgumentException if the expression does not parse or reads a channel that is not
+    // defined before this one.
+    public synchronized void define(String name, String expressionSource) {
+        TopicRegistry registry = connection.getRegistry();
+        String outputTopic = TOPIC_PREFIX + name;
+        DerivedExpression expression = DerivedExpression.compile(expressionSource, registry);
+
+        Channel[] channels = snapshot.channels;
+        int index = findChannel(name);
+        int position = index < 0 ? channels.length : index;
+        for (String input : expression.getInputTopics()) {
+            if (input.startsWith(TOPIC_PREFIX)) {
+                int inputChannel = findChannel(input.substring(TOPIC_PREFIX.length()));
+                if (inputChannel < 0 || inputChannel >= position) {
+                    throw new IllegalArgumentException("Derived channel " + name + " can only read channels defined before it: " + input);
+                }
+            }
+        }
+        // A channel left reading this output after a remove must stay before it
+        for (int i = 0; i < position; i++) {
+            if (Arrays.asList(channels[i].expression.getInputTopics()).contains(outputTopic)) {
+                throw new IllegalArgumentException("Derived channel " + name + " is read by " + channels[i].name + ", which is defined before it");
+            }
+        }
+        connection.announceTopic(outputTopic);
+
+        // Robot inputs must be streamed, derived inputs are already local
+        String[] robotInputs = Arrays.stream(expression.getInputTopics())
+            .filter(input -> !input.startsWith(TOPIC_PREFIX))
+            .toArray(String[]::new);
+        Subscription subscription = robotInputs.length == 0 ? null : connection.subscribe(robotInputs, SUBSCRIPTION_PERIOD, false);
+
+        Channel[] updated = Arrays.copyOf(channels, Math.max(channels.length, position + 1));
+        if (index >= 0 && channels[index].subscription != null) {
+            channels[index].subscription.close();
+        }
+        updated[position] = new Channel(name, registry.idOf(outputTopic), expression, subscription);
+        publish(updated);
+    }
+
+    public synchronized void remove(String name) {
+        int index = findChannel(name);
+        if (index < 0) {
+            return;
+        }
+        Channel[] channels = snapshot.channels;
+        Channel removed = channels[index];
+        if (removed.subscription != null) {
+            removed.subscription.close();
+        }
+        Channel[] updated = new Channel[channels.length - 1];
+        System.arraycopy(channels, 0, updated, 0, index);
+        System.arraycopy(channels, index + 1, updated, index, updated.length - index);
+        publish(updated);
+    }
+
+    // Define every channel listed in derived.channels, logging the ones that do not compile
+    public void defineFromConfig() {
+        for (String channelName : DashboardConfig.getList("derived.channels")) {
+            String expression = DashboardConfig.getString("derived." + channelName + ".expression", null);
+            if (expression == null) {
+                System.out.println("Derived channel " + channelName + " has no expression");
+                continue;
+            }
+            try {
+                define(channelName, expression);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Derived channel " + channelName + " not defined: " + e.getMessage());
+            }
+        }
+    }
+
+    // Called on the ingest thread after topicId was stored, a cheap array check for non-inputs
+    void onInput(int topicId, long timestamp) {
+        Snapshot current = snapshot;
+        if (topicId >= current.dependents.length) {
+            return;
+        }
+        int[] channelIndices = current.dependents[topicId];
+        if (channelIndices == NO_DEPENDENTS) {
+            return;
+        }
+        ValueStore values = connection.getValueStore();
+        for (int channelIndex : channelIndices) {
+            Channel channel = current.channels[channelIndex];
+            double value = channel.expression.evaluate(values);
+            // Not published until every input has a value
+            if (!Double.isNaN(value)) {
+                connection.ingestComputed(channel.outputId, timestamp, value);
+            }
+        }
+    }
+
+    private int findChannel(String name) {
+        Channel[] channels = snapshot.channels;
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i].name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Rebuild the input index for a new channel list
+    private void publish(Channel[] updated) {
+        int maxInput = -1;
+        for (Channel channel : updated) {
+            for (int inputId : channel.expression.getInputIds()) {
+                maxInput = Math.max(maxInput, inputId);
+            }
+        }
+        int[][] updatedDependents = new int[maxInput + 1][];
+        Arrays.fill(updatedDependents, NO_DEPENDENTS);
+        for (int channelIndex = 0; channelIndex < updated.length; channelIndex++) {
+            for (int inputId : updated[channelIndex].expression.getInputIds()) {
+                int[] existing = updatedDependents[inputId];
+                int[] grown = Arrays.copyOf(existing, existing.length + 1);
+                grown[existing.length] = channelIndex;
+                updatedDependents[inputId] = grown;
+            }
+        }
+        snapshot = new Snapshot(updated, updatedDependents);
+    }
+}
@@ -0,0 +1,376 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.DoubleUnaryOperator;
+
+// Arithmetic over topic values, parsed once and compiled into a tree of lambdas.
+// Evaluating runs the lambdas directly against the ValueStore; there is no syntax tree to walk,
+// constant sub-expressions are folded at compile time and topic names are resolved to ids.
+//
+//   {topic}            the topic's number, booleans count as 0 and 1, NaN without a value
+//   {topic}[i]         element i of a numeric or boolean array topic
+//   + - * / % ^ ( )    the usual precedence, ^ binds tightest and to the right
+//   pi, e              constants
+//   abs sqrt min max hypot atan2 sin cos tan deg rad round floor ceil clamp sign
+public final class DerivedExpression {
+
+    // One compiled sub-expression
+    @FunctionalInterface
+    private interface Node {
+        double evaluate(ValueStore values);
+    }
+
+    private static final class Constant implements Node {
+        final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(ValueStore values) {
+            return value;
+        }
+    }
+
+    private final String source;
+    private final Node root;
+    private final int[] inputIds;
+    private final String[] inputTopics;
+
+    private DerivedExpression(String source, Node root, Set<String> inputs, TopicRegistry registry) {
+        this.source = source;
+        this.root = root;
+        this.inputTopics = inputs.toArray(new String[0]);
+        this.inputIds = new int[inputTopics.length];
+        for (int i = 0; i < inputTopics.length; i++) {
+            inputIds[i] = registry.idOf(inputTopics[i]);
+        }
+    }
+
+    // Throws IllegalArgumentException with the position of the first syntax error
+    public static DerivedExpression compile(String source, TopicRegistry registry) {
+        Parser parser = new Parser(source, registry);
+        Node root = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.position < source.length()) {
+            throw parser.error("Unexpected '" + source.charAt(parser.position) + "'");
+        }
+        return new DerivedExpression(source, root, parser.inputs, registry);
+    }
+
+    // NaN when an input has no numeric value
+    public double evaluate(ValueStore values) {
+        return root.evaluate(values);
+    }
+
+    public int[] getInputIds() {
+        return inputIds;
+    }
+
+    public String[] getInputTopics() {
+        return inputTopics;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    static double readNumber(ValueStore values, int id) {
+        double number = values.getDouble(id, Double.NaN);
+        if (Double.isNaN(number) && values.getType(id) == TelemetryLogFormat.TYPE_BOOLEAN) {
+            return values.getBoolean(id, false) ? 1.0 : 0.0;
+        }
+        return number;
+    }
+
+    static double readElement(ValueStore values, int id, int index) {
+        Object array = values.getReference(id);
+        if (array instanceof double[] doubles) {
+            return index < doubles.length ? doubles[index] : Double.NaN;
+        } else if (array instanceof float[] floats) {
+            return index < floats.length ? floats[index] : Double.NaN;
+        } else if (array instanceof long[] longs) {
+            return index < longs.length ? longs[index] : Double.NaN;
+        } else if (array instanceof boolean[] booleans) {
+            return index < booleans.length ? (booleans[index] ? 1.0 : 0.0) : Double.NaN;
+        }
+        return Double.NaN;
+    }
+
+    // Recursive descent parser that emits lambdas instead of syntax nodes
+    private static final class Parser {
+        private final String source;
+        private final TopicRegistry registry;
+        private final Set<String> inputs = new LinkedHashSet<>();
+        private int position = 0;
+
+        Parser(String source, TopicRegistry registry) {
+            this.source = source;
+            this.registry = registry;
+        }
+
+        // expression := term (('+' | '-') term)*
+        Node parseExpression() {
+            Node left = parseTerm();
+            while (true) {
+                if (accept('+')) {
+                    left = binary(left, parseTerm(), '+');
+                } else if (accept('-')) {
+                    left = binary(left, parseTerm(), '-');
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        // term := unary (('*' | '/' | '%') unary)*
+        private Node parseTerm() {
+            Node left = parseUnary();
+            while (true) {
+                if (accept('*')) {
+                    left = binary(left, parseUnary(), '*');
+                } else if (accept('/')) {
+                    left = binary(left, parseUnary(), '/');
+                } else if (accept('%')) {
+                    left = binary(left, parseUnary(), '%');
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        // unary := '-' unary | power
+        private Node parseUnary() {
+            if (accept('-')) {
+                Node operand = parseUnary();
+                if (operand instanceof Constant constant) {
+                    return new Constant(-constant.value);
+                }
+                return values -> -operand.evaluate(values);
+            }
+            accept('+');
+            return parsePower();
+        }
+
+        // power := primary ('^' unary)?
+        private Node parsePower() {
+            Node base = parsePrimary();
+            if (accept('^')) {
+                return binary(base, parseUnary(), '^');
+            }
+            return base;
+        }
+
+        private Node parsePrimary() {
+            skipWhitespace();
+            if (position >= source.length()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = source.charAt(position);
+            if (c == '(') {
+                position++;
+                Node inner = parseExpression();
+                expect(')');
+                return inner;
+            }
+            if (c == '{') {
+                return parseTopic();
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (Character.isLetter(c)) {
+                return parseName();
+            }
+            throw error("Unexpected '" + c + "'");
+        }
+
+        private Node parseTopic() {
+            int start = ++position;
+            int end = source.indexOf('}', start);
+            if (end < 0) {
+                throw error("Missing '}'");
+            }
+            String topic = source.substring(start, end).trim();
+            if (topic.isEmpty()) {
+                throw error("Empty topic name");
+            }
+            position = end + 1;
+            inputs.add(topic);
+            int id = registry.idOf(topic);
+
+            if (accept('[')) {
+                skipWhitespace();
+                int indexStart = position;
+                while (position < source.length() && Character.isDigit(source.charAt(position))) {
+                    position++;
+                }
+                if (indexStart == position) {
+                    throw error("Expected an array index");
+                }
+                int index = Integer.parseInt(source.substring(indexStart, position));
+                expect(']');
+                return values -> readElement(values, id, index);
+            }
+            return values -> readNumber(values, id);
+        }
+
+        private Node parseNumber() {
+            int start = position;
+            while (position < source.length() && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+                position++;
+            }
+            if (position < source.length() && (source.charAt(position) == 'e' || source.charAt(position) == 'E')) {
+                position++;
+                if (position < source.length() && (source.charAt(position) == '+' || source.charAt(position) == '-')) {
+                    position++;
+                }
+                while (position < source.length() && Character.isDigit(source.charAt(position))) {
+                    position++;
+                }
+            }
+            try {
+                return new Constant(Double.parseDouble(source.substring(start, position)));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Invalid number");
+            }
+        }
+
+        private Node parseName() {
+            int start = position;
+            while (position < source.length() && Character.isLetterOrDigit(source.charAt(position))) {
+                position++;
+            }
+            String name = source.substring(start, position).toLowerCase(Locale.ROOT);
+            if (!accept('(')) {
+                return switch (name) {
+                    case "pi" -> new Constant(Math.PI);
+                    case "e" -> new Constant(Math.E);
+                    default -> {
+                        position = start;
+                        throw error("Unknown name " + name);
+                    }
+                };
+            }
+
+            List<Node> arguments = new ArrayList<>();
+            if (!accept(')')) {
+                do {
+                    arguments.add(parseExpression());
+                } while (accept(','));
+                expect(')');
+            }
+            return function(name, arguments, start);
+        }
+
+        private Node function(String name, List<Node> arguments, int start) {
+            return switch (name) {
+                case "abs" -> unary(arguments, start, Math::abs);
+                case "sqrt" -> unary(arguments, start, Math::sqrt);
+                case "sin" -> unary(arguments, start, Math::sin);
+                case "cos" -> unary(arguments, start, Math::cos);
+                case "tan" -> unary(arguments, start, Math::tan);
+                case "deg" -> unary(arguments, start, Math::toDegrees);
+                case "rad" -> unary(arguments, start, Math::toRadians);
+                case "round" -> unary(arguments, start, value -> (double) Math.round(value));
+                case "floor" -> unary(arguments, start, Math::floor);
+                case "ceil" -> unary(arguments, start, Math::ceil);
+                case "sign" -> unary(arguments, start, Math::signum);
+                case "hypot" -> {
+                    requireArguments(arguments, 2, start);
+                    yield binary(arguments.get(0), arguments.get(1), 'h');
+                }
+                case "atan2" -> {
+                    requireArguments(arguments, 2, start);
+                    yield binary(arguments.get(0), arguments.get(1), 'a');
+                }
+                case "min", "max" -> {
+                    if (arguments.isEmpty()) {
+                        position = start;
+                        throw error(name + " needs at least one argument");
+                    }
+                    Node result = arguments.get(0);
+                    for (int i = 1; i < arguments.size(); i++) {
+                        result = binary(result, arguments.get(i), name.equals("min") ? 'm' : 'M');
+                    }
+                    yield result;
+                }
+                case "clamp" -> {
+                    requireArguments(arguments, 3, start);
+                    yield binary(binary(arguments.get(0), arguments.get(1), 'M'), arguments.get(2), 'm');
+                }
+                default -> {
+                    position = start;
+                    throw error("Unknown function " + name);
+                }
+            };
+        }
+
+        private Node unary(List<Node> arguments, int start, DoubleUnaryOperator operator) {
+            requireArguments(arguments, 1, start);
+            Node operand = arguments.get(0);
+            if (operand instanceof Constant constant) {
+                return new Constant(operator.applyAsDouble(constant.value));
+            }
+            return values -> operator.applyAsDouble(operand.evaluate(values));
+        }
+
+        private void requireArguments(List<Node> arguments, int count, int start) {
+            if (arguments.size() != count) {
+                position = start;
+                throw error("Expected " + count + " argument" + (count == 1 ? "" : "s"));
+            }
+        }
+
+        // One lambda per operator, so evaluation never switches on the operator
+        private static Node binary(Node left, Node right, char operator) {
+            Node node = switch (operator) {
+                case '+' -> values -> left.evaluate(values) + right.evaluate(values);
+                case '-' -> values -> left.evaluate(values) - right.evaluate(values);
+                case '*' -> values -> left.evaluate(values) * right.evaluate(values);
+                case '/' -> values -> left.evaluate(values) / right.evaluate(values);
+                case '%' -> values -> left.evaluate(values) % right.evaluate(values);
+                case '^' -> values -> Math.pow(left.evaluate(values), right.evaluate(values));
+                case 'h' -> values -> Math.hypot(left.evaluate(values), right.evaluate(values));
+                case 'a' -> values -> Math.atan2(left.evaluate(values), right.evaluate(values));
+                case 'm' -> values -> Math.min(left.evaluate(values), right.evaluate(values));
+                case 'M' -> values -> Math.max(left.evaluate(values), right.evaluate(values));
+                default -> throw new IllegalStateException("Unknown operator " + operator);
+            };
+            if (left instanceof Constant && right instanceof Constant) {
+                return new Constant(node.evaluate(null));
+            }
+            return node;
+        }
+
+        private boolean accept(char expected) {
+            skipWhitespace();
+            if (position < source.length() && source.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char expected) {
+            if (!accept(expected)) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        void skipWhitespace() {
+            while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " in: " + source);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.geometry.Orientation;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+// Field view drawn on two stacked canvases.
+// The background canvas holds the field image scaled to the current size and is only redrawn
+// when the view is resized. The overlay canvas holds robots and their trails and is only
+// redrawn when a pose changes. Several robots (or ghost poses such as a vision estimate)
+// can be drawn, each with a fixed size ring buffer trail drawn as a single path.
+public class FieldRenderer extends Region {
+
+    private static final double FIELD_LENGTH = 708.0;
+    private static final double ROBOT_SIZE = 30.0;
+    private static final int TRAIL_LENGTH = 500;
+
+    // Minimum movement in field units before a new trail point is added
+    private static final double TRAIL_SPACING = 2.0;
+
+    private static class Robot {
+        final Color color;
+        final boolean ghost;
+
+        double x;
+        double y;
+        double rotation;
+        boolean visible = false;
+
+        final double[] trailX = new double[TRAIL_LENGTH];
+        final double[] trailY = new double[TRAIL_LENGTH];
+        int trailHead = 0;
+        int trailSize = 0;
+
+        Robot(Color color, boolean ghost) {
+            this.color = color;
+            this.ghost = ghost;
+        }
+    }
+
+    private final Image fieldImage;
+    private final Canvas backgroundCanvas = new Canvas();
+    private final Canvas overlayCanvas = new Canvas();
+    private final List<Robot> robots = new ArrayList<>();
+
+    // Robot outline in robot-relative coordinates, rebuilt only when the scale changes
+    private final double[] arrowX = new double[3];
+    private final double[] arrowY = new double[3];
+    private final double[] bodyX = new double[4];
+    private final double[] bodyY = new double[4];
+
+    private double renderedWidth = -1;
+    private double renderedHeight = -1;
+    private boolean overlayDirty = true;
+
+    public FieldRenderer(Image fieldImage) {
+        this.fieldImage = fieldImage;
+        getChildren().addAll(backgroundCanvas, overlayCanvas);
+        setMinSize(100, 100);
+    }
+
+    // Returns the index used to update this robot's pose
+    public int addRobot(Color color, boolean ghost) {
+        robots.add(new Robot(color, ghost));
+        return robots.size() - 1;
+    }
+
+    // Pose in field units, rotation in canvas degrees
+    public void setPose(int robotIndex, double x, double y, double rotation) {
+        Robot robot = robots.get(robotIndex);
+        if (robot.visible && robot.x == x && robot.y == y && robot.rotation == rotation) {
+            return;
+        }
+
+        int lastPoint = (robot.trailHead - 1 + TRAIL_LENGTH) % TRAIL_LENGTH;
+        if (robot.trailSize == 0 || Math.abs(robot.trailX[lastPoint] - x) + Math.abs(robot.trailY[lastPoint] - y) >= TRAIL_SPACING) {
+            robot.trailX[robot.trailHead] = x;
+            robot.trailY[robot.trailHead] = y;
+            robot.trailHead = (robot.trailHead + 1) % TRAIL_LENGTH;
+            robot.trailSize = Math.min(robot.trailSize + 1, TRAIL_LENGTH);
+        }
+
+        robot.x = x;
+        robot.y = y;
+        robot.rotation = rotation;
+        robot.visible = true;
+        overlayDirty = true;
+    }
+
+    public void clearTrails() {
+        for (Robot robot : robots) {
+            robot.trailHead = 0;
+            robot.trailSize = 0;
+        }
+        overlayDirty = true;
+    }
+
+    // Sized like the field image it shows, keeping its aspect ratio when the width changes
+    @Override
+    public Orientation getContentBias() {
+        return Orientation.HORIZONTAL;
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return fieldImage.getWidth() > 0 ? fieldImage.getWidth() : FIELD_LENGTH;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        if (fieldImage.getWidth() <= 0 || fieldImage.getHeight() <= 0) {
+            return FIELD_LENGTH / 2;
+        }
+        double fitWidth = width > 0 ? width : fieldImage.getWidth();
+        return fitWidth * fieldImage.getHeight() / fieldImage.getWidth();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        backgroundCanvas.setWidth(getWidth());
+        backgroundCanvas.setHeight(getHeight());
+        overlayCanvas.setWidth(getWidth());
+        overlayCanvas.setHeight(getHeight());
+    }
+
+    // Called once per frame, only redraws layers whose inputs changed
+    public void render() {
+        double width = overlayCanvas.getWidth();
+        double height = overlayCanvas.getHeight();
+
+        if (width != renderedWidth || height != renderedHeight) {
+            renderedWidth = width;
+            renderedHeight = height;
+            drawBackground(width, height);
+            rebuildOutline(width / FIELD_LENGTH);
+            overlayDirty = true;
+        }
+
+        if (overlayDirty) {
+            overlayDirty = false;
+            drawOverlay(width, height);
+        }
+    }
+
+    // Field image fitted to the view, rotated 180 degrees to match the robot coordinates
+    private void drawBackground(double width, double height) {
+        GraphicsContext gc = backgroundCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+        if (fieldImage.getWidth() <= 0 || fieldImage.getHeight() <= 0) {
+            return;
+        }
+
+        double fit = Math.min(width / fieldImage.getWidth(), height / fieldImage.getHeight());
+        double fitWidth = fieldImage.getWidth() * fit;
+        double fitHeight = fieldImage.getHeight() * fit;
+
+        gc.save();
+        try {
+            gc.translate(width / 2, height / 2);
+            gc.rotate(180);
+            gc.drawImage(fieldImage, -fitWidth / 2, -fitHeight / 2, fitWidth, fitHeight);
+        } finally {
+            gc.restore();
+        }
+    }
+
+    private void rebuildOutline(double resizeScaler) {
+        double half = ROBOT_SIZE * resizeScaler / 2.0;
+
+        arrowX[0] = -half; arrowX[1] = half; arrowX[2] = 0;
+        arrowY[0] = -half; arrowY[1] = -half; arrowY[2] = half;
+
+        bodyX[0] = -half; bodyX[1] = half; bodyX[2] = half; bodyX[3] = -half;
+        bodyY[0] = -half; bodyY[1] = -half; bodyY[2] = half; bodyY[3] = half;
+    }
+
+    private void drawOverlay(double width, double height) {
+        GraphicsContext gc = overlayCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+
+        double resizeScaler = width / FIELD_LENGTH;
+        double centerX = width / 2;
+        double centerY = height / 2;
+
+        for (Robot robot : robots) {
+            if (!robot.visible) {
+                continue;
+            }
+            gc.setGlobalAlpha(robot.ghost ? 0.5 : 1.0);
+            drawTrail(gc, robot, resizeScaler, centerX, centerY);
+
+            gc.save();
+            try {
+                // Switch X and Y because of field orientation
+                gc.translate(-robot.y * resizeScaler + centerX, -robot.x * resizeScaler + centerY);
+                gc.rotate(robot.rotation);
+
+                gc.setFill(robot.color);
+                gc.setStroke(robot.color);
+                gc.setLineWidth(1.0);
+                if (robot.ghost) {
+                    gc.strokePolygon(arrowX, arrowY, 3);
+                } else {
+                    gc.fillPolygon(arrowX, arrowY, 3);
+                }
+                gc.strokePolygon(bodyX, bodyY, 4);
+            } finally {
+                gc.restore();
+            }
+        }
+        gc.setGlobalAlpha(1.0);
+    }
+
+    // Whole trail as one path, oldest point first
+    private void drawTrail(GraphicsContext gc, Robot robot, double resizeScaler, double centerX, double centerY) {
+        if (robot.trailSize < 2) {
+            return;
+        }
+        int start = (robot.trailHead - robot.trailSize + TRAIL_LENGTH) % TRAIL_LENGTH;
+
+        gc.setStroke(robot.color);
+        gc.setLineWidth(1.0);
+        gc.beginPath();
+        for (int i = 0; i < robot.trailSize; i++) {
+            int index = (start + i) % TRAIL_LENGTH;
+            double canvasX = -robot.trailY[index] * resizeScaler + centerX;
+            double canvasY = -robot.trailX[index] * resizeScaler + centerY;
+            if (i == 0) {
+                gc.moveTo(canvasX, canvasY);
+            } else {
+                gc.lineTo(canvasX, canvasY);
+            }
+        }
+        gc.stroke();
+    }
+}
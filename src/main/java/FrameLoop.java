@@ -0,0 +1,44 @@
+import java.util.function.LongConsumer;
+
+import javafx.animation.AnimationTimer;
+
+// Runs one coalesced dashboard update per JavaFX pulse.
+// Pulses that arrive while the FX thread is busy are dropped, not queued, so the
+// dashboard always renders the latest state instead of catching up on stale frames.
+public class FrameLoop extends AnimationTimer {
+
+    // JavaFX pulses at 60Hz unless the FX thread stalls
+    private static final long PULSE_NANOS = 1_000_000_000L / 60;
+
+    private final LongConsumer frameTask;
+
+    private long lastFrameNanos = 0;
+    private long renderedFrames = 0;
+    private long skippedFrames = 0;
+
+    public FrameLoop(LongConsumer frameTask) {
+        this.frameTask = frameTask;
+    }
+
+    @Override
+    public void handle(long now) {
+        if (lastFrameNanos != 0) {
+            long missedPulses = (now - lastFrameNanos) / PULSE_NANOS - 1;
+            if (missedPulses > 0) {
+                skippedFrames += missedPulses;
+            }
+        }
+        lastFrameNanos = now;
+
+        frameTask.accept(now);
+        renderedFrames++;
+    }
+
+    public long getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Ingest side latency of one connection, written only by that connection's source thread.
+// Each connection has its own histograms, so connections ingesting on different cores never
+// touch the same counters. Metrics drains all of them once per interval.
+public final class IngestMetrics {
+
+    private final LatencyHistogram networkDelay = new LatencyHistogram();
+    private final LatencyHistogram ingestDelay = new LatencyHistogram();
+    private final LongAdder updates = new LongAdder();
+
+    // Source time minus System.nanoTime in microseconds, refreshed every frame so the ingest path
+    // can convert its receive time to the source's clock without calling into NT
+    private volatile long sourceClockOffsetMicros = 0;
+
+    // Called by NetworkTableManager once a value is in the store
+    public void record(long serverTimestamp, long receivedNanos) {
+        long storedNanos = System.nanoTime();
+        updates.increment();
+        ingestDelay.record((storedNanos - receivedNanos) / 1000);
+        if (serverTimestamp > 0) {
+            networkDelay.record(receivedNanos / 1000 + sourceClockOffsetMicros - serverTimestamp);
+        }
+    }
+
+    public void updateClock(long nowNanos, long sourceTime) {
+        sourceClockOffsetMicros = sourceTime - nowNanos / 1000;
+    }
+
+    // Move the counts into the interval histograms, returns the number of updates since the last drain
+    public long drainTo(LatencyHistogram network, LatencyHistogram ingest) {
+        networkDelay.drainTo(network);
+        ingestDelay.drainTo(ingest);
+        return updates.sumThenReset();
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.wpi.first.networktables.MultiSubscriber;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.networktables.PubSubOption;
+
+// Live NT4 client connection to a robot or simulator.
+// All topics are announced through a topics-only subscriber, so the robot only streams values for
+// topics some widget subscribed to. Each widget subscription becomes its own MultiSubscriber with
+// the widget's periodic rate. When subscriptions overlap, a topic's values are only ingested from
+// the subscription with the longest matching prefix, so each change is ingested once.
+// The topic and connection listeners are registered on the first start and kept until close, so
+// reconnecting or pointing the source at another server never stacks listeners.
+public class LiveNetworkTableSource implements TelemetrySource {
+
+    private static final int NO_OWNER = -1;
+
+    private static final class ActiveSubscription {
+        final Subscription subscription;
+        final MultiSubscriber subscriber;
+        final int listenerHandle;
+
+        ActiveSubscription(Subscription subscription, MultiSubscriber subscriber, int listenerHandle) {
+            this.subscription = subscription;
+            this.subscriber = subscriber;
+            this.listenerHandle = listenerHandle;
+        }
+    }
+
+    private final NetworkTableManager connection;
+    private final NetworkTableInstance ntInst;
+    private final ConnectionLifecycle lifecycle;
+    private String server;
+    // NT topic handle to the dashboard's TopicRegistry id
+    private final Map<Integer, Integer> topicIds = new ConcurrentHashMap<>();
+
+    private final Map<Subscription, ActiveSubscription> activeSubscriptions = new ConcurrentHashMap<>();
+    // Topic handle to the listener handle its values are ingested from, cleared when subscriptions change
+    private final Map<Integer, Integer> topicOwners = new ConcurrentHashMap<>();
+
+    private MultiSubscriber topicSubscriber;
+    private int topicListenerHandle = 0;
+    private boolean started = false;
+
+    public LiveNetworkTableSource(NetworkTableManager connection, NetworkTableInstance ntInst, String server) {
+        this.connection = connection;
+        this.ntInst = ntInst;
+        this.server = server;
+        this.lifecycle = new ConnectionLifecycle(ntInst, "Chicken Dash Client", connection::saveCatalog);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (topicSubscriber == null) {
+            topicSubscriber = new MultiSubscriber(ntInst, new String[] {""}, PubSubOption.topicsOnly(true));
+            topicListenerHandle = ntInst.addListener(
+                topicSubscriber,
+                EnumSet.of(NetworkTableEvent.Kind.kTopic, NetworkTableEvent.Kind.kImmediate),
+                this::handleTopicEvent
+            );
+        }
+        lifecycle.start(server);
+        started = true;
+    }
+
+    // Widget subscriptions are dropped, the owner re-adds them on the next start
+    @Override
+    public synchronized void stop() {
+        for (ActiveSubscription active : activeSubscriptions.values()) {
+            close(active);
+        }
+        activeSubscriptions.clear();
+        topicOwners.clear();
+
+        lifecycle.stop();
+        started = false;
+    }
+
+    // Stop and remove the listeners, the source cannot be started again
+    public synchronized void close() {
+        stop();
+        lifecycle.close();
+        if (topicSubscriber != null) {
+            ntInst.removeListener(topicListenerHandle);
+            topicSubscriber.close();
+            topicSubscriber = null;
+        }
+    }
+
+    public synchronized String getServer() {
+        return server;
+    }
+
+    // Reconnect to another server, subscriptions and listeners stay in place
+    public synchronized void setServer(String newServer) {
+        server = newServer;
+        if (started) {
+            lifecycle.setServer(newServer);
+        }
+    }
+
+    @Override
+    public synchronized void addSubscription(Subscription subscription) {
+        if (!started || activeSubscriptions.containsKey(subscription)) {
+            return;
+        }
+        MultiSubscriber subscriber = new MultiSubscriber(ntInst, subscription.getPrefixes(),
+            PubSubOption.periodic(subscription.getPeriodSeconds()),
+            PubSubOption.sendAll(subscription.isSendAll()));
+        int listenerHandle = ntInst.addListener(
+            subscriber,
+            EnumSet.of(NetworkTableEvent.Kind.kValueAll, NetworkTableEvent.Kind.kImmediate),
+            this::handleValueEvent
+        );
+        activeSubscriptions.put(subscription, new ActiveSubscription(subscription, subscriber, listenerHandle));
+        topicOwners.clear();
+    }
+
+    @Override
+    public synchronized void removeSubscription(Subscription subscription) {
+        ActiveSubscription active = activeSubscriptions.remove(subscription);
+        if (active != null) {
+            close(active);
+            topicOwners.clear();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return ntInst.isConnected();
+    }
+
+    // Current NT server time, falls back to local NT time when not connected
+    @Override
+    public long getTime() {
+        OptionalLong offset = ntInst.getServerTimeOffset();
+        return NetworkTablesJNI.now() + offset.orElse(0);
+    }
+
+    private void close(ActiveSubscription active) {
+        ntInst.removeListener(active.listenerHandle);
+        active.subscriber.close();
+    }
+
+    // Called on the NT listener thread for every announced topic
+    private void handleTopicEvent(NetworkTableEvent event) {
+        if (event.topicInfo != null) {
+            connection.announceTopic(event.topicInfo.name, event.topicInfo.typeStr);
+            topicIds.put(event.topicInfo.topic, connection.getRegistry().idOf(event.topicInfo.name));
+        }
+    }
+
+    // Called on the NT listener thread, only for subscribed topics that changed
+    private void handleValueEvent(NetworkTableEvent event) {
+        if (event.valueData == null) {
+            return;
+        }
+        int topicHandle = event.valueData.topic;
+
+        Integer topicId = topicIds.get(topicHandle);
+        if (topicId == null) {
+            topicId = connection.getRegistry().idOf(event.valueData.getTopic().getName());
+            topicIds.put(topicHandle, topicId);
+        }
+
+        Integer owner = topicOwners.get(topicHandle);
+        if (owner == null) {
+            owner = cacheOwner(topicHandle, connection.getRegistry().nameOf(topicId));
+        }
+        if (owner != event.listener) {
+            return;
+        }
+
+        connection.ingestValue(topicId, event.valueData.value);
+    }
+
+    // Computed and cached under the lock subscription changes clear the cache under, so an owner
+    // computed against an old set of subscriptions can never be cached after the change
+    private synchronized int cacheOwner(int topicHandle, String topicName) {
+        int owner = findOwner(topicName);
+        topicOwners.put(topicHandle, owner);
+        return owner;
+    }
+
+    // Listener of the subscription with the longest prefix matching the topic
+    private int findOwner(String topicName) {
+        int owner = NO_OWNER;
+        int longestPrefix = -1;
+        for (ActiveSubscription active : activeSubscriptions.values()) {
+            for (String prefix : active.subscription.getPrefixes()) {
+                if (prefix.length() > longestPrefix && topicName.startsWith(prefix)) {
+                    longestPrefix = prefix.length();
+                    owner = active.listenerHandle;
+                }
+            }
+        }
+        return owner;
+    }
+}
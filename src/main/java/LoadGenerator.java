@@ -0,0 +1,316 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.GenericPublisher;
+import edu.wpi.first.networktables.MultiSubscriber;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+
+// Stand-alone local NT4 server that simulates a robot, for scaling and soak tests without hardware.
+// Publishes N generated topics of mixed types plus the pose and auto selector topics the dashboard
+// reads, at a base rate with optional periodic bursts. Every value is published with the tick's
+// send time as its timestamp, and the same time is published on SEND_TIME_TOPIC, so the dashboard
+// can measure its end-to-end delay. Writes to the auto selector are echoed back on ECHO_TOPIC.
+//
+// mvn compile exec:java -Dexec.mainClass=LoadGenerator -Dexec.args="--topics 10000 --rate 50"
+public class LoadGenerator {
+
+    public static final String SEND_TIME_TOPIC = "/LoadGenerator/SendTime";
+    public static final String ECHO_TOPIC = "/LoadGenerator/Echo/selected";
+
+    private static final String POSE_TOPIC = "/Shuffleboard/Positions/Swerve Position";
+    private static final String HEADING_TOPIC = "/Shuffleboard/SmartDashboard/Custom Field/fieldSwerveMod0/fieldSwerveMod0/angle";
+    private static final String FIELD_POSE_TOPIC = "/Shuffleboard/SmartDashboard/Field View/Robot";
+    private static final String STRUCT_POSE_TOPIC = "/LoadGenerator/Pose";
+    private static final String AUTO_OPTIONS_TOPIC = "/Shuffleboard/SmartDashboard/Auto Selector/options";
+    private static final String AUTO_SELECTED_TOPIC = "/Shuffleboard/SmartDashboard/Auto Selector/selected";
+
+    // WPILib's Pose2d schemas, so the dashboard decodes the struct topics like a robot's
+    private static final String[][] STRUCT_SCHEMAS = {
+        { "Pose2d", "Translation2d translation;Rotation2d rotation" },
+        { "Translation2d", "double x;double y" },
+        { "Rotation2d", "double value" },
+    };
+
+    private static final String[] AUTO_OPTIONS = { "Do Nothing", "Leave Zone", "Two Piece", "Four Piece" };
+    private static final String[] STRING_STATES = { "IDLE", "INTAKING", "SHOOTING", "CLIMBING", "DISABLED" };
+
+    private static final int ARRAY_LENGTH = 8;
+    private static final int POSE2D_STRUCT_SIZE = 24;
+
+    private enum TopicType { DOUBLE, DOUBLE_ARRAY, STRING, STRUCT, BOOLEAN }
+
+    private static final class Options {
+        int topics = 1000;
+        int port = NetworkTableInstance.kDefaultPort4;
+        double rateHz = 50;
+        // Share of the generated topics written each tick
+        double updateFraction = 1.0;
+        // Every burstPeriod seconds the rate is raised to burstRateHz for burstLength seconds, 0 disables
+        double burstPeriodSeconds = 0;
+        double burstLengthSeconds = 0;
+        double burstRateHz = 500;
+        // 0 runs until interrupted
+        double durationSeconds = 0;
+        double reportSeconds = 10;
+    }
+
+    private final Options options;
+    private final NetworkTableInstance server = NetworkTableInstance.create();
+
+    private final List<GenericPublisher> publishers = new ArrayList<>();
+    private final List<TopicType> types = new ArrayList<>();
+    private GenericPublisher sendTimePublisher;
+    private GenericPublisher posePublisher;
+    private GenericPublisher headingPublisher;
+    private GenericPublisher fieldPosePublisher;
+    private GenericPublisher structPosePublisher;
+    private GenericPublisher echoPublisher;
+    private MultiSubscriber selectedSubscriber;
+
+    // Reused for every write, NT copies published arrays
+    private final double[] arrayValue = new double[ARRAY_LENGTH];
+    private final double[] fieldPose = new double[3];
+    private final byte[] structValue = new byte[POSE2D_STRUCT_SIZE];
+
+    private int cursor = 0;
+    private long tick = 0;
+    private long valuesPublished = 0;
+    private long maxLateNanos = 0;
+    private final AtomicLong echoes = new AtomicLong();
+    private volatile boolean running = true;
+
+    private LoadGenerator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        Options options = parseArgs(args);
+        if (options == null) {
+            printUsage();
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(options);
+        Thread mainThread = Thread.currentThread();
+        // Ctrl+C ends the loop, the main thread then closes the server
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            generator.running = false;
+            LockSupport.unpark(mainThread);
+            try {
+                mainThread.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Load Generator Shutdown"));
+        generator.start();
+        generator.run();
+    }
+
+    private void start() {
+        server.startServer("", "", NetworkTableInstance.kDefaultPort3, options.port);
+
+        for (int i = 0; i < options.topics; i++) {
+            TopicType type = TopicType.values()[i % TopicType.values().length];
+            String name = "/LoadGenerator/Subsystem" + (i % 32) + "/Group" + ((i / 32) % 16) + "/" + type.name().toLowerCase() + i;
+            types.add(type);
+            publishers.add(server.getTopic(name).genericPublish(typeStringOf(type)));
+        }
+
+        sendTimePublisher = server.getTopic(SEND_TIME_TOPIC).genericPublish(PublishPipeline.TYPE_INTEGER);
+        posePublisher = server.getTopic(POSE_TOPIC).genericPublish(PublishPipeline.TYPE_STRING);
+        headingPublisher = server.getTopic(HEADING_TOPIC).genericPublish(PublishPipeline.TYPE_DOUBLE);
+        fieldPosePublisher = server.getTopic(FIELD_POSE_TOPIC).genericPublish(PublishPipeline.TYPE_DOUBLE_ARRAY);
+        structPosePublisher = server.getTopic(STRUCT_POSE_TOPIC).genericPublish("struct:Pose2d");
+        echoPublisher = server.getTopic(ECHO_TOPIC).genericPublish(PublishPipeline.TYPE_STRING);
+        server.getTopic(AUTO_OPTIONS_TOPIC).genericPublish(PublishPipeline.TYPE_STRING_ARRAY).setStringArray(AUTO_OPTIONS);
+        for (String[] schema : STRUCT_SCHEMAS) {
+            server.getTopic("/.schema/struct:" + schema[0]).genericPublish("structschema")
+                .setRaw(schema[1].getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Echo every dashboard write with the time the server saw it
+        selectedSubscriber = new MultiSubscriber(server, new String[] {AUTO_SELECTED_TOPIC});
+        server.addListener(selectedSubscriber, EnumSet.of(NetworkTableEvent.Kind.kValueAll), event -> {
+            if (event.valueData != null && event.valueData.value.isString()) {
+                echoPublisher.setString(event.valueData.value.getString(), NetworkTablesJNI.now());
+                echoes.incrementAndGet();
+            }
+        });
+
+        System.out.println("Load generator serving " + options.topics + " topics on port " + options.port);
+    }
+
+    private void stop() {
+        selectedSubscriber.close();
+        server.stopServer();
+        server.close();
+        System.out.println("Load generator stopped after " + tick + " ticks, " + echoes.get() + " echoes");
+    }
+
+    // Fixed-rate loop, late ticks are not made up for so a stalled machine does not burst afterwards
+    private void run() {
+        long startNanos = System.nanoTime();
+        long endNanos = options.durationSeconds > 0 ? startNanos + secondsToNanos(options.durationSeconds) : Long.MAX_VALUE;
+        long reportNanos = secondsToNanos(options.reportSeconds);
+        long nextReport = startNanos + reportNanos;
+        long lastReportValues = 0;
+        long nextTick = startNanos;
+
+        while (running && System.nanoTime() < endNanos) {
+            long now = System.nanoTime();
+            if (now < nextTick) {
+                LockSupport.parkNanos(nextTick - now);
+                continue;
+            }
+            maxLateNanos = Math.max(maxLateNanos, now - nextTick);
+
+            publishTick((now - startNanos) / 1e9);
+
+            long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / currentRateHz((now - startNanos) / 1e9));
+            nextTick = Math.max(nextTick + periodNanos, now);
+
+            if (now >= nextReport) {
+                double elapsed = (now - nextReport + reportNanos) / 1e9;
+                System.out.printf("%6.0fs  %8.0f values/s  ticks %d  max late %.1fms  clients %d  echoes %d%n",
+                    (now - startNanos) / 1e9, (valuesPublished - lastReportValues) / elapsed, tick,
+                    maxLateNanos / 1e6, server.getConnections().length, echoes.get());
+                lastReportValues = valuesPublished;
+                maxLateNanos = 0;
+                nextReport = now + reportNanos;
+            }
+        }
+        stop();
+    }
+
+    private double currentRateHz(double elapsedSeconds) {
+        if (options.burstPeriodSeconds <= 0 || options.burstLengthSeconds <= 0) {
+            return options.rateHz;
+        }
+        return elapsedSeconds % options.burstPeriodSeconds < options.burstLengthSeconds ? options.burstRateHz : options.rateHz;
+    }
+
+    private void publishTick(double seconds) {
+        // All values of a tick share one send time so the dashboard can match them up
+        long sendTime = NetworkTablesJNI.now();
+        tick++;
+
+        int count = (int) Math.ceil(publishers.size() * options.updateFraction);
+        for (int n = 0; n < count; n++) {
+            int i = cursor;
+            cursor = (cursor + 1) % publishers.size();
+            publishValue(publishers.get(i), types.get(i), i, seconds, sendTime);
+        }
+
+        // Robot driving an ellipse around the field center
+        double angle = seconds * 0.5;
+        double x = 200 * Math.cos(angle);
+        double y = 100 * Math.sin(angle);
+        double headingDegrees = Math.toDegrees(angle) % 360;
+        posePublisher.setString(String.format(Locale.ROOT, "(%.2f, %.2f)", x, y), sendTime);
+        headingPublisher.setDouble(headingDegrees, sendTime);
+        fieldPose[0] = x / 39.37;
+        fieldPose[1] = y / 39.37;
+        fieldPose[2] = headingDegrees;
+        fieldPosePublisher.setDoubleArray(fieldPose, sendTime);
+        writePose2d(structValue, fieldPose[0], fieldPose[1], Math.toRadians(headingDegrees));
+        structPosePublisher.setRaw(structValue, sendTime);
+
+        sendTimePublisher.setInteger(sendTime, sendTime);
+        valuesPublished += count + 5;
+        server.flush();
+    }
+
+    private void publishValue(GenericPublisher publisher, TopicType type, int i, double seconds, long sendTime) {
+        double wave = Math.sin(seconds + i * 0.1);
+        switch (type) {
+            case DOUBLE -> publisher.setDouble(wave * 100, sendTime);
+            case DOUBLE_ARRAY -> {
+                for (int element = 0; element < ARRAY_LENGTH; element++) {
+                    arrayValue[element] = wave * element;
+                }
+                publisher.setDoubleArray(arrayValue, sendTime);
+            }
+            case STRING -> publisher.setString(STRING_STATES[(int) Math.floorMod(tick + i, (long) STRING_STATES.length)], sendTime);
+            case STRUCT -> {
+                writePose2d(structValue, wave, -wave, seconds % (2 * Math.PI));
+                publisher.setRaw(structValue, sendTime);
+            }
+            case BOOLEAN -> publisher.setBoolean(wave > 0, sendTime);
+        }
+    }
+
+    private static String typeStringOf(TopicType type) {
+        return switch (type) {
+            case DOUBLE -> PublishPipeline.TYPE_DOUBLE;
+            case DOUBLE_ARRAY -> PublishPipeline.TYPE_DOUBLE_ARRAY;
+            case STRING -> PublishPipeline.TYPE_STRING;
+            case STRUCT -> "struct:Pose2d";
+            case BOOLEAN -> PublishPipeline.TYPE_BOOLEAN;
+        };
+    }
+
+    // Pose2d struct layout read by PoseSource: x, y, rotation radians as little-endian doubles
+    private static void writePose2d(byte[] bytes, double x, double y, double radians) {
+        writeLittleEndianDouble(bytes, 0, x);
+        writeLittleEndianDouble(bytes, 8, y);
+        writeLittleEndianDouble(bytes, 16, radians);
+    }
+
+    private static void writeLittleEndianDouble(byte[] bytes, int offset, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (bits >>> (8 * i));
+        }
+    }
+
+    private static long secondsToNanos(double seconds) {
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Options parseArgs(String[] args) {
+        Options options = new Options();
+        if (args.length % 2 != 0) {
+            return null;
+        }
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--topics" -> options.topics = Integer.parseInt(value);
+                    case "--port" -> options.port = Integer.parseInt(value);
+                    case "--rate" -> options.rateHz = Double.parseDouble(value);
+                    case "--update-fraction" -> options.updateFraction = Double.parseDouble(value);
+                    case "--burst-period" -> options.burstPeriodSeconds = Double.parseDouble(value);
+                    case "--burst-length" -> options.burstLengthSeconds = Double.parseDouble(value);
+                    case "--burst-rate" -> options.burstRateHz = Double.parseDouble(value);
+                    case "--duration" -> options.durationSeconds = Double.parseDouble(value);
+                    case "--report" -> options.reportSeconds = Double.parseDouble(value);
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (options.topics <= 0 || options.rateHz <= 0 || options.burstRateHz <= 0 || options.reportSeconds <= 0
+                || options.updateFraction <= 0 || options.updateFraction > 1) {
+            return null;
+        }
+        return options;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: LoadGenerator [--topics N] [--port P] [--rate HZ] [--update-fraction 0-1]");
+        System.out.println("                     [--burst-period S --burst-length S --burst-rate HZ]");
+        System.out.println("                     [--duration S] [--report S]");
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Latency and frame-time instrumentation.
+// Every ingested update records how long it took from its NT server timestamp to reaching the
+// dashboard (network) and from there into the value store (ingest), in its connection's
+// IngestMetrics. Every frame records its own
+// duration from the start of the pulse's update through CSS and layout, how many topics it applied and, for each applied topic, the time from the value's
+// server timestamp to the frame that shows it (end-to-end). All times are microseconds.
+// Once a second the live histograms are moved into interval snapshots for the overlay, and every
+// metrics.exportSeconds the accumulated intervals are appended as a CSV row for post-match analysis.
+public final class Metrics {
+
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Path EXPORT_DIRECTORY = Path.of(System.getProperty("user.home"), "ChickenDash", "metrics");
+
+    private static final String CSV_HEADER = "time,updates_per_s,dirty_p50,dirty_p99,frame_p50_us,frame_p99_us,frame_max_us,"
+        + "network_p50_us,network_p99_us,ingest_p50_us,ingest_p99_us,end_to_end_p50_us,end_to_end_p99_us,end_to_end_max_us";
+
+    // Written by the frame loop, ingest side histograms live in each connection's IngestMetrics
+    private static final LatencyHistogram endToEndDelay = new LatencyHistogram();
+    private static final LatencyHistogram frameTime = new LatencyHistogram();
+    private static final LatencyHistogram dirtyPerFrame = new LatencyHistogram();
+
+    // Last completed interval, shown by the overlay
+    private static final LatencyHistogram intervalNetwork = new LatencyHistogram();
+    private static final LatencyHistogram intervalIngest = new LatencyHistogram();
+    private static final LatencyHistogram intervalEndToEnd = new LatencyHistogram();
+    private static final LatencyHistogram intervalFrame = new LatencyHistogram();
+    private static final LatencyHistogram intervalDirty = new LatencyHistogram();
+    private static double intervalUpdateRate = 0;
+
+    // Intervals since the last export
+    private static final LatencyHistogram exportNetwork = new LatencyHistogram();
+    private static final LatencyHistogram exportIngest = new LatencyHistogram();
+    private static final LatencyHistogram exportEndToEnd = new LatencyHistogram();
+    private static final LatencyHistogram exportFrame = new LatencyHistogram();
+    private static final LatencyHistogram exportDirty = new LatencyHistogram();
+    private static long exportUpdates = 0;
+
+    private static final long exportNanos = (long) (DashboardConfig.getDouble("metrics.exportSeconds", 10.0) * INTERVAL_NANOS);
+
+    private static long intervalStartNanos = System.nanoTime();
+    private static long exportStartNanos = System.nanoTime();
+    private static BufferedWriter exportWriter;
+    private static RefreshScheduler refreshScheduler;
+
+    private Metrics() {}
+
+    // Widgets whose effective refresh rates are shown and exported
+    public static void setRefreshScheduler(RefreshScheduler scheduler) {
+        refreshScheduler = scheduler;
+    }
+
+    // A topic whose value has this server timestamp was applied in the frame at frameSourceTime
+    public static void recordDisplayed(long serverTimestamp, long frameSourceTime) {
+        if (serverTimestamp > 0) {
+            endToEndDelay.record(frameSourceTime - serverTimestamp);
+        }
+    }
+
+    public static void recordFrame(long frameNanos, int dirtyTopics) {
+        frameTime.record(frameNanos / 1000);
+        dirtyPerFrame.record(dirtyTopics);
+    }
+
+    // Called once per frame on the JavaFX thread, returns true when a new interval is available
+    public static boolean update(long nowNanos) {
+        List<NetworkTableManager> connections = NetworkTableManager.getConnections();
+        for (NetworkTableManager connection : connections) {
+            connection.getIngestMetrics().updateClock(nowNanos, connection.getServerTime());
+        }
+
+        long elapsed = nowNanos - intervalStartNanos;
+        if (elapsed < INTERVAL_NANOS) {
+            return false;
+        }
+        intervalStartNanos = nowNanos;
+
+        resetInterval();
+        long intervalUpdates = 0;
+        for (NetworkTableManager connection : connections) {
+            intervalUpdates += connection.getIngestMetrics().drainTo(intervalNetwork, intervalIngest);
+        }
+        endToEndDelay.drainTo(intervalEndToEnd);
+        frameTime.drainTo(intervalFrame);
+        dirtyPerFrame.drainTo(intervalDirty);
+        intervalUpdateRate = intervalUpdates * 1e9 / elapsed;
+        if (refreshScheduler != null) {
+            refreshScheduler.updateEffectiveRates(elapsed);
+        }
+
+        if (exportNanos > 0) {
+            addToExport(intervalUpdates);
+            if (nowNanos - exportStartNanos >= exportNanos) {
+                export((nowNanos - exportStartNanos) / 1e9);
+                exportStartNanos = nowNanos;
+            }
+        }
+        return true;
+    }
+
+    // One line summary of the last interval for the overlay
+    public static String formatInterval() {
+        String summary = String.format(Locale.ROOT, "Ingest %.0f/s | Dirty/frame p99 %d | Frame p50 %.1fms p99 %.1fms | Latency p50 %.1fms p99 %.1fms",
+            intervalUpdateRate, intervalDirty.getPercentile(99),
+            intervalFrame.getPercentile(50) / 1000.0, intervalFrame.getPercentile(99) / 1000.0,
+            intervalEndToEnd.getPercentile(50) / 1000.0, intervalEndToEnd.getPercentile(99) / 1000.0);
+        return refreshScheduler == null ? summary : summary + " | " + refreshScheduler.formatRates();
+    }
+
+    public static void close() {
+        if (exportWriter != null) {
+            try {
+                exportWriter.close();
+            } catch (IOException e) {
+                System.out.println("Could not close metrics export: " + e.getMessage());
+            }
+            exportWriter = null;
+        }
+    }
+
+    private static void resetInterval() {
+        intervalNetwork.reset();
+        intervalIngest.reset();
+        intervalEndToEnd.reset();
+        intervalFrame.reset();
+        intervalDirty.reset();
+    }
+
+    // Interval histograms are added, not drained, so the overlay keeps showing them
+    private static void addToExport(long intervalUpdates) {
+        intervalNetwork.addTo(exportNetwork);
+        intervalIngest.addTo(exportIngest);
+        intervalEndToEnd.addTo(exportEndToEnd);
+        intervalFrame.addTo(exportFrame);
+        intervalDirty.addTo(exportDirty);
+        exportUpdates += intervalUpdates;
+    }
+
+    private static void export(double seconds) {
+        try {
+            if (exportWriter == null) {
+                Files.createDirectories(EXPORT_DIRECTORY);
+                String fileName = "metrics-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".csv";
+                exportWriter = Files.newBufferedWriter(EXPORT_DIRECTORY.resolve(fileName));
+                exportWriter.write(CSV_HEADER);
+                if (refreshScheduler != null) {
+                    for (RefreshScheduler.Widget widget : refreshScheduler.getWidgets()) {
+                        exportWriter.write(",refresh_" + widget.getName() + "_hz");
+                    }
+                }
+                exportWriter.newLine();
+            }
+            exportWriter.write(String.format(Locale.ROOT, "%s,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                LocalDateTime.now(), exportUpdates / seconds,
+                exportDirty.getPercentile(50), exportDirty.getPercentile(99),
+                exportFrame.getPercentile(50), exportFrame.getPercentile(99), exportFrame.getMax(),
+                exportNetwork.getPercentile(50), exportNetwork.getPercentile(99),
+                exportIngest.getPercentile(50), exportIngest.getPercentile(99),
+                exportEndToEnd.getPercentile(50), exportEndToEnd.getPercentile(99), exportEndToEnd.getMax()));
+            // Rates of the last interval
+            if (refreshScheduler != null) {
+                for (RefreshScheduler.Widget widget : refreshScheduler.getWidgets()) {
+                    exportWriter.write(String.format(Locale.ROOT, ",%.1f", widget.getEffectiveHz()));
+                }
+            }
+            exportWriter.newLine();
+            exportWriter.flush();
+        } catch (IOException e) {
+            System.out.println("Could not export metrics: " + e.getMessage());
+        }
+
+        exportNetwork.reset();
+        exportIngest.reset();
+        exportEndToEnd.reset();
+        exportFrame.reset();
+        exportDirty.reset();
+        exportUpdates = 0;
+    }
+}
@@ -1,115 +1,547 @@
-import java.util.EnumSet;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import edu.wpi.first.networktables.GenericPublisher;
 import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.NetworkTableValue;
-import edu.wpi.first.networktables.Topic;
+import edu.wpi.first.networktables.NetworkTablesJNI;
 
+// One robot or simulator connection with its own NT instance, source, value store and publishers.
+// Nothing on the ingest path is shared between connections: each NT instance delivers values on
+// its own listener thread (replay on its playback thread) into its own registry, store, history
+// and metrics, so several robots ingest in parallel. Connections are listed in the connections
+// setting and can be added at runtime; widgets bind to one connection when they are created.
 public final class NetworkTableManager {
 
-    private static final Map<String, Object> masterTable = new ConcurrentHashMap<>();
+    // Every open connection in creation order, the first one is shown at startup
+    private static final List<NetworkTableManager> connections = new CopyOnWriteArrayList<>();
+    private static final List<NetworkTableManager> connectionsView = Collections.unmodifiableList(connections);
 
-    private static final Set<String> topics = new CopyOnWriteArraySet<>();
-    private static final Map<String, GenericPublisher> publisherCache = new ConcurrentHashMap<>();
+    private final String name;
 
-    private static final NetworkTableInstance ntInst = NetworkTableInstance.getDefault();
+    // Every known topic gets a dense id, latest values are stored in columns by id
+    private final TopicRegistry registry = new TopicRegistry();
+    private final ValueStore values = new ValueStore();
+    private final TimeSeriesStore timeSeries = new TimeSeriesStore();
+    private final IngestMetrics ingestMetrics = new IngestMetrics();
+    private final DerivedChannels derivedChannels = new DerivedChannels(this);
+    private final WatchEngine watchEngine = new WatchEngine(this);
+    private final StructDecoder structDecoder = new StructDecoder(this);
 
-    private NetworkTableManager() {}
+    // Topics whose value changed since the last drain
+    private final Set<String> dirtyTopics = ConcurrentHashMap.newKeySet();
 
-    public static void connectToNetworkTables(String teamNumIP) {
+    private final NetworkTableInstance ntInst = NetworkTableInstance.create();
 
-        ntInst.disconnect();
+    private final PublishPipeline publishPipeline = new PublishPipeline(ntInst);
 
-        ntInst.startClient4("Chicken Dash Client");
-        ntInst.setServer(teamNumIP, NetworkTableInstance.kDefaultPort4);
+    // Non-null while a recording session is active
+    private volatile TelemetryRecorder recorder;
 
-        ntInst.addListener(
-            new String[] {""},
-            EnumSet.of(NetworkTableEvent.Kind.kTopic),
-            event -> {
-                String topicName = event.topicInfo.name;
-                topics.add(topicName);
+    private volatile TelemetrySource source;
+
+    // Created on the first connect and reused, so reconnects keep their NT listeners
+    private LiveNetworkTableSource liveSource;
+
+    // Where known topics and values are kept between sessions, null when not cached
+    private volatile Path catalogFile;
+    private final Object catalogLock = new Object();
+
+    // Last address connected to, shown when the connection is selected
+    private volatile String address;
+
+    // Value subscriptions requested by widgets, re-applied whenever the source changes
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Held while recording so every topic is streamed and recorded, not just what is on screen
+    private Subscription recordingSubscription;
+
+    private NetworkTableManager(String name, String address) {
+        this.name = name;
+        this.address = address;
+        structDecoder.start();
+    }
+
+    // Open a connection without starting it, names must be unique
+    public static synchronized NetworkTableManager open(String name, String address) {
+        if (getConnection(name) != null) {
+            throw new IllegalArgumentException("Connection " + name + " is already open");
+        }
+        NetworkTableManager connection = new NetworkTableManager(name, address);
+        connections.add(connection);
+        return connection;
+    }
+
+    // Open every connection listed in the connections setting, or a single "Robot" connection,
+    // each warm started from its topic catalog
+    public static List<NetworkTableManager> openFromConfig() {
+        List<String> names = DashboardConfig.getList("connections");
+        if (names.isEmpty()) {
+            names = List.of("Robot");
+        }
+        for (String connectionName : names) {
+            if (getConnection(connectionName) == null) {
+                NetworkTableManager connection = open(connectionName, DashboardConfig.getString("connection." + connectionName + ".address", "localhost"));
+                connection.useCatalog(TopicCatalog.pathFor(connectionName));
+                connection.getDerivedChannels().defineFromConfig();
+                connection.getWatchEngine().defineFromConfig();
+            }
+        }
+        return getConnections();
+    }
+
+    // Live read-only view, iterating it never blocks ingestion or opening a connection
+    public static List<NetworkTableManager> getConnections() {
+        return connectionsView;
+    }
+
+    // Null if no open connection has that name
+    public static NetworkTableManager getConnection(String name) {
+        for (NetworkTableManager connection : connections) {
+            if (connection.name.equals(name)) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    // Stop recording and the source of every connection and release their NT instances
+    public static void closeAll() {
+        for (NetworkTableManager connection : connections) {
+            connection.close();
+        }
+    }
+
+    public void close() {
+        stopRecording();
+        setSource(null);
+        synchronized (this) {
+            if (liveSource != null) {
+                liveSource.close();
+                liveSource = null;
+            }
+        }
+        publishPipeline.close();
+        connections.remove(this);
+        ntInst.close();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    // Connecting again only changes the server, the values already shown stay until replaced
+    public synchronized void connectToNetworkTables(String teamNumIP) {
+        address = teamNumIP;
+        if (liveSource == null) {
+            liveSource = new LiveNetworkTableSource(this, ntInst, teamNumIP);
+        }
+        if (source == liveSource) {
+            markAllStale();
+            liveSource.setServer(teamNumIP);
+        } else {
+            setSource(liveSource);
+        }
+    }
+
+    // Load the catalog saved by an earlier session and keep it up to date from now on.
+    // Cached topics appear in the tree right away, their values stale until the robot confirms them.
+    public void useCatalog(Path file) {
+        catalogFile = file;
+        try {
+            TopicCatalog.load(file, (topic, timestamp, value) -> {
+                int topicId = registry.idOf(topic);
+                if (value != null && values.getType(topicId) == ValueStore.TYPE_NONE) {
+                    values.set(topicId, timestamp, value);
+                    values.markStale(topicId);
+                }
+                dirtyTopics.add(topic);
+            });
+        } catch (IOException e) {
+            System.out.println("Could not load topic catalog for " + name + ": " + e.getMessage());
+        }
+    }
+
+    // Write known topics and their latest values to the catalog, called when a live session ends
+    public void saveCatalog() {
+        Path file = catalogFile;
+        if (file == null) {
+            return;
+        }
+        synchronized (catalogLock) {
+            try {
+                TopicCatalog.save(file, registry, values);
+            } catch (IOException e) {
+                System.out.println("Could not save topic catalog for " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Play a recorded session directory or a .wpilog file through the same ingestion path as live data
+    public ReplaySource startReplay(Path log, boolean republish) throws IOException {
+        ReplaySource replaySource = new ReplaySource(this, log, republish ? ReplayRepublisher.fromConfig() : null);
+        setSource(replaySource);
+        return replaySource;
+    }
+
+    public synchronized void setSource(TelemetrySource newSource) {
+        if (source != null) {
+            if (source == liveSource) {
+                saveCatalog();
             }
-        );
+            source.stop();
+        }
+        // Coming from nothing to live keeps the cached values for a warm start, anything else starts empty
+        if (source == null && newSource != null && newSource == liveSource) {
+            markAllStale();
+        } else {
+            resetValues();
+        }
+        source = newSource;
+        if (source != null) {
+            source.start();
+            for (Subscription subscription : subscriptions) {
+                source.addSubscription(subscription);
+            }
+        }
+    }
+
+    // Ask the source for values of topics starting with any of the prefixes, at most once per period
+    public synchronized Subscription subscribe(String[] prefixes, double periodSeconds, boolean sendAll) {
+        // Decoded struct fields are not known to the server, their raw topic is streamed instead
+        Subscription subscription = new Subscription(this, structDecoder.resolveSubscriptions(prefixes), periodSeconds, sendAll);
+        subscriptions.add(subscription);
+        if (source != null) {
+            source.addSubscription(subscription);
+        }
+        return subscription;
+    }
+
+    public synchronized void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription) && source != null) {
+            source.removeSubscription(subscription);
+        }
+    }
+
+    public TelemetrySource getSource() {
+        return source;
+    }
+
+    // Topic known to the source, the tree shows it before any value is subscribed
+    public void announceTopic(String topicName) {
+        if (registry.find(topicName) == TopicRegistry.NO_ID) {
+            registry.idOf(topicName);
+            dirtyTopics.add(topicName);
+        }
+    }
+
+    // Topic known to the source with its NT type string, struct topics are bound to their schema
+    public void announceTopic(String topicName, String typeString) {
+        announceTopic(topicName);
+        if (typeString.startsWith(StructDecoder.TYPE_PREFIX)) {
+            structDecoder.onTopicType(registry.idOf(topicName), typeString);
+        }
+    }
+
+    // Entry point for decoded value changes from replay and other non-NT sources, called on the source's thread
+    public void ingestValue(String topicName, Object value, long timestamp) {
+        long receivedNanos = System.nanoTime();
+        int topicId = registry.idOf(topicName);
+        values.set(topicId, timestamp, value);
+        dirtyTopics.add(topicName);
+        ingestMetrics.record(timestamp, receivedNanos);
+        recordSample(topicId, topicName, value, timestamp);
+
+        TelemetryRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            activeRecorder.record(topicName, timestamp, value);
+        }
+        derivedChannels.onInput(topicId, timestamp);
+        if (value instanceof byte[] bytes) {
+            structDecoder.onRaw(topicId, timestamp, bytes);
+        }
     }
 
-    public static void populateMasterTable() {
-        for (String topic : topics) {
+    // Live NT values go straight into their typed column, primitives are only boxed while recording
+    public void ingestValue(int topicId, NetworkTableValue value) {
+        long receivedNanos = System.nanoTime();
+        String topicName = registry.nameOf(topicId);
+        long timestamp = value.getServerTime();
+        Object reference = null;
+        switch (value.getType()) {
+            case kDouble -> {
+                values.setDouble(topicId, timestamp, value.getDouble());
+                recordNumber(topicId, topicName, timestamp, value.getDouble());
+            }
+            case kFloat -> {
+                values.setFloat(topicId, timestamp, value.getFloat());
+                recordNumber(topicId, topicName, timestamp, value.getFloat());
+            }
+            case kInteger -> {
+                values.setInteger(topicId, timestamp, value.getInteger());
+                recordNumber(topicId, topicName, timestamp, value.getInteger());
+            }
+            case kBoolean -> {
+                values.setBoolean(topicId, timestamp, value.getBoolean());
+                recordNumber(topicId, topicName, timestamp, value.getBoolean() ? 1.0 : 0.0);
+            }
+            default -> {
+                reference = decodeNTValue(value);
+                values.setReference(topicId, timestamp, TelemetryLogFormat.typeOf(reference), reference);
+            }
+        }
+        dirtyTopics.add(topicName);
+        ingestMetrics.record(timestamp, receivedNanos);
+
+        TelemetryRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            // Arrays and raw values are shared with the store rather than taken from the NT value twice
+            activeRecorder.record(topicName, timestamp, reference != null ? reference : decodeNTValue(value));
+        }
+        derivedChannels.onInput(topicId, timestamp);
+        if (reference instanceof byte[] bytes) {
+            structDecoder.onRaw(topicId, timestamp, bytes);
+        }
+    }
+
+    // Output of a derived channel or a decoded struct field, stored like a live double so widgets and
+    // the recorder see a normal topic
+    void ingestComputed(int topicId, long timestamp, double value) {
+        String topicName = registry.nameOf(topicId);
+        values.setDouble(topicId, timestamp, value);
+        recordNumber(topicId, topicName, timestamp, value);
+        dirtyTopics.add(topicName);
+
+        TelemetryRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            activeRecorder.record(topicName, timestamp, value);
+        }
+        derivedChannels.onInput(topicId, timestamp);
+    }
+
+    // Forget all values, e.g. when switching sources or seeking a replay. Topics stay in the tree.
+    public void resetValues() {
+        int topicCount = registry.size();
+        for (int topicId = 0; topicId < topicCount; topicId++) {
+            if (values.getType(topicId) != ValueStore.TYPE_NONE) {
+                values.clear(topicId);
+                dirtyTopics.add(registry.nameOf(topicId));
+            }
+        }
+        timeSeries.clear();
+        watchEngine.resetState();
+    }
+
+    // Feed numeric values into the history of tracked topics and the watches on them
+    private void recordNumber(int topicId, String topicName, long timestamp, double value) {
+        timeSeries.record(topicName, timestamp, value);
+        watchEngine.onSample(topicId, timestamp, value);
+    }
+
+    private void recordSample(int topicId, String topicName, Object value, long timestamp) {
+        if (value instanceof Double doubleValue) {
+            recordNumber(topicId, topicName, timestamp, doubleValue);
+        } else if (value instanceof Long longValue) {
+            recordNumber(topicId, topicName, timestamp, longValue);
+        } else if (value instanceof Float floatValue) {
+            recordNumber(topicId, topicName, timestamp, floatValue);
+        } else if (value instanceof Boolean booleanValue) {
+            recordNumber(topicId, topicName, timestamp, booleanValue ? 1.0 : 0.0);
+        }
+    }
+
+    // Full resync of every known topic, only needed if listener events were missed
+    public void populateMasterTable() {
+        int topicCount = registry.size();
+        for (int topicId = 0; topicId < topicCount; topicId++) {
+            String topic = registry.nameOf(topicId);
             NetworkTableEntry entry = ntInst.getEntry(topic);
             if (entry.exists()){
                 NetworkTableValue value = entry.getValue();
-                Object decodedValue = decodeNTValue(value);
-                masterTable.put(topic, decodedValue);
+                values.set(topicId, value.getServerTime(), decodeNTValue(value));
+                dirtyTopics.add(topic);
             }
         }
     }
 
-    public static Object getValue(String topic) {
-        Object valueObject = masterTable.get(topic);
-        return valueObject;
+    // Move every topic changed since the last call into sink, returns the number drained
+    public int drainDirtyTopics(Collection<String> sink) {
+        int drained = 0;
+        Iterator<String> iterator = dirtyTopics.iterator();
+        while (iterator.hasNext()) {
+            sink.add(iterator.next());
+            iterator.remove();
+            drained++;
+        }
+        return drained;
     }
 
-    public static Map<String, Object> getMasterTable() {
-        return masterTable;
+    // Boxed latest value for display, null if the topic has no value
+    public Object getValue(String topic) {
+        int topicId = registry.find(topic);
+        return topicId == TopicRegistry.NO_ID ? null : values.get(topicId);
     }
 
-    public static void publishValue(String topicType, String topicName, Object newValue) {
+    // Server time of the topic's latest value, 0 if it has none
+    public long getTimestamp(String topic) {
+        int topicId = registry.find(topic);
+        return topicId == TopicRegistry.NO_ID ? 0 : values.getTimestamp(topicId);
+    }
 
-        GenericPublisher publisher = publisherCache.computeIfAbsent(topicName, key -> {
-            Topic topic = ntInst.getTopic(topicName);
-            return topic.genericPublish(topicType);
-        });
+    // Resolve once and keep, reading through the handle skips the name lookup and boxing
+    public TopicHandle getHandle(String topic) {
+        return values.handle(registry.idOf(topic));
+    }
+
+    public TopicRegistry getRegistry() {
+        return registry;
+    }
+
+    public ValueStore getValueStore() {
+        return values;
+    }
+
+    public DerivedChannels getDerivedChannels() {
+        return derivedChannels;
+    }
 
-        NetworkTableValue ntValue = creatNetworkTableValue(topicType, newValue);
+    public WatchEngine getWatchEngine() {
+        return watchEngine;
+    }
 
-        if (ntValue != null) {
-            if (!ntValue.equals(masterTable.get(topicName))) {
-                publisher.set(ntValue);
+    public TimeSeriesStore getTimeSeriesStore() {
+        return timeSeries;
+    }
+
+    public IngestMetrics getIngestMetrics() {
+        return ingestMetrics;
+    }
+
+    // Values stay visible but count as unconfirmed until the source sends them again
+    public void markAllStale() {
+        int topicCount = registry.size();
+        for (int topicId = 0; topicId < topicCount; topicId++) {
+            if (values.getType(topicId) != ValueStore.TYPE_NONE) {
+                values.markStale(topicId);
+                dirtyTopics.add(registry.nameOf(topicId));
+            }
+        }
+    }
+
+    public boolean isStale(String topic) {
+        int topicId = registry.find(topic);
+        return topicId != TopicRegistry.NO_ID && values.isStale(topicId);
+    }
+
+    // Mark every known topic changed, e.g. when a tree starts showing this connection
+    public void markAllDirty() {
+        int topicCount = registry.size();
+        for (int topicId = 0; topicId < topicCount; topicId++) {
+            dirtyTopics.add(registry.nameOf(topicId));
+        }
+    }
+
+    // Queue a write to the robot, written by flushPublishes at the end of the frame
+    public void publishValue(String topicType, String topicName, Object newValue) {
+        publishPipeline.publishValue(topicType, topicName, newValue);
+    }
+
+    public PublishPipeline getPublishPipeline() {
+        return publishPipeline;
+    }
+
+    // Write the newest queued value of every topic, called once per frame
+    public void flushPublishes() {
+        publishPipeline.flush();
+    }
+
+    // Start appending every value change to a new session directory, seeded with the current table
+    public synchronized void startRecording(Path sessionDirectory) throws IOException {
+        if (recorder != null) {
+            return;
+        }
+        TelemetryRecorder newRecorder = new TelemetryRecorder(sessionDirectory);
+        long now = getServerTime();
+        int topicCount = registry.size();
+        for (int topicId = 0; topicId < topicCount; topicId++) {
+            Object value = values.get(topicId);
+            if (value != null) {
+                newRecorder.record(registry.nameOf(topicId), now, value);
             }
         }
+        recorder = newRecorder;
+        recordingSubscription = subscribe(new String[] {""}, 0.01, true);
+    }
 
+    public synchronized void stopRecording() {
+        if (recordingSubscription != null) {
+            recordingSubscription.close();
+            recordingSubscription = null;
+        }
+        if (recorder != null) {
+            TelemetryRecorder stoppedRecorder = recorder;
+            recorder = null;
+            stoppedRecorder.close();
+        }
+    }
+
+    // A recorder whose writer failed is stopped here, so the UI stops showing it as recording
+    public boolean isRecording() {
+        TelemetryRecorder current = recorder;
+        if (current != null && current.hasFailed()) {
+            stopRecording();
+            return false;
+        }
+        return current != null;
     }
 
-    public static boolean isConnected() {
-        return ntInst.isConnected();
+    // Current time of the active source in microseconds, same timebase as ingested values
+    public long getServerTime() {
+        TelemetrySource activeSource = source;
+        return activeSource != null ? activeSource.getTime() : NetworkTablesJNI.now();
     }
 
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    public boolean isConnected() {
+        TelemetrySource activeSource = source;
+        return activeSource != null && activeSource.isConnected();
+    }
+
+    // Boxed value of an NT value, null when it has no value
     public static Object decodeNTValue(NetworkTableValue ntValue){
 
         if (ntValue == null) {
-            return "null";
+            return null;
         }
 
         switch (ntValue.getType()) {
             case kBoolean: return ntValue.getBoolean();
             case kDouble: return ntValue.getDouble();
+            case kInteger: return ntValue.getInteger();
+            case kFloat: return ntValue.getFloat();
             case kString: return ntValue.getString();
             case kBooleanArray: return ntValue.getBooleanArray();
             case kDoubleArray: return ntValue.getDoubleArray();
+            case kIntegerArray: return ntValue.getIntegerArray();
+            case kFloatArray: return ntValue.getFloatArray();
             case kStringArray: return ntValue.getStringArray();
             case kRaw: return ntValue.getRaw();
-            case kUnassigned: return "Unassigned value";
-            default: return "Unknown type: " + ntValue.getType();
+            default: return null;
         }
     }
-
-    private static NetworkTableValue creatNetworkTableValue(String topicType, Object newValue) {
-        NetworkTableValue ntValue = switch (topicType) {
-            case "string" -> NetworkTableValue.makeString((String) newValue);
-            case "int"    -> NetworkTableValue.makeInteger((Integer) newValue);
-            case "double" -> NetworkTableValue.makeDouble((Double) newValue);
-            case "boolean" -> NetworkTableValue.makeBoolean((Boolean) newValue);
-            default -> {
-                System.out.println("Unsupported topic type: " + topicType);
-                yield null;
-            }
-        };
-        return ntValue;
-    }
 }
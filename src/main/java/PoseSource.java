@@ -0,0 +1,260 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Robot pose read from a configurable NT topic into primitive fields.
+// Supports Field2d style double[] topics, WPILib Pose2d struct raw topics and, as a fallback,
+// "(x, y)" strings with the heading on a separate topic. Values are only parsed when the
+// topic's value object changes, and parsing does not allocate.
+public class PoseSource {
+
+    public enum Format { STRING, ARRAY, STRUCT }
+
+    // Pose2d struct: x (double), y (double), rotation (double radians), little-endian
+    private static final int POSE2D_STRUCT_SIZE = 24;
+
+    // Field view updates at up to 50Hz
+    private static final double SUBSCRIPTION_PERIOD = 0.02;
+
+    private final String name;
+    private final String topic;
+    private final String rotationTopic;
+    private final Format format;
+    private final double scale;
+    private final boolean ghost;
+    private final Subscription subscription;
+    private final TopicHandle handle;
+    private final TopicHandle rotationHandle;
+
+    // Latest pose in field view units and degrees
+    private double x;
+    private double y;
+    private double headingDegrees;
+    private boolean valid = false;
+
+    private long lastSequence = -1;
+    private long lastRotationSequence = -1;
+
+    public PoseSource(NetworkTableManager connection, String name, String topic, Format format, String rotationTopic, double scale, boolean ghost) {
+        this.name = name;
+        this.topic = topic;
+        this.format = format;
+        this.rotationTopic = rotationTopic;
+        this.scale = scale;
+        this.ghost = ghost;
+
+        String[] poseTopics = rotationTopic == null ? new String[] {topic} : new String[] {topic, rotationTopic};
+        this.subscription = connection.subscribe(poseTopics, SUBSCRIPTION_PERIOD, false);
+        this.handle = connection.getHandle(topic);
+        this.rotationHandle = rotationTopic == null ? null : connection.getHandle(rotationTopic);
+    }
+
+    public void close() {
+        subscription.close();
+    }
+
+    // All sources listed in pose.sources, each reads from pose.<name>.connection or the first connection
+    public static List<PoseSource> fromConfig() {
+        List<PoseSource> sources = new ArrayList<>();
+        for (String sourceName : DashboardConfig.getList("pose.sources")) {
+            String prefix = "pose." + sourceName + ".";
+            String topic = DashboardConfig.getString(prefix + "topic", null);
+            if (topic == null) {
+                System.out.println("Pose source " + sourceName + " has no topic");
+                continue;
+            }
+            String connectionName = DashboardConfig.getString(prefix + "connection", null);
+            NetworkTableManager connection = connectionName == null
+                ? NetworkTableManager.getConnections().get(0)
+                : NetworkTableManager.getConnection(connectionName);
+            if (connection == null) {
+                System.out.println("Pose source " + sourceName + " uses unknown connection " + connectionName);
+                continue;
+            }
+            Format format;
+            try {
+                format = Format.valueOf(DashboardConfig.getString(prefix + "format", "array").toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Unknown pose format for " + sourceName + ", using array");
+                format = Format.ARRAY;
+            }
+            sources.add(new PoseSource(connection, sourceName, topic, format,
+                DashboardConfig.getString(prefix + "rotationTopic", null),
+                DashboardConfig.getDouble(prefix + "scale", 1.0),
+                Boolean.parseBoolean(DashboardConfig.getString(prefix + "ghost", "false"))));
+        }
+        return sources;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Ghost poses (e.g. a vision estimate) are drawn as translucent outlines
+    public boolean isGhost() {
+        return ghost;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getHeadingDegrees() {
+        return headingDegrees;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    // Re-read the pose topics if their sequence changed, returns true if a new valid pose was read
+    public boolean update() {
+        long sequence = handle.getSequence();
+        long rotationSequence = rotationHandle == null ? 0 : rotationHandle.getSequence();
+        if (sequence == lastSequence && rotationSequence == lastRotationSequence) {
+            return false;
+        }
+        lastSequence = sequence;
+        lastRotationSequence = rotationSequence;
+
+        Object value = handle.getReference();
+        valid = switch (format) {
+            case ARRAY -> readArray(value);
+            case STRUCT -> readStruct(value);
+            case STRING -> readString(value, rotationHandle == null ? Double.NaN : rotationHandle.getDouble(Double.NaN));
+        };
+        return valid;
+    }
+
+    private boolean readArray(Object value) {
+        if (!(value instanceof double[] pose) || pose.length < 3) {
+            return false;
+        }
+        x = pose[0] * scale;
+        y = pose[1] * scale;
+        headingDegrees = pose[2];
+        return true;
+    }
+
+    private boolean readStruct(Object value) {
+        if (!(value instanceof byte[] raw) || raw.length < POSE2D_STRUCT_SIZE) {
+            return false;
+        }
+        x = readLittleEndianDouble(raw, 0) * scale;
+        y = readLittleEndianDouble(raw, 8) * scale;
+        headingDegrees = Math.toDegrees(readLittleEndianDouble(raw, 16));
+        return true;
+    }
+
+    private boolean readString(Object value, double rotation) {
+        if (!(value instanceof String position) || Double.isNaN(rotation)) {
+            return false;
+        }
+
+        // "(x, y)": find the two numbers between the separators without regex or split
+        int start = skipSeparators(position, 0);
+        int end = numberEnd(position, start);
+        int secondStart = skipSeparators(position, end);
+        int secondEnd = numberEnd(position, secondStart);
+        if (start == end || secondStart == secondEnd) {
+            return false;
+        }
+
+        double parsedX = parseDouble(position, start, end);
+        double parsedY = parseDouble(position, secondStart, secondEnd);
+        if (Double.isNaN(parsedX) || Double.isNaN(parsedY)) {
+            return false;
+        }
+        x = parsedX * scale;
+        y = parsedY * scale;
+        headingDegrees = rotation;
+        return true;
+    }
+
+    private static double readLittleEndianDouble(byte[] bytes, int offset) {
+        long bits = 0;
+        for (int i = 7; i >= 0; i--) {
+            bits = (bits << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static int skipSeparators(String text, int index) {
+        while (index < text.length()) {
+            char c = text.charAt(index);
+            if (c != '(' && c != ')' && c != ',' && !Character.isWhitespace(c)) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    private static int numberEnd(String text, int index) {
+        while (index < text.length()) {
+            char c = text.charAt(index);
+            if (c == ')' || c == ',' || Character.isWhitespace(c)) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    // Plain decimal parser for [-+]digits[.digits][e[-+]digits], NaN if the text is anything else
+    static double parseDouble(CharSequence text, int start, int end) {
+        int index = start;
+        boolean negative = false;
+        if (index < end && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+            negative = text.charAt(index) == '-';
+            index++;
+        }
+
+        double result = 0.0;
+        int digits = 0;
+        while (index < end && Character.isDigit(text.charAt(index))) {
+            result = result * 10.0 + (text.charAt(index) - '0');
+            index++;
+            digits++;
+        }
+        if (index < end && text.charAt(index) == '.') {
+            index++;
+            double place = 0.1;
+            while (index < end && Character.isDigit(text.charAt(index))) {
+                result += (text.charAt(index) - '0') * place;
+                place *= 0.1;
+                index++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (index < end && (text.charAt(index) == 'e' || text.charAt(index) == 'E')) {
+            index++;
+            boolean negativeExponent = false;
+            if (index < end && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+                negativeExponent = text.charAt(index) == '-';
+                index++;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            while (index < end && Character.isDigit(text.charAt(index))) {
+                exponent = exponent * 10 + (text.charAt(index) - '0');
+                index++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            result *= Math.pow(10, negativeExponent ? -exponent : exponent);
+        }
+        if (index != end) {
+            return Double.NaN;
+        }
+        return negative ? -result : result;
+    }
+}
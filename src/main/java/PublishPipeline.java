@@ -0,0 +1,222 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import edu.wpi.first.networktables.GenericPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+// Dashboard to robot writes.
+// Publish calls only store the newest value per topic; flush() runs once per frame and writes each
+// pending value through a cached typed publisher, skipping values equal to the last one written
+// and holding back topics that were written more recently than their rate limit allows.
+public class PublishPipeline {
+
+    // Type strings accepted by publishValue, same names NT4 uses
+    public static final String TYPE_BOOLEAN = "boolean";
+    public static final String TYPE_DOUBLE = "double";
+    public static final String TYPE_INTEGER = "int";
+    public static final String TYPE_FLOAT = "float";
+    public static final String TYPE_STRING = "string";
+    public static final String TYPE_RAW = "raw";
+    public static final String TYPE_BOOLEAN_ARRAY = "boolean[]";
+    public static final String TYPE_DOUBLE_ARRAY = "double[]";
+    public static final String TYPE_INTEGER_ARRAY = "int[]";
+    public static final String TYPE_FLOAT_ARRAY = "float[]";
+    public static final String TYPE_STRING_ARRAY = "string[]";
+
+    private static final class TopicState {
+        final String topicName;
+        final String typeString;
+        GenericPublisher publisher;
+        long minIntervalNanos;
+        long lastWriteNanos;
+
+        // Last value written to NT, primitives are kept unboxed
+        boolean hasWritten = false;
+        double writtenNumber;
+        long writtenInteger;
+        boolean writtenBoolean;
+        Object writtenObject;
+
+        // Newest value submitted since the last write
+        boolean pending = false;
+        double pendingNumber;
+        long pendingInteger;
+        boolean pendingBoolean;
+        Object pendingObject;
+
+        TopicState(String topicName, String typeString, long minIntervalNanos) {
+            this.topicName = topicName;
+            this.typeString = typeString;
+            this.minIntervalNanos = minIntervalNanos;
+        }
+    }
+
+    private final NetworkTableInstance ntInst;
+    private final Map<String, TopicState> topics = new ConcurrentHashMap<>();
+    private final long defaultMinIntervalNanos;
+
+    public PublishPipeline(NetworkTableInstance ntInst) {
+        this.ntInst = ntInst;
+        double maxRateHz = DashboardConfig.getDouble("publish.maxRateHz", 50.0);
+        this.defaultMinIntervalNanos = maxRateHz > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRateHz) : 0;
+    }
+
+    // Limit how often a topic is written, 0 removes the limit
+    public void setRateLimit(String topicName, String typeString, double maxRateHz) {
+        TopicState state = stateFor(topicName, typeString);
+        synchronized (state) {
+            state.minIntervalNanos = maxRateHz > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRateHz) : 0;
+        }
+    }
+
+    public void publishDouble(String topicName, double value) {
+        submitNumber(stateFor(topicName, TYPE_DOUBLE), value);
+    }
+
+    public void publishInteger(String topicName, long value) {
+        TopicState state = stateFor(topicName, TYPE_INTEGER);
+        synchronized (state) {
+            state.pendingInteger = value;
+            state.pending = true;
+        }
+    }
+
+    public void publishFloat(String topicName, float value) {
+        submitNumber(stateFor(topicName, TYPE_FLOAT), value);
+    }
+
+    public void publishBoolean(String topicName, boolean value) {
+        TopicState state = stateFor(topicName, TYPE_BOOLEAN);
+        synchronized (state) {
+            state.pendingBoolean = value;
+            state.pending = true;
+        }
+    }
+
+    // Strings, raw bytes and arrays. Arrays are compared by content, so callers must not
+    // modify an array after publishing it.
+    public void publishObject(String topicName, String typeString, Object value) {
+        if (value == null) {
+            return;
+        }
+        TopicState state = stateFor(topicName, typeString);
+        synchronized (state) {
+            state.pendingObject = value;
+            state.pending = true;
+        }
+    }
+
+    // Untyped entry point, dispatches on the NT type string
+    public void publishValue(String typeString, String topicName, Object value) {
+        switch (typeString) {
+            case TYPE_DOUBLE -> publishDouble(topicName, ((Number) value).doubleValue());
+            case TYPE_INTEGER -> publishInteger(topicName, ((Number) value).longValue());
+            case TYPE_FLOAT -> publishFloat(topicName, ((Number) value).floatValue());
+            case TYPE_BOOLEAN -> publishBoolean(topicName, (Boolean) value);
+            case TYPE_STRING, TYPE_RAW, TYPE_BOOLEAN_ARRAY, TYPE_DOUBLE_ARRAY, TYPE_INTEGER_ARRAY,
+                 TYPE_FLOAT_ARRAY, TYPE_STRING_ARRAY -> publishObject(topicName, typeString, value);
+            default -> System.out.println("Unsupported topic type: " + typeString);
+        }
+    }
+
+    // Write at most one value per topic, called once per frame
+    public void flush() {
+        long now = System.nanoTime();
+        for (TopicState state : topics.values()) {
+            synchronized (state) {
+                if (!state.pending || now - state.lastWriteNanos < state.minIntervalNanos) {
+                    continue;
+                }
+                state.pending = false;
+                if (state.hasWritten && pendingEqualsWritten(state)) {
+                    continue;
+                }
+                write(state);
+                state.lastWriteNanos = now;
+            }
+        }
+    }
+
+    public void close() {
+        for (TopicState state : topics.values()) {
+            synchronized (state) {
+                if (state.publisher != null) {
+                    state.publisher.close();
+                    state.publisher = null;
+                }
+            }
+        }
+        topics.clear();
+    }
+
+    private TopicState stateFor(String topicName, String typeString) {
+        TopicState state = topics.computeIfAbsent(topicName, key -> new TopicState(key, typeString, defaultMinIntervalNanos));
+        if (!state.typeString.equals(typeString)) {
+            throw new IllegalArgumentException("Topic " + topicName + " is published as " + state.typeString + ", not " + typeString);
+        }
+        return state;
+    }
+
+    private static void submitNumber(TopicState state, double value) {
+        synchronized (state) {
+            state.pendingNumber = value;
+            state.pending = true;
+        }
+    }
+
+    private static boolean pendingEqualsWritten(TopicState state) {
+        switch (state.typeString) {
+            case TYPE_DOUBLE:
+            case TYPE_FLOAT:
+                return Double.compare(state.pendingNumber, state.writtenNumber) == 0;
+            case TYPE_INTEGER:
+                return state.pendingInteger == state.writtenInteger;
+            case TYPE_BOOLEAN:
+                return state.pendingBoolean == state.writtenBoolean;
+            case TYPE_RAW:
+                return Arrays.equals((byte[]) state.pendingObject, (byte[]) state.writtenObject);
+            case TYPE_BOOLEAN_ARRAY:
+                return Arrays.equals((boolean[]) state.pendingObject, (boolean[]) state.writtenObject);
+            case TYPE_DOUBLE_ARRAY:
+                return Arrays.equals((double[]) state.pendingObject, (double[]) state.writtenObject);
+            case TYPE_INTEGER_ARRAY:
+                return Arrays.equals((long[]) state.pendingObject, (long[]) state.writtenObject);
+            case TYPE_FLOAT_ARRAY:
+                return Arrays.equals((float[]) state.pendingObject, (float[]) state.writtenObject);
+            case TYPE_STRING_ARRAY:
+                return Arrays.equals((String[]) state.pendingObject, (String[]) state.writtenObject);
+            default:
+                return state.pendingObject.equals(state.writtenObject);
+        }
+    }
+
+    private void write(TopicState state) {
+        if (state.publisher == null) {
+            state.publisher = ntInst.getTopic(state.topicName).genericPublish(state.typeString);
+        }
+        GenericPublisher publisher = state.publisher;
+
+        switch (state.typeString) {
+            case TYPE_DOUBLE -> publisher.setDouble(state.pendingNumber);
+            case TYPE_INTEGER -> publisher.setInteger(state.pendingInteger);
+            case TYPE_FLOAT -> publisher.setFloat((float) state.pendingNumber);
+            case TYPE_BOOLEAN -> publisher.setBoolean(state.pendingBoolean);
+            case TYPE_STRING -> publisher.setString((String) state.pendingObject);
+            case TYPE_RAW -> publisher.setRaw((byte[]) state.pendingObject);
+            case TYPE_BOOLEAN_ARRAY -> publisher.setBooleanArray((boolean[]) state.pendingObject);
+            case TYPE_DOUBLE_ARRAY -> publisher.setDoubleArray((double[]) state.pendingObject);
+            case TYPE_INTEGER_ARRAY -> publisher.setIntegerArray((long[]) state.pendingObject);
+            case TYPE_FLOAT_ARRAY -> publisher.setFloatArray((float[]) state.pendingObject);
+            case TYPE_STRING_ARRAY -> publisher.setStringArray((String[]) state.pendingObject);
+            default -> { }
+        }
+
+        state.hasWritten = true;
+        state.writtenNumber = state.pendingNumber;
+        state.writtenInteger = state.pendingInteger;
+        state.writtenBoolean = state.pendingBoolean;
+        state.writtenObject = state.pendingObject;
+    }
+}
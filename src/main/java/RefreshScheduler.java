@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+
+// Runs each dashboard widget at its own rate from the frame loop.
+// A widget declares a target rate, a floor and a cost budget per refresh. Every frame the widgets
+// that are due run on the FX thread and their cost is measured. A few times a second the rates
+// are adapted:
+//   a widget over its own budget is slowed down,
+//   while frames take longer than the frame budget the widget spending the most time per second
+//   is slowed down, one at a time so cheap widgets keep their rate,
+//   while frames are well within budget slowed widgets speed back up towards their target.
+// Target rates can be overridden with refresh.<name>.hz in the config. Not thread safe, it is only
+// used on the JavaFX thread.
+public final class RefreshScheduler {
+
+    private static final long ADAPT_INTERVAL_NANOS = 250_000_000L;
+    private static final double DECREASE = 0.7;
+    private static final double INCREASE = 1.25;
+    // Frames below this share of the budget leave room to speed up
+    private static final double HEADROOM = 0.5;
+    // Weight of the newest sample in the cost and frame time averages
+    private static final double SMOOTHING = 0.2;
+
+    public static final class Widget {
+        private final String name;
+        private final double targetHz;
+        private final double minHz;
+        private final long budgetNanos;
+        private final LongConsumer task;
+
+        private double currentHz;
+        private long nextDueNanos = 0;
+        private double averageCostNanos = 0;
+        private long intervalRuns = 0;
+        private double effectiveHz = 0;
+
+        Widget(String name, double targetHz, double minHz, long budgetNanos, LongConsumer task) {
+            this.name = name;
+            this.targetHz = targetHz;
+            this.minHz = Math.min(minHz, targetHz);
+            this.budgetNanos = budgetNanos;
+            this.task = task;
+            this.currentHz = targetHz;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getTargetHz() {
+            return targetHz;
+        }
+
+        // Refreshes per second in the last metrics interval
+        public double getEffectiveHz() {
+            return effectiveHz;
+        }
+
+        private long periodNanos() {
+            return (long) (1_000_000_000L / currentHz);
+        }
+
+        private void slowDown() {
+            currentHz = Math.max(minHz, currentHz * DECREASE);
+        }
+    }
+
+    private final long frameBudgetNanos;
+    private final List<Widget> widgets = new ArrayList<>();
+
+    private double averageFrameNanos = 0;
+    private long lastAdaptNanos = 0;
+
+    public RefreshScheduler(double frameBudgetMillis) {
+        this.frameBudgetNanos = (long) (frameBudgetMillis * 1_000_000);
+    }
+
+    public List<Widget> getWidgets() {
+        return widgets;
+    }
+
+    // Add a widget refreshed with the frame time, widgets due in the same frame run in this order
+    public Widget register(String name, double targetHz, double minHz, double budgetMillis, LongConsumer task) {
+        double configuredHz = DashboardConfig.getDouble("refresh." + name + ".hz", targetHz);
+        Widget widget = new Widget(name, configuredHz, minHz, (long) (budgetMillis * 1_000_000), task);
+        widgets.add(widget);
+        return widget;
+    }
+
+    // Run the widgets that are due at this frame time
+    public void runFrame(long now) {
+        for (Widget widget : widgets) {
+            if (now < widget.nextDueNanos) {
+                continue;
+            }
+            // Keep the phase so a rate between two frame rates averages out, but do not catch up after a stall
+            long period = widget.periodNanos();
+            widget.nextDueNanos += period;
+            if (widget.nextDueNanos < now) {
+                widget.nextDueNanos = now + period;
+            }
+
+            long start = System.nanoTime();
+            widget.task.accept(now);
+            long cost = System.nanoTime() - start;
+            widget.averageCostNanos += SMOOTHING * (cost - widget.averageCostNanos);
+            widget.intervalRuns++;
+        }
+    }
+
+    // Called after every frame with the frame's duration
+    public void recordFrame(long now, long frameNanos) {
+        averageFrameNanos += SMOOTHING * (frameNanos - averageFrameNanos);
+        if (now - lastAdaptNanos < ADAPT_INTERVAL_NANOS) {
+            return;
+        }
+        lastAdaptNanos = now;
+
+        for (Widget widget : widgets) {
+            if (widget.averageCostNanos > widget.budgetNanos) {
+                widget.slowDown();
+            }
+        }
+
+        if (averageFrameNanos > frameBudgetNanos) {
+            Widget heaviest = null;
+            for (Widget widget : widgets) {
+                if (widget.currentHz > widget.minHz
+                    && (heaviest == null || widget.averageCostNanos * widget.currentHz > heaviest.averageCostNanos * heaviest.currentHz)) {
+                    heaviest = widget;
+                }
+            }
+            if (heaviest != null) {
+                heaviest.slowDown();
+            }
+        } else if (averageFrameNanos < frameBudgetNanos * HEADROOM) {
+            for (Widget widget : widgets) {
+                if (widget.currentHz < widget.targetHz && widget.averageCostNanos <= widget.budgetNanos) {
+                    widget.currentHz = Math.min(widget.targetHz, widget.currentHz * INCREASE);
+                }
+            }
+        }
+    }
+
+    // Called by Metrics once per interval
+    void updateEffectiveRates(long elapsedNanos) {
+        for (Widget widget : widgets) {
+            widget.effectiveHz = widget.intervalRuns * 1e9 / elapsedNanos;
+            widget.intervalRuns = 0;
+        }
+    }
+
+    // e.g. "field 50/50Hz charts 14/20Hz", effective and target rate of every widget
+    public String formatRates() {
+        StringBuilder rates = new StringBuilder();
+        for (Widget widget : widgets) {
+            if (rates.length() > 0) {
+                rates.append(' ');
+            }
+            rates.append(String.format(Locale.ROOT, "%s %.0f/%.0fHz", widget.name, widget.effectiveHz, widget.targetHz));
+        }
+        return rates.toString();
+    }
+}
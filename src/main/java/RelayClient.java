@@ -0,0 +1,223 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Headless viewer of a RelayServer, for checking a relay and measuring its bandwidth without a second
+// dashboard. Keeps the latest value of every relayed topic and prints what it received every report
+// period, plus the values of the topics starting with --topic if given.
+//
+// mvn compile exec:java -Dexec.mainClass=RelayClient -Dexec.args="--host 10.0.0.5 --port 5811"
+public class RelayClient implements RelayFormat.Listener {
+
+    private static final class Options {
+        String host = "localhost";
+        int port = 5811;
+        double reportSeconds = 5;
+        // 0 runs until interrupted
+        double durationSeconds = 0;
+        String topic = null;
+    }
+
+    // Topic names and latest values by the relay's topic ids, guarded by the client's lock like the counters
+    private final List<String> names = new ArrayList<>();
+    private final Map<Integer, Object> values = new HashMap<>();
+    private final Map<Integer, Long> timestamps = new HashMap<>();
+
+    // Counters since the last report
+    private long messages = 0;
+    private long keyframes = 0;
+    private long valueCount = 0;
+    private long bytes = 0;
+
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options = parseArgs(args);
+        if (options == null) {
+            printUsage();
+            return;
+        }
+
+        RelayClient client = new RelayClient();
+        URI uri = URI.create("ws://" + options.host + ":" + options.port + "/");
+        WebSocket webSocket;
+        try {
+            webSocket = HttpClient.newHttpClient().newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .buildAsync(uri, client.new Receiver()).join();
+        } catch (RuntimeException e) {
+            System.out.println("Could not connect to relay at " + uri + ": " + e.getCause());
+            return;
+        }
+        System.out.println("Connected to relay at " + uri);
+        // Ctrl+C tells the relay this viewer left instead of leaving it to notice the dropped socket
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (!webSocket.isOutputClosed()) {
+                webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+            }
+        }, "Relay Client Shutdown"));
+
+        long startNanos = System.nanoTime();
+        long endNanos = options.durationSeconds > 0 ? startNanos + (long) (options.durationSeconds * 1e9) : Long.MAX_VALUE;
+        long reportNanos = (long) (options.reportSeconds * 1e9);
+        while (System.nanoTime() < endNanos) {
+            long waitNanos = Math.min(reportNanos, endNanos - System.nanoTime());
+            if (client.closed.await(waitNanos, TimeUnit.NANOSECONDS)) {
+                System.out.println("Relay closed the connection");
+                break;
+            }
+            client.report((System.nanoTime() - startNanos) / 1e9, Math.min(reportNanos, waitNanos) / 1e9, options.topic);
+        }
+        if (!webSocket.isOutputClosed()) {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+        }
+    }
+
+    private synchronized void report(double elapsedSeconds, double periodSeconds, String topic) {
+        System.out.printf("%6.0fs  topics %d  values %d  %5.1f msgs/s  %8.0f values/s  keyframes %d  %7.1f KB/s%n",
+            elapsedSeconds, names.size(), values.size(), messages / periodSeconds, valueCount / periodSeconds,
+            keyframes, bytes / 1024.0 / periodSeconds);
+        if (topic != null) {
+            for (int id = 0; id < names.size(); id++) {
+                if (names.get(id) != null && names.get(id).startsWith(topic)) {
+                    System.out.println("    " + names.get(id) + " = " + format(values.get(id)) + " @ " + timestamps.get(id));
+                }
+            }
+        }
+        messages = 0;
+        keyframes = 0;
+        valueCount = 0;
+        bytes = 0;
+    }
+
+    private static String format(Object value) {
+        if (value instanceof double[] array) {
+            return Arrays.toString(array);
+        } else if (value instanceof long[] array) {
+            return Arrays.toString(array);
+        } else if (value instanceof float[] array) {
+            return Arrays.toString(array);
+        } else if (value instanceof boolean[] array) {
+            return Arrays.toString(array);
+        } else if (value instanceof String[] array) {
+            return Arrays.toString(array);
+        } else if (value instanceof byte[] array) {
+            return array.length + " bytes";
+        }
+        return String.valueOf(value);
+    }
+
+    @Override
+    public void reset() {
+        names.clear();
+        values.clear();
+        timestamps.clear();
+        keyframes++;
+    }
+
+    @Override
+    public void topic(int id, String name) {
+        while (names.size() <= id) {
+            names.add(null);
+        }
+        names.set(id, name);
+    }
+
+    @Override
+    public void value(int id, long timestamp, Object value) {
+        if (value == null) {
+            values.remove(id);
+            timestamps.remove(id);
+        } else {
+            values.put(id, value);
+            timestamps.put(id, timestamp);
+        }
+        valueCount++;
+    }
+
+    // Collects the fragments of each binary message and decodes it once it is complete
+    private final class Receiver implements WebSocket.Listener {
+        private ByteBuffer message = ByteBuffer.allocate(65536);
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            if (message.remaining() < data.remaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(message.capacity() * 2, message.position() + data.remaining()));
+                message.flip();
+                grown.put(message);
+                message = grown;
+            }
+            message.put(data);
+            if (last) {
+                message.flip();
+                synchronized (RelayClient.this) {
+                    bytes += message.remaining();
+                    messages++;
+                    try {
+                        RelayFormat.read(message, RelayClient.this);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid relay message: " + e.getMessage());
+                    }
+                }
+                message.clear();
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closed.countDown();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            System.out.println("Relay connection failed: " + error);
+            closed.countDown();
+        }
+    }
+
+    private static Options parseArgs(String[] args) {
+        Options options = new Options();
+        if (args.length % 2 != 0) {
+            return null;
+        }
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--host" -> options.host = value;
+                    case "--port" -> options.port = Integer.parseInt(value);
+                    case "--report" -> options.reportSeconds = Double.parseDouble(value);
+                    case "--duration" -> options.durationSeconds = Double.parseDouble(value);
+                    case "--topic" -> options.topic = value;
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (options.port <= 0 || options.reportSeconds <= 0) {
+            return null;
+        }
+        return options;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: RelayClient [--host H] [--port P] [--report S] [--duration S] [--topic PREFIX]");
+    }
+}
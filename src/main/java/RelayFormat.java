@@ -0,0 +1,313 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Binary messages RelayServer sends to its viewers, one per WebSocket binary message.
+//
+// Message: kind (byte), base time in microseconds (varint), first new topic id (varint),
+//          new topic count (varint) and their names, value count (varint) and the values
+// Value:   id gap (varint), type tag (byte), time offset from the base (zigzag varint), payload
+//
+// A KEYFRAME replaces everything the viewer knows: it names every topic from id 0 and holds every
+// current value. A DELTA names the topics added since the previous message and holds the values
+// that changed. Ids are the relaying connection's topic ids, values are sorted by id and each id
+// is stored as the gap to the previous one, so a frame of changes costs a byte or two per id.
+// Type tags are the TelemetryLogFormat ones, TYPE_NONE clears a value. Payloads are as small as
+// their type allows: integers and lengths are varints, booleans one byte, boolean arrays bits.
+// Numbers are little-endian, strings a varint byte length followed by UTF-8 bytes.
+public final class RelayFormat {
+
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+
+    private RelayFormat() {}
+
+    // What a viewer is told, called in message order
+    public interface Listener {
+        // Start of a keyframe, forget every topic and value
+        void reset();
+
+        void topic(int id, String name);
+
+        // value is null when the topic's value was cleared
+        void value(int id, long timestamp, Object value);
+    }
+
+    // Growable message buffer, reused for every message
+    public static final class Writer {
+        private byte[] bytes = new byte[4096];
+        private int size = 0;
+        private int valueCountPosition;
+        private int valueCount;
+        private int previousId;
+        private long baseTime;
+
+        public void begin(byte kind, long baseTime, int firstNewId, String[] newNames, int newNameCount) {
+            size = 0;
+            this.baseTime = baseTime;
+            writeByte(kind);
+            writeVarint(baseTime);
+            writeVarint(firstNewId);
+            writeVarint(newNameCount);
+            for (int i = 0; i < newNameCount; i++) {
+                writeString(newNames[i]);
+            }
+            // The count is patched in by finish, five bytes are always enough for an int
+            ensure(5);
+            valueCountPosition = size;
+            size += 5;
+            valueCount = 0;
+            previousId = -1;
+        }
+
+        // Ids must be written in ascending order
+        public void writeValue(int id, byte type, long timestamp, Object value) {
+            writeVarint(id - previousId - 1);
+            previousId = id;
+            writeByte(type);
+            writeVarint(zigzag(timestamp - baseTime));
+            writePayload(type, value);
+            valueCount++;
+        }
+
+        public int getValueCount() {
+            return valueCount;
+        }
+
+        // The finished message, a copy so it can be queued while the writer is reused
+        public byte[] finish() {
+            int position = valueCountPosition;
+            long count = valueCount;
+            // Padded varint, continuation bits on the first four bytes
+            for (int i = 0; i < 4; i++) {
+                bytes[position++] = (byte) ((count & 0x7F) | 0x80);
+                count >>>= 7;
+            }
+            bytes[position] = (byte) count;
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void writePayload(byte type, Object value) {
+            switch (type) {
+                case ValueStore.TYPE_NONE -> { }
+                case TelemetryLogFormat.TYPE_BOOLEAN -> writeByte((byte) ((Boolean) value ? 1 : 0));
+                case TelemetryLogFormat.TYPE_DOUBLE -> writeLong(Double.doubleToRawLongBits((Double) value), 8);
+                case TelemetryLogFormat.TYPE_INTEGER -> writeVarint(zigzag((Long) value));
+                case TelemetryLogFormat.TYPE_FLOAT -> writeLong(Float.floatToRawIntBits((Float) value), 4);
+                case TelemetryLogFormat.TYPE_STRING -> writeString((String) value);
+                case TelemetryLogFormat.TYPE_RAW -> {
+                    byte[] raw = (byte[]) value;
+                    writeVarint(raw.length);
+                    writeBytes(raw, raw.length);
+                }
+                case TelemetryLogFormat.TYPE_BOOLEAN_ARRAY -> {
+                    boolean[] array = (boolean[]) value;
+                    writeVarint(array.length);
+                    for (int start = 0; start < array.length; start += 8) {
+                        int bits = 0;
+                        for (int i = start; i < Math.min(array.length, start + 8); i++) {
+                            bits |= array[i] ? 1 << (i - start) : 0;
+                        }
+                        writeByte((byte) bits);
+                    }
+                }
+                case TelemetryLogFormat.TYPE_DOUBLE_ARRAY -> {
+                    double[] array = (double[]) value;
+                    writeVarint(array.length);
+                    for (double element : array) {
+                        writeLong(Double.doubleToRawLongBits(element), 8);
+                    }
+                }
+                case TelemetryLogFormat.TYPE_INTEGER_ARRAY -> {
+                    long[] array = (long[]) value;
+                    writeVarint(array.length);
+                    for (long element : array) {
+                        writeVarint(zigzag(element));
+                    }
+                }
+                case TelemetryLogFormat.TYPE_FLOAT_ARRAY -> {
+                    float[] array = (float[]) value;
+                    writeVarint(array.length);
+                    for (float element : array) {
+                        writeLong(Float.floatToRawIntBits(element), 4);
+                    }
+                }
+                case TelemetryLogFormat.TYPE_STRING_ARRAY -> {
+                    String[] array = (String[]) value;
+                    writeVarint(array.length);
+                    for (String element : array) {
+                        writeString(element);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown type tag " + type);
+            }
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+            }
+        }
+
+        private void writeByte(byte value) {
+            ensure(1);
+            bytes[size++] = value;
+        }
+
+        private void writeBytes(byte[] source, int length) {
+            ensure(length);
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void writeLong(long value, int length) {
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                bytes[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            writeBytes(utf8, utf8.length);
+        }
+    }
+
+    // Decode one message into listener, returns its kind. Throws IllegalArgumentException if it is malformed.
+    public static byte read(ByteBuffer message, Listener listener) {
+        ByteBuffer in = message.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            byte kind = in.get();
+            if (kind != KEYFRAME && kind != DELTA) {
+                throw new IllegalArgumentException("Unknown relay message kind " + kind);
+            }
+            long baseTime = readVarint(in);
+            int firstNewId = (int) readVarint(in);
+            int nameCount = (int) readVarint(in);
+            if (kind == KEYFRAME) {
+                listener.reset();
+            }
+            for (int i = 0; i < nameCount; i++) {
+                listener.topic(firstNewId + i, readString(in));
+            }
+            int valueCount = (int) readVarint(in);
+            int id = -1;
+            for (int i = 0; i < valueCount; i++) {
+                id += (int) readVarint(in) + 1;
+                byte type = in.get();
+                long timestamp = baseTime + unzigzag(readVarint(in));
+                listener.value(id, timestamp, readPayload(in, type));
+            }
+            return kind;
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated relay message", e);
+        }
+    }
+
+    private static Object readPayload(ByteBuffer in, byte type) {
+        switch (type) {
+            case ValueStore.TYPE_NONE: return null;
+            case TelemetryLogFormat.TYPE_BOOLEAN: return in.get() != 0;
+            case TelemetryLogFormat.TYPE_DOUBLE: return in.getDouble();
+            case TelemetryLogFormat.TYPE_INTEGER: return unzigzag(readVarint(in));
+            case TelemetryLogFormat.TYPE_FLOAT: return in.getFloat();
+            case TelemetryLogFormat.TYPE_STRING: return readString(in);
+            case TelemetryLogFormat.TYPE_RAW: {
+                byte[] raw = new byte[readLength(in, 1)];
+                in.get(raw);
+                return raw;
+            }
+            case TelemetryLogFormat.TYPE_BOOLEAN_ARRAY: {
+                int length = (int) readVarint(in);
+                if (length < 0 || (length + 7) / 8 > in.remaining()) {
+                    throw new IllegalArgumentException("Invalid boolean array length " + length);
+                }
+                boolean[] array = new boolean[length];
+                int bits = 0;
+                for (int i = 0; i < length; i++) {
+                    if (i % 8 == 0) {
+                        bits = in.get();
+                    }
+                    array[i] = (bits & (1 << (i % 8))) != 0;
+                }
+                return array;
+            }
+            case TelemetryLogFormat.TYPE_DOUBLE_ARRAY: {
+                double[] array = new double[readLength(in, 8)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.getDouble();
+                }
+                return array;
+            }
+            case TelemetryLogFormat.TYPE_INTEGER_ARRAY: {
+                long[] array = new long[readLength(in, 1)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = unzigzag(readVarint(in));
+                }
+                return array;
+            }
+            case TelemetryLogFormat.TYPE_FLOAT_ARRAY: {
+                float[] array = new float[readLength(in, 4)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.getFloat();
+                }
+                return array;
+            }
+            case TelemetryLogFormat.TYPE_STRING_ARRAY: {
+                String[] array = new String[readLength(in, 1)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readString(in);
+                }
+                return array;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown type tag " + type);
+        }
+    }
+
+    // A length whose elements take at least minBytes each, checked against what is left
+    private static int readLength(ByteBuffer in, int minBytes) {
+        long length = readVarint(in);
+        if (length < 0 || length * minBytes > in.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        return (int) length;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] utf8 = new byte[readLength(in, 1)];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte next = in.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,438 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Re-serves one connection's values to other dashboards over WebSocket, so extra viewers in the pit
+// or the stands share the robot connection instead of each opening their own.
+// A relay thread scans the connection's value store once per tick and encodes every topic whose
+// sequence changed into one RelayFormat DELTA, shared by all viewers. Each viewer has a writer
+// thread draining a bounded queue of messages. A viewer that joins, or whose queue is full because
+// it cannot keep up, has its queue cleared and gets a KEYFRAME with every current value instead, so
+// a slow viewer skips ahead rather than holding back the others or growing memory.
+// While any viewer is connected the relay subscribes to its topic prefixes at the tick rate, every
+// topic unless relay.topics narrows it, which makes the robot send all of them at that rate.
+// Viewers also get whatever the dashboard itself subscribed to. There is no authentication, so the
+// relay listens on loopback unless relay.bindAddress opens it to the network.
+public final class RelayServer implements AutoCloseable {
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_HANDSHAKE_BYTES = 8192;
+    // Viewers only send control frames, anything bigger is not a viewer
+    private static final int MAX_INCOMING_PAYLOAD = 65536;
+
+    private static final int OPCODE_BINARY = 0x2;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+
+    private final NetworkTableManager connection;
+    private final ServerSocket serverSocket;
+    private final long tickNanos;
+    private final int queueFrames;
+    private final String[] prefixes;
+
+    private final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+    private Subscription subscription;
+
+    private final Thread acceptThread;
+    private final Thread relayThread;
+    private volatile boolean running = true;
+
+    // Only touched by the relay thread
+    private final RelayFormat.Writer writer = new RelayFormat.Writer();
+    private long[] sentSequences = new long[0];
+    private String[] names = new String[0];
+    private int namedTopics = 0;
+    // The value last read by readConsistent
+    private byte readType;
+    private long readTimestamp;
+    private Object readValue;
+
+    private final class Viewer {
+        final Socket socket;
+        final String address;
+        final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueFrames);
+        // Set on join and when the queue overflowed, only cleared by the relay thread
+        volatile boolean needsKeyframe = true;
+        volatile long bytesSent = 0;
+        long keyframes = 0;
+        long drops = 0;
+        final long joinedNanos = System.nanoTime();
+        OutputStream out;
+
+        Viewer(Socket socket) {
+            this.socket = socket;
+            this.address = String.valueOf(socket.getRemoteSocketAddress());
+        }
+    }
+
+    public RelayServer(NetworkTableManager connection, InetAddress bindAddress, int port, double hz, int queueFrames,
+            String[] prefixes) throws IOException {
+        this.connection = connection;
+        this.tickNanos = (long) (TimeUnit.SECONDS.toNanos(1) / hz);
+        this.queueFrames = queueFrames;
+        this.prefixes = prefixes;
+        serverSocket = new ServerSocket(port, 50, bindAddress);
+        acceptThread = new Thread(this::acceptLoop, "Relay Accept");
+        acceptThread.setDaemon(true);
+        relayThread = new Thread(this::relayLoop, "Relay");
+        relayThread.setDaemon(true);
+        acceptThread.start();
+        relayThread.start();
+        System.out.println("Relaying " + connection.getName() + " on " + serverSocket.getLocalSocketAddress() + " at " + hz + " Hz");
+    }
+
+    // The relay set up by the relay.* settings, null if relay.port is not set
+    public static RelayServer fromConfig() {
+        int port = DashboardConfig.getInt("relay.port", 0);
+        if (port <= 0) {
+            return null;
+        }
+        String connectionName = DashboardConfig.getString("relay.connection", "");
+        NetworkTableManager connection = connectionName.isEmpty()
+            ? NetworkTableManager.getConnections().get(0) : NetworkTableManager.getConnection(connectionName);
+        if (connection == null) {
+            System.out.println("Relay not started, no connection named " + connectionName);
+            return null;
+        }
+        List<String> topics = DashboardConfig.getList("relay.topics");
+        try {
+            InetAddress bindAddress = InetAddress.getByName(DashboardConfig.getString("relay.bindAddress", "127.0.0.1"));
+            return new RelayServer(connection, bindAddress, port, Math.max(1.0, DashboardConfig.getDouble("relay.hz", 20.0)),
+                Math.max(1, DashboardConfig.getInt("relay.queueFrames", 8)),
+                topics.isEmpty() ? new String[] {""} : topics.toArray(new String[0]));
+        } catch (IOException e) {
+            System.out.println("Relay not started on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getViewerCount() {
+        return viewers.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Error closing relay socket: " + e.getMessage());
+        }
+        LockSupport.unpark(relayThread);
+        for (Viewer viewer : viewers) {
+            disconnect(viewer);
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> serveViewer(new Viewer(socket)), "Relay Viewer " + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Relay accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Runs on the viewer's reader thread: handshake, then answer control frames until the viewer leaves
+    private void serveViewer(Viewer viewer) {
+        try {
+            viewer.socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(viewer.socket.getInputStream()));
+            viewer.out = new BufferedOutputStream(viewer.socket.getOutputStream());
+            if (!handshake(in, viewer.out)) {
+                viewer.socket.close();
+                return;
+            }
+            viewerJoined(viewer);
+            Thread writerThread = new Thread(() -> writeLoop(viewer), "Relay Writer " + viewer.address);
+            writerThread.setDaemon(true);
+            writerThread.start();
+            readLoop(viewer, in);
+        } catch (IOException e) {
+            // Viewer went away or sent something that is not WebSocket
+        } finally {
+            disconnect(viewer);
+        }
+    }
+
+    private boolean handshake(InputStream in, OutputStream out) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        int matched = 0;
+        // Read up to the blank line ending the HTTP request headers
+        while (matched < 4) {
+            int next = in.read();
+            if (next < 0 || request.size() >= MAX_HANDSHAKE_BYTES) {
+                return false;
+            }
+            request.write(next);
+            matched = (next == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (next == '\r' ? 1 : 0);
+        }
+        String key = null;
+        boolean upgrade = false;
+        for (String line : request.toString(StandardCharsets.ISO_8859_1).split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String header = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (header.equals("sec-websocket-key")) {
+                key = value;
+            } else if (header.equals("upgrade")) {
+                upgrade = value.equalsIgnoreCase("websocket");
+            }
+        }
+        if (key == null || !upgrade) {
+            out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            return false;
+        }
+        String response = "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+            + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+        out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        return true;
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    // Data frames from viewers are ignored, pings are answered and a close ends the connection
+    private void readLoop(Viewer viewer, DataInputStream in) throws IOException {
+        while (running) {
+            int first = in.readUnsignedByte();
+            int second = in.readUnsignedByte();
+            int opcode = first & 0x0F;
+            long length = second & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+            if (length < 0 || length > MAX_INCOMING_PAYLOAD) {
+                throw new IOException("Viewer frame too large");
+            }
+            byte[] mask = new byte[4];
+            if ((second & 0x80) != 0) {
+                in.readFully(mask);
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+            if (opcode == OPCODE_CLOSE) {
+                writeFrame(viewer, OPCODE_CLOSE, payload.length >= 2 ? Arrays.copyOf(payload, 2) : new byte[0]);
+                return;
+            } else if (opcode == OPCODE_PING) {
+                writeFrame(viewer, OPCODE_PONG, payload);
+            }
+        }
+    }
+
+    private void writeLoop(Viewer viewer) {
+        try {
+            while (running && !viewer.socket.isClosed()) {
+                byte[] message = viewer.queue.poll(1, TimeUnit.SECONDS);
+                if (message != null) {
+                    writeFrame(viewer, OPCODE_BINARY, message);
+                }
+            }
+        } catch (IOException e) {
+            // Viewer went away, its reader thread disconnects it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            disconnect(viewer);
+        }
+    }
+
+    // Server frames are never masked or fragmented. Called by both viewer threads.
+    private static void writeFrame(Viewer viewer, int opcode, byte[] payload) throws IOException {
+        synchronized (viewer) {
+            OutputStream out = viewer.out;
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else if (payload.length < 65536) {
+                out.write(126);
+                out.write(payload.length >>> 8);
+                out.write(payload.length);
+            } else {
+                out.write(127);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) ((long) payload.length >>> shift));
+                }
+            }
+            out.write(payload);
+            out.flush();
+            viewer.bytesSent += payload.length;
+        }
+    }
+
+    private synchronized void viewerJoined(Viewer viewer) {
+        viewers.add(viewer);
+        if (subscription == null) {
+            subscription = connection.subscribe(prefixes, tickNanos / 1e9, false);
+        }
+        System.out.println("Relay viewer " + viewer.address + " joined, " + viewers.size() + " connected");
+    }
+
+    private synchronized void disconnect(Viewer viewer) {
+        try {
+            viewer.socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        if (!viewers.remove(viewer)) {
+            return;
+        }
+        double seconds = (System.nanoTime() - viewer.joinedNanos) / 1e9;
+        System.out.printf("Relay viewer %s left after %.0fs, %.1f KB/s, %d keyframes, %d overflows, %d connected%n",
+            viewer.address, seconds, viewer.bytesSent / 1024.0 / Math.max(seconds, 1e-3), viewer.keyframes, viewer.drops, viewers.size());
+        if (viewers.isEmpty() && subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    // Fixed-rate loop, late ticks are not made up for. Idle while nobody is watching.
+    private void relayLoop() {
+        long nextTick = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (now < nextTick) {
+                LockSupport.parkNanos(nextTick - now);
+                continue;
+            }
+            nextTick = Math.max(nextTick + tickNanos, now);
+            if (!viewers.isEmpty()) {
+                try {
+                    tick();
+                } catch (RuntimeException e) {
+                    System.out.println("Relay tick failed: " + e);
+                }
+            }
+        }
+    }
+
+    private void tick() {
+        int topicCount = connection.getRegistry().size();
+        long baseTime = connection.getServerTime();
+        byte[] delta = encodeDelta(topicCount, baseTime);
+        // Built when the first viewer needs it, after the delta so it is at least as new
+        byte[] keyframe = null;
+        for (Viewer viewer : viewers) {
+            if (!viewer.needsKeyframe && (delta == null || viewer.queue.offer(delta))) {
+                continue;
+            }
+            if (!viewer.needsKeyframe) {
+                viewer.drops++;
+            }
+            if (keyframe == null) {
+                keyframe = encodeKeyframe(topicCount, baseTime);
+            }
+            viewer.queue.clear();
+            viewer.queue.offer(keyframe);
+            viewer.needsKeyframe = false;
+            viewer.keyframes++;
+        }
+    }
+
+    // Values whose sequence changed since the last tick and the topics added since, null if nothing changed
+    private byte[] encodeDelta(int topicCount, long baseTime) {
+        growTo(topicCount);
+        int firstNewId = namedTopics;
+        writer.begin(RelayFormat.DELTA, baseTime, firstNewId, Arrays.copyOfRange(names, firstNewId, topicCount), topicCount - firstNewId);
+        ValueStore values = connection.getValueStore();
+        for (int id = 0; id < topicCount; id++) {
+            if (values.getSequence(id) != sentSequences[id]) {
+                sentSequences[id] = readConsistent(values, id);
+                writer.writeValue(id, readType, readType == ValueStore.TYPE_NONE ? baseTime : readTimestamp, readValue);
+            }
+        }
+        if (writer.getValueCount() == 0 && topicCount == firstNewId) {
+            return null;
+        }
+        byte[] delta = writer.finish();
+        // New names only count as sent once they are in a message
+        namedTopics = topicCount;
+        return delta;
+    }
+
+    // Every topic and every current value
+    private byte[] encodeKeyframe(int topicCount, long baseTime) {
+        writer.begin(RelayFormat.KEYFRAME, baseTime, 0, names, topicCount);
+        ValueStore values = connection.getValueStore();
+        for (int id = 0; id < topicCount; id++) {
+            if (values.getSequence(id) != 0) {
+                readConsistent(values, id);
+                if (readType != ValueStore.TYPE_NONE) {
+                    writer.writeValue(id, readType, readTimestamp, readValue);
+                }
+            }
+        }
+        return writer.finish();
+    }
+
+    private void growTo(int topicCount) {
+        if (topicCount > names.length) {
+            int capacity = Math.max(topicCount, names.length * 2);
+            sentSequences = Arrays.copyOf(sentSequences, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        TopicRegistry registry = connection.getRegistry();
+        for (int id = namedTopics; id < topicCount; id++) {
+            names[id] = registry.nameOf(id);
+        }
+    }
+
+    // Type, timestamp and value written together, retried if a write lands between the reads
+    private long readConsistent(ValueStore values, int id) {
+        while (true) {
+            long sequence = values.getSequence(id);
+            readType = values.getType(id);
+            readTimestamp = values.getTimestamp(id);
+            readValue = values.get(id);
+            if (values.getSequence(id) == sequence) {
+                return sequence;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+// A log ReplaySource can play: a recorded session or a robot's .wpilog file.
+// Values come out one record at a time in log order through a cursor that seek moves.
+public interface ReplayLog extends AutoCloseable {
+
+    @FunctionalInterface
+    interface ValueConsumer {
+        void accept(String topic, long timestamp, Object value);
+    }
+
+    long getStartTimestamp();
+
+    long getEndTimestamp();
+
+    // Every topic in the log with its NT type string, null when the log does not store types
+    void forEachTopic(BiConsumer<String, String> consumer);
+
+    // Timestamp of the next value record without consuming it, Long.MAX_VALUE at the end of the log
+    long peekTimestamp();
+
+    // Decode the next value record and hand it to consumer, returns false at the end of the log
+    boolean next(ValueConsumer consumer);
+
+    // Restore the state at timestamp and leave the cursor at the first record after it
+    void seek(long timestamp, ValueConsumer consumer);
+
+    // Only decode topics starting with any of the prefixes, returns true if topics were added.
+    // Logs that always play every topic ignore this.
+    default boolean setTopicFilter(String[] prefixes) {
+        return false;
+    }
+
+    // Bring the topics added to the filter since the last call up to timestamp
+    default void restoreAddedTopics(long timestamp, ValueConsumer consumer) {}
+
+    @Override
+    void close() throws IOException;
+}
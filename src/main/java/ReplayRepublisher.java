@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.networktables.GenericPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+// Local NT server that re-publishes replayed values so other tools can connect to them
+// like they would to a robot. Only used from the replay playback thread.
+// The ports are replay.republishPort and replay.republishPort3 so a simulator or the LoadGenerator
+// can keep the default NT ports on the same machine.
+public class ReplayRepublisher {
+
+    private final int port;
+    private final int port3;
+    private final Map<String, GenericPublisher> publishers = new HashMap<>();
+    private NetworkTableInstance serverInst;
+
+    // Throws if a port is taken, NT would otherwise only log the failed bind and serve nothing
+    public ReplayRepublisher(int port, int port3) throws IOException {
+        this.port = port;
+        this.port3 = port3;
+        checkPortFree(port, "replay.republishPort");
+        checkPortFree(port3, "replay.republishPort3");
+    }
+
+    public static ReplayRepublisher fromConfig() throws IOException {
+        return new ReplayRepublisher(DashboardConfig.getInt("replay.republishPort", NetworkTableInstance.kDefaultPort4),
+            DashboardConfig.getInt("replay.republishPort3", NetworkTableInstance.kDefaultPort3));
+    }
+
+    private static void checkPortFree(int port, String setting) throws IOException {
+        try {
+            new ServerSocket(port).close();
+        } catch (IOException e) {
+            throw new IOException("Port " + port + " is already in use, e.g. by a simulator. Set " + setting + " to republish on another port.", e);
+        }
+    }
+
+    public void start() {
+        serverInst = NetworkTableInstance.create();
+        serverInst.startServer("", "", port3, port);
+    }
+
+    public void stop() {
+        if (serverInst != null) {
+            publishers.values().forEach(GenericPublisher::close);
+            publishers.clear();
+            serverInst.stopServer();
+            serverInst.close();
+            serverInst = null;
+        }
+    }
+
+    public void publish(String topic, long timestamp, Object value) {
+        String typeString = typeStringOf(value);
+        if (serverInst == null || typeString == null) {
+            return;
+        }
+        GenericPublisher publisher = publishers.computeIfAbsent(topic, key -> serverInst.getTopic(key).genericPublish(typeString));
+
+        if (value instanceof Boolean booleanValue) {
+            publisher.setBoolean(booleanValue, timestamp);
+        } else if (value instanceof Double doubleValue) {
+            publisher.setDouble(doubleValue, timestamp);
+        } else if (value instanceof Long longValue) {
+            publisher.setInteger(longValue, timestamp);
+        } else if (value instanceof Float floatValue) {
+            publisher.setFloat(floatValue, timestamp);
+        } else if (value instanceof String stringValue) {
+            publisher.setString(stringValue, timestamp);
+        } else if (value instanceof byte[] rawValue) {
+            publisher.setRaw(rawValue, timestamp);
+        } else if (value instanceof boolean[] booleanArray) {
+            publisher.setBooleanArray(booleanArray, timestamp);
+        } else if (value instanceof double[] doubleArray) {
+            publisher.setDoubleArray(doubleArray, timestamp);
+        } else if (value instanceof long[] longArray) {
+            publisher.setIntegerArray(longArray, timestamp);
+        } else if (value instanceof float[] floatArray) {
+            publisher.setFloatArray(floatArray, timestamp);
+        } else if (value instanceof String[] stringArray) {
+            publisher.setStringArray(stringArray, timestamp);
+        }
+    }
+
+    private static String typeStringOf(Object value) {
+        if (value instanceof Boolean) return "boolean";
+        if (value instanceof Double) return "double";
+        if (value instanceof Long) return "int";
+        if (value instanceof Float) return "float";
+        if (value instanceof String) return "string";
+        if (value instanceof byte[]) return "raw";
+        if (value instanceof boolean[]) return "boolean[]";
+        if (value instanceof double[]) return "double[]";
+        if (value instanceof long[]) return "int[]";
+        if (value instanceof float[]) return "float[]";
+        if (value instanceof String[]) return "string[]";
+        return null;
+    }
+}
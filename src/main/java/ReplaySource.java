@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Plays a recorded session or a .wpilog file back through NetworkTableManager.ingestValue on its own thread.
+// Playback time is anchored to System.nanoTime and scaled by the speed, so pausing, changing
+// speed and seeking only move the anchor instead of re-timing queued events.
+// Every topic of the log is announced up front. Logs that can filter only decode the topics
+// widgets subscribe to, a newly subscribed topic is brought up to the playback time on the
+// playback thread.
+public class ReplaySource implements TelemetrySource {
+
+    public static final double MIN_SPEED = 0.25;
+    public static final double MAX_SPEED = 16.0;
+
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long NO_SEEK = Long.MIN_VALUE;
+
+    private final NetworkTableManager connection;
+    private final ReplayLog reader;
+    private final ReplayRepublisher republisher;
+    private Thread playbackThread;
+
+    private volatile boolean running = false;
+    private volatile long seekRequest = NO_SEEK;
+    private volatile boolean restoreRequest = false;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Playback clock, guarded by this
+    private long anchorTimestamp;
+    private long anchorNanos;
+    private double speed = 1.0;
+    private boolean paused = false;
+
+    // Opens a session directory or a .wpilog file. Republisher may be null when replayed data should
+    // stay inside the dashboard.
+    public ReplaySource(NetworkTableManager connection, Path log, ReplayRepublisher republisher) throws IOException {
+        this.connection = connection;
+        this.reader = Files.isDirectory(log) ? new TelemetryLogReader(log) : new WpiLogReader(log);
+        this.republisher = republisher;
+        this.anchorTimestamp = reader.getStartTimestamp();
+    }
+
+    @Override
+    public void start() {
+        reader.forEachTopic((topic, type) -> {
+            if (type == null) {
+                connection.announceTopic(topic);
+            } else {
+                connection.announceTopic(topic, type);
+            }
+        });
+        running = true;
+        synchronized (this) {
+            anchorNanos = System.nanoTime();
+        }
+        if (republisher != null) {
+            republisher.start();
+        }
+        playbackThread = new Thread(this::playbackLoop, "Replay Playback");
+        playbackThread.setDaemon(true);
+        playbackThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (playbackThread != null) {
+            LockSupport.unpark(playbackThread);
+            try {
+                playbackThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (republisher != null) {
+            republisher.stop();
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.out.println("Could not close replay log: " + e.getMessage());
+        }
+    }
+
+    // Replayed data counts as connected while it is playing
+    @Override
+    public synchronized boolean isConnected() {
+        return running && !paused;
+    }
+
+    @Override
+    public void addSubscription(Subscription subscription) {
+        subscriptions.add(subscription);
+        updateTopicFilter();
+    }
+
+    @Override
+    public void removeSubscription(Subscription subscription) {
+        subscriptions.remove(subscription);
+        updateTopicFilter();
+    }
+
+    @Override
+    public synchronized long getTime() {
+        if (paused) {
+            return anchorTimestamp;
+        }
+        long elapsedMicros = (System.nanoTime() - anchorNanos) / 1000;
+        return anchorTimestamp + (long) (elapsedMicros * speed);
+    }
+
+    public long getStartTimestamp() {
+        return reader.getStartTimestamp();
+    }
+
+    public long getEndTimestamp() {
+        return reader.getEndTimestamp();
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    public synchronized void setPaused(boolean paused) {
+        if (paused == this.paused) {
+            return;
+        }
+        anchorTimestamp = getTime();
+        anchorNanos = System.nanoTime();
+        this.paused = paused;
+        LockSupport.unpark(playbackThread);
+    }
+
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    public synchronized void setSpeed(double speed) {
+        anchorTimestamp = getTime();
+        anchorNanos = System.nanoTime();
+        this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+        LockSupport.unpark(playbackThread);
+    }
+
+    // Jump to a log timestamp, handled on the playback thread
+    public void seek(long timestamp) {
+        synchronized (this) {
+            anchorTimestamp = Math.max(reader.getStartTimestamp(), Math.min(reader.getEndTimestamp(), timestamp));
+            anchorNanos = System.nanoTime();
+        }
+        seekRequest = timestamp;
+        LockSupport.unpark(playbackThread);
+    }
+
+    // Not under the clock's lock, building a filter can take a while on large logs
+    private void updateTopicFilter() {
+        synchronized (subscriptions) {
+            Set<String> prefixes = new LinkedHashSet<>();
+            for (Subscription subscription : subscriptions) {
+                for (String prefix : subscription.getPrefixes()) {
+                    prefixes.add(prefix);
+                }
+            }
+            if (reader.setTopicFilter(prefixes.toArray(new String[0]))) {
+                restoreRequest = true;
+                LockSupport.unpark(playbackThread);
+            }
+        }
+    }
+
+    private void playbackLoop() {
+        while (running) {
+            long requestedSeek = seekRequest;
+            if (requestedSeek != NO_SEEK) {
+                seekRequest = NO_SEEK;
+                connection.resetValues();
+                reader.seek(requestedSeek, this::ingest);
+            }
+
+            long playbackTime = getTime();
+            long nextTimestamp = reader.peekTimestamp();
+            while (nextTimestamp <= playbackTime && seekRequest == NO_SEEK) {
+                reader.next(this::ingest);
+                nextTimestamp = reader.peekTimestamp();
+            }
+
+            // After playing up to the playback time, so the new topics join at the same point
+            if (restoreRequest && seekRequest == NO_SEEK) {
+                restoreRequest = false;
+                reader.restoreAddedTopics(playbackTime, this::ingest);
+                nextTimestamp = reader.peekTimestamp();
+            }
+
+            // The filtered topics may end before the log does
+            if (nextTimestamp == Long.MAX_VALUE && playbackTime >= reader.getEndTimestamp()) {
+                // End of the log, hold the last state until the user seeks
+                setPaused(true);
+            }
+
+            long sleepNanos = MAX_SLEEP_NANOS;
+            synchronized (this) {
+                if (paused) {
+                    sleepNanos = TimeUnit.MILLISECONDS.toNanos(50);
+                } else if (nextTimestamp != Long.MAX_VALUE) {
+                    sleepNanos = Math.min(sleepNanos, (long) ((nextTimestamp - playbackTime) * 1000 / speed));
+                }
+            }
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(sleepNanos);
+            }
+        }
+    }
+
+    private void ingest(String topic, long timestamp, Object value) {
+        connection.ingestValue(topic, value, timestamp);
+        if (republisher != null) {
+            republisher.publish(topic, timestamp, value);
+        }
+    }
+}
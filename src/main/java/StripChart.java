@@ -0,0 +1,230 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+// Canvas strip chart drawn straight from TimeSeries buffers on a numeric time axis.
+// Each signal is decimated to one min/max pair per pixel column, so drawing cost
+// depends on the chart width rather than on the number of samples in the window.
+public class StripChart extends Region implements TimeSeries.SampleConsumer {
+
+    private static final Color[] SIGNAL_COLORS = {
+        Color.BLUE, Color.RED, Color.GREEN, Color.ORANGE, Color.PURPLE, Color.BROWN
+    };
+    private static final Color GRID_COLOR = Color.LIGHTGRAY;
+    private static final Font LABEL_FONT = new Font(8);
+    private static final double LABEL_MARGIN = 30.0;
+    private static final int GRID_LINES = 4;
+
+    private static class Signal {
+        final String topic;
+        final TimeSeries timeSeries;
+        final Color color;
+        double[] columnMin = new double[0];
+        double[] columnMax = new double[0];
+
+        Signal(String topic, TimeSeries timeSeries, Color color) {
+            this.topic = topic;
+            this.timeSeries = timeSeries;
+            this.color = color;
+        }
+    }
+
+    private final Canvas canvas = new Canvas();
+    private final String title;
+    private final List<Signal> signals = new ArrayList<>();
+
+    private long windowMicros = 10_000_000L;
+
+    // State for the decimation pass, set before each TimeSeries.forEach call
+    private Signal decimatingSignal;
+    private long decimationStart;
+    private double columnsPerMicro;
+
+    public StripChart(String title) {
+        this.title = title;
+        getChildren().add(canvas);
+        setPrefSize(200, 80);
+        setMinSize(100, 50);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setWindowSeconds(double seconds) {
+        windowMicros = (long) (seconds * 1_000_000L);
+    }
+
+    public void addSignal(String topic, TimeSeries timeSeries) {
+        if (hasSignal(topic)) {
+            return;
+        }
+        Color color = SIGNAL_COLORS[signals.size() % SIGNAL_COLORS.length];
+        signals.add(new Signal(topic, timeSeries, color));
+    }
+
+    public void removeSignal(String topic) {
+        signals.removeIf(signal -> signal.topic.equals(topic));
+    }
+
+    public boolean hasSignal(String topic) {
+        for (Signal signal : signals) {
+            if (signal.topic.equals(topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return signals.isEmpty();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+    }
+
+    // Called per sample while decimating, keeps the min and max of each pixel column
+    @Override
+    public void accept(long timestamp, double value) {
+        // The window includes its end, the newest sample lands in the last column
+        int column = Math.min((int) ((timestamp - decimationStart) * columnsPerMicro), decimatingSignal.columnMin.length - 1);
+        if (column < 0) {
+            return;
+        }
+        if (value < decimatingSignal.columnMin[column]) {
+            decimatingSignal.columnMin[column] = value;
+        }
+        if (value > decimatingSignal.columnMax[column]) {
+            decimatingSignal.columnMax[column] = value;
+        }
+    }
+
+    public void redraw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        if (signals.isEmpty()) {
+            return;
+        }
+
+        double plotLeft = LABEL_MARGIN;
+        double plotTop = 12.0;
+        double plotWidth = width - plotLeft - 4.0;
+        double plotHeight = height - plotTop - 12.0;
+        if (plotWidth <= 1 || plotHeight <= 1) {
+            return;
+        }
+
+        int columns = (int) plotWidth;
+        columnsPerMicro = (double) columns / windowMicros;
+
+        double minValue = Double.POSITIVE_INFINITY;
+        double maxValue = Double.NEGATIVE_INFINITY;
+
+        for (Signal signal : signals) {
+            if (signal.columnMin.length != columns) {
+                signal.columnMin = new double[columns];
+                signal.columnMax = new double[columns];
+            }
+            Arrays.fill(signal.columnMin, Double.POSITIVE_INFINITY);
+            Arrays.fill(signal.columnMax, Double.NEGATIVE_INFINITY);
+
+            // Each window ends at the signal's own newest sample, signals from different
+            // connections are timestamped by different servers and share no clock
+            long windowEnd = signal.timeSeries.getLatestTimestamp();
+            long windowStart = windowEnd - windowMicros;
+            decimationStart = windowStart;
+            decimatingSignal = signal;
+            signal.timeSeries.forEach(windowStart, windowEnd, this);
+
+            for (int i = 0; i < columns; i++) {
+                if (signal.columnMin[i] < minValue) {
+                    minValue = signal.columnMin[i];
+                }
+                if (signal.columnMax[i] > maxValue) {
+                    maxValue = signal.columnMax[i];
+                }
+            }
+        }
+        decimatingSignal = null;
+
+        if (minValue > maxValue) {
+            minValue = 0.0;
+            maxValue = 1.0;
+        } else if (minValue == maxValue) {
+            minValue -= 0.5;
+            maxValue += 0.5;
+        }
+        double yScale = plotHeight / (maxValue - minValue);
+
+        drawGrid(gc, plotLeft, plotTop, plotWidth, plotHeight, minValue, maxValue);
+
+        gc.setLineWidth(1.5);
+        for (Signal signal : signals) {
+            gc.setStroke(signal.color);
+            gc.beginPath();
+            boolean started = false;
+            for (int i = 0; i < columns; i++) {
+                if (signal.columnMin[i] > signal.columnMax[i]) {
+                    continue;
+                }
+                double x = plotLeft + i;
+                double yMin = plotTop + (maxValue - signal.columnMin[i]) * yScale;
+                double yMax = plotTop + (maxValue - signal.columnMax[i]) * yScale;
+                if (started) {
+                    gc.lineTo(x, yMin);
+                } else {
+                    // Starting a pixel early keeps a lone sample, like a just tracked topic's seed, visible
+                    gc.moveTo(x - 1, yMin);
+                    started = true;
+                }
+                gc.lineTo(x, yMax);
+            }
+            gc.stroke();
+        }
+    }
+
+    private void drawGrid(GraphicsContext gc, double left, double top, double width, double height, double minValue, double maxValue) {
+        gc.setStroke(GRID_COLOR);
+        gc.setLineWidth(0.5);
+        for (int i = 0; i <= GRID_LINES; i++) {
+            double y = top + height * i / GRID_LINES;
+            gc.strokeLine(left, y, left + width, y);
+            double x = left + width * i / GRID_LINES;
+            gc.strokeLine(x, top, x, top + height);
+        }
+
+        gc.setFill(Color.BLACK);
+        gc.setFont(LABEL_FONT);
+
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.TOP);
+        gc.fillText(title, left, 0);
+
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText(formatValue(maxValue), left - 2, top);
+        gc.fillText(formatValue(minValue), left - 2, top + height);
+
+        gc.setTextBaseline(VPos.TOP);
+        gc.fillText("0s", left + width, top + height + 1);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.fillText("-" + (windowMicros / 1_000_000L) + "s", left, top + height + 1);
+    }
+
+    private static String formatValue(double value) {
+        return Math.abs(value) >= 1000 ? String.format("%.0f", value) : String.format("%.2f", value);
+    }
+}
@@ -0,0 +1,186 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Decodes the WPILib struct topics of one connection into numeric topics.
+// Schemas published under /.schema/struct:<type> are compiled into StructLayouts once. A raw topic
+// announced with type struct:<type> or struct:<type>[] is bound to its layout as soon as the schema
+// and every nested schema are known. Each payload of a bound topic is then decoded on the ingest
+// thread and every field goes through the connection's normal ingest path as <topic>/<field>, or
+// <topic>/<index>/<field> for arrays. So fields show up as children of the raw topic in the tree
+// and can be charted, watched and used by derived channels like any double topic.
+// Subscribing to a field subscribes to its raw topic, the server does not know the field topics.
+public final class StructDecoder {
+
+    public static final String TYPE_PREFIX = "struct:";
+    private static final String SCHEMA_TOPIC_PREFIX = "/.schema/" + TYPE_PREFIX;
+
+    // Schemas are sent once per topic and rarely change, every one is needed
+    private static final double SCHEMA_SUBSCRIPTION_PERIOD = 0.1;
+
+    // A raw topic bound to its layout, with the ids of its field topics
+    private static final class Binding {
+        final String topic;
+        final StructLayout layout;
+        final boolean array;
+        // Field topic ids by element and leaf, grown when an array gets longer
+        volatile int[] fieldIds = new int[0];
+
+        Binding(String topic, StructLayout layout, boolean array) {
+            this.topic = topic;
+            this.layout = layout;
+            this.array = array;
+        }
+    }
+
+    private final NetworkTableManager connection;
+
+    // Guarded by this, only touched when schemas or topic types arrive
+    private final Map<String, String> schemas = new HashMap<>();
+    private final Map<String, StructLayout> layouts = new HashMap<>();
+    private final Map<Integer, String> topicTypes = new HashMap<>();
+
+    // Bindings by raw topic id, replaced as a whole on every change so the ingest path reads it without locking
+    private volatile Binding[] bindingsByTopic = new Binding[0];
+    // Field topic to the raw topic it is decoded from
+    private final Map<String, String> fieldSources = new ConcurrentHashMap<>();
+
+    private Subscription schemaSubscription;
+
+    StructDecoder(NetworkTableManager connection) {
+        this.connection = connection;
+    }
+
+    // Stream every schema, they are small and needed before any struct can be decoded
+    synchronized void start() {
+        if (schemaSubscription == null) {
+            schemaSubscription = connection.subscribe(new String[] {SCHEMA_TOPIC_PREFIX}, SCHEMA_SUBSCRIPTION_PERIOD, true);
+        }
+    }
+
+    // Called on the NT listener thread for every announced topic with a struct type
+    synchronized void onTopicType(int topicId, String typeString) {
+        if (!typeString.equals(topicTypes.put(topicId, typeString))) {
+            bind(topicId, typeString);
+        }
+    }
+
+    // Called on the ingest thread for every raw value
+    void onRaw(int topicId, long timestamp, byte[] data) {
+        Binding[] bindings = bindingsByTopic;
+        Binding binding = topicId < bindings.length ? bindings[topicId] : null;
+        if (binding != null) {
+            decode(binding, timestamp, data);
+            return;
+        }
+        String topicName = connection.getRegistry().nameOf(topicId);
+        if (topicName.startsWith(SCHEMA_TOPIC_PREFIX)) {
+            addSchema(topicName.substring(SCHEMA_TOPIC_PREFIX.length()), new String(data, StandardCharsets.UTF_8));
+        }
+    }
+
+    // Replace decoded field topics by the raw topics they come from
+    String[] resolveSubscriptions(String[] prefixes) {
+        if (fieldSources.isEmpty()) {
+            return prefixes;
+        }
+        String[] resolved = prefixes;
+        for (int i = 0; i < prefixes.length; i++) {
+            String source = fieldSources.get(prefixes[i]);
+            if (source != null) {
+                if (resolved == prefixes) {
+                    resolved = prefixes.clone();
+                }
+                resolved[i] = source;
+            }
+        }
+        return resolved;
+    }
+
+    private synchronized void addSchema(String typeName, String schema) {
+        if (schema.equals(schemas.put(typeName, schema))) {
+            return;
+        }
+        layouts.remove(typeName);
+        // Schemas arrive in any order, keep compiling until no more nested types resolve
+        boolean compiled = true;
+        while (compiled) {
+            compiled = false;
+            for (Map.Entry<String, String> entry : schemas.entrySet()) {
+                if (layouts.containsKey(entry.getKey())) {
+                    continue;
+                }
+                try {
+                    StructLayout layout = StructLayout.compile(entry.getKey(), entry.getValue(), layouts::get);
+                    if (layout != null) {
+                        layouts.put(entry.getKey(), layout);
+                        compiled = true;
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Struct schema " + entry.getKey() + " not compiled: " + e.getMessage());
+                    layouts.put(entry.getKey(), null);
+                }
+            }
+        }
+        for (Map.Entry<Integer, String> entry : topicTypes.entrySet()) {
+            Binding[] bindings = bindingsByTopic;
+            if (entry.getKey() >= bindings.length || bindings[entry.getKey()] == null) {
+                bind(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void bind(int topicId, String typeString) {
+        String typeName = typeString.substring(TYPE_PREFIX.length());
+        boolean array = typeName.endsWith("[]");
+        if (array) {
+            typeName = typeName.substring(0, typeName.length() - 2);
+        }
+        StructLayout layout = layouts.get(typeName);
+        if (layout == null || layout.getSize() == 0) {
+            return;
+        }
+        Binding[] updated = Arrays.copyOf(bindingsByTopic, Math.max(bindingsByTopic.length, topicId + 1));
+        updated[topicId] = new Binding(connection.getRegistry().nameOf(topicId), layout, array);
+        bindingsByTopic = updated;
+    }
+
+    private void decode(Binding binding, long timestamp, byte[] data) {
+        StructLayout layout = binding.layout;
+        int size = layout.getSize();
+        int elements = binding.array ? data.length / size : (data.length >= size ? 1 : 0);
+        int leafCount = layout.getLeafCount();
+        int[] fieldIds = binding.fieldIds;
+        if (fieldIds.length < elements * leafCount) {
+            fieldIds = registerFields(binding, elements);
+        }
+        for (int element = 0; element < elements; element++) {
+            int base = element * size;
+            int firstField = element * leafCount;
+            for (int leaf = 0; leaf < leafCount; leaf++) {
+                connection.ingestComputed(fieldIds[firstField + leaf], timestamp, layout.read(data, base, leaf));
+            }
+        }
+    }
+
+    // Register the field topics of the first elements, only when an array is longer than ever before
+    private synchronized int[] registerFields(Binding binding, int elements) {
+        StructLayout layout = binding.layout;
+        int leafCount = layout.getLeafCount();
+        int[] existing = binding.fieldIds;
+        if (existing.length >= elements * leafCount) {
+            return existing;
+        }
+        int[] grown = Arrays.copyOf(existing, elements * leafCount);
+        for (int field = existing.length; field < grown.length; field++) {
+            int element = field / leafCount;
+            String fieldTopic = binding.topic + "/" + (binding.array ? element + "/" : "") + layout.getLeafName(field % leafCount);
+            grown[field] = connection.getRegistry().idOf(fieldTopic);
+            fieldSources.put(fieldTopic, binding.topic);
+        }
+        binding.fieldIds = grown;
+        return grown;
+    }
+}
@@ -0,0 +1,250 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Compiled layout of a WPILib struct schema, e.g. "Translation2d translation;Rotation2d rotation".
+// The schema is parsed once and flattened into its numeric leaves, each with a byte offset, a
+// primitive kind and, for bit-fields, a shift and width. Nested structs and fixed size arrays
+// become leaves named by their path, e.g. translation/x or values/2. Reading a leaf goes through
+// little-endian byte array views, so decoding a payload creates no objects.
+// char arrays are strings and enum value names are not kept, both only take up their bytes.
+public final class StructLayout {
+
+    private static final byte BOOL = 0;
+    private static final byte CHAR = 1;
+    private static final byte INT8 = 2;
+    private static final byte UINT8 = 3;
+    private static final byte INT16 = 4;
+    private static final byte UINT16 = 5;
+    private static final byte INT32 = 6;
+    private static final byte UINT32 = 7;
+    private static final byte INT64 = 8;
+    private static final byte UINT64 = 9;
+    private static final byte FLOAT = 10;
+    private static final byte DOUBLE = 11;
+
+    private static final VarHandle SHORT_VIEW = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle FLOAT_VIEW = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle DOUBLE_VIEW = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // type name [array size] or type name : bits, after an optional enum {...}
+    private static final Pattern DECLARATION = Pattern.compile("(\\w+)\\s+(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*\\])?\\s*(?::\\s*(\\d+))?");
+
+    private final String typeName;
+    private final int size;
+    private final String[] names;
+    private final int[] offsets;
+    private final byte[] kinds;
+    private final byte[] bitShifts;
+    // 0 for plain fields
+    private final byte[] bitWidths;
+
+    private StructLayout(String typeName, int size, List<Leaf> leaves) {
+        this.typeName = typeName;
+        this.size = size;
+        int count = leaves.size();
+        names = new String[count];
+        offsets = new int[count];
+        kinds = new byte[count];
+        bitShifts = new byte[count];
+        bitWidths = new byte[count];
+        for (int i = 0; i < count; i++) {
+            Leaf leaf = leaves.get(i);
+            names[i] = leaf.name;
+            offsets[i] = leaf.offset;
+            kinds[i] = leaf.kind;
+            bitShifts[i] = (byte) leaf.bitShift;
+            bitWidths[i] = (byte) leaf.bitWidth;
+        }
+    }
+
+    private record Leaf(String name, int offset, byte kind, int bitShift, int bitWidth) {}
+
+    // Compile a schema, nested struct types are looked up with nestedLayouts. Returns null while a
+    // nested type is not known yet and throws IllegalArgumentException if the schema does not parse.
+    public static StructLayout compile(String typeName, String schema, Function<String, StructLayout> nestedLayouts) {
+        List<Leaf> leaves = new ArrayList<>();
+        int offset = 0;
+        // Storage unit the current run of bit-fields packs into
+        byte unitKind = -1;
+        int unitOffset = 0;
+        int unitBits = 0;
+        int usedBits = 0;
+
+        for (String rawDeclaration : schema.split(";")) {
+            String declaration = rawDeclaration.trim();
+            if (declaration.startsWith("enum")) {
+                int close = declaration.indexOf('}');
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unterminated enum in " + typeName + ": " + declaration);
+                }
+                declaration = declaration.substring(close + 1).trim();
+            }
+            if (declaration.isEmpty()) {
+                continue;
+            }
+            Matcher matcher = DECLARATION.matcher(declaration);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid declaration in " + typeName + ": " + declaration);
+            }
+            String type = matcher.group(1);
+            String name = matcher.group(2);
+            int arraySize = matcher.group(3) == null ? -1 : Integer.parseInt(matcher.group(3));
+            int bits = matcher.group(4) == null ? 0 : Integer.parseInt(matcher.group(4));
+
+            byte kind = kindOf(type);
+            if (bits > 0) {
+                if (kind < 0 || kind == FLOAT || kind == DOUBLE || arraySize >= 0) {
+                    throw new IllegalArgumentException("Bit-field must be a single integer or bool in " + typeName + ": " + declaration);
+                }
+                int width = kind == BOOL ? 1 : bits;
+                // bool bit-fields join any open unit, others need a unit of their own size with room left
+                boolean fits = unitKind >= 0 && (kind == BOOL || sizeOf(unitKind) == sizeOf(kind)) && usedBits + width <= unitBits;
+                if (!fits) {
+                    unitKind = kind == BOOL ? UINT8 : kind;
+                    unitOffset = offset;
+                    unitBits = sizeOf(unitKind) * 8;
+                    usedBits = 0;
+                    offset += sizeOf(unitKind);
+                }
+                if (width > unitBits) {
+                    throw new IllegalArgumentException("Bit-field wider than its type in " + typeName + ": " + declaration);
+                }
+                // The unit is read unsigned, the field's own kind decides the sign
+                leaves.add(new Leaf(name, unitOffset, kind == BOOL ? BOOL : kind, usedBits, width));
+                usedBits += width;
+                continue;
+            }
+            unitKind = -1;
+
+            if (kind >= 0) {
+                if (kind == CHAR && arraySize >= 0) {
+                    offset += arraySize;
+                    continue;
+                }
+                if (arraySize < 0) {
+                    leaves.add(new Leaf(name, offset, kind, 0, 0));
+                    offset += sizeOf(kind);
+                } else {
+                    for (int index = 0; index < arraySize; index++) {
+                        leaves.add(new Leaf(name + "/" + index, offset, kind, 0, 0));
+                        offset += sizeOf(kind);
+                    }
+                }
+                continue;
+            }
+
+            StructLayout nested = nestedLayouts.apply(type);
+            if (nested == null) {
+                return null;
+            }
+            int count = Math.max(arraySize, 1);
+            for (int index = 0; index < count; index++) {
+                String prefix = arraySize < 0 ? name + "/" : name + "/" + index + "/";
+                for (int leaf = 0; leaf < nested.names.length; leaf++) {
+                    leaves.add(new Leaf(prefix + nested.names[leaf], offset + nested.offsets[leaf], nested.kinds[leaf],
+                        nested.bitShifts[leaf], nested.bitWidths[leaf]));
+                }
+                offset += nested.size;
+            }
+        }
+        return new StructLayout(typeName, offset, leaves);
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    // Bytes per struct
+    public int getSize() {
+        return size;
+    }
+
+    public int getLeafCount() {
+        return names.length;
+    }
+
+    // Path of a leaf within the struct, e.g. translation/x
+    public String getLeafName(int leaf) {
+        return names[leaf];
+    }
+
+    // Value of a leaf of the struct starting at base, bools as 0 and 1
+    public double read(byte[] data, int base, int leaf) {
+        int offset = base + offsets[leaf];
+        int width = bitWidths[leaf];
+        if (width > 0) {
+            return readBits(data, offset, kinds[leaf], bitShifts[leaf], width);
+        }
+        return switch (kinds[leaf]) {
+            case BOOL -> data[offset] != 0 ? 1.0 : 0.0;
+            case INT8 -> data[offset];
+            case CHAR, UINT8 -> data[offset] & 0xFF;
+            case INT16 -> (short) SHORT_VIEW.get(data, offset);
+            case UINT16 -> ((short) SHORT_VIEW.get(data, offset)) & 0xFFFF;
+            case INT32 -> (int) INT_VIEW.get(data, offset);
+            case UINT32 -> ((int) INT_VIEW.get(data, offset)) & 0xFFFFFFFFL;
+            case INT64 -> (long) LONG_VIEW.get(data, offset);
+            case UINT64 -> unsignedToDouble((long) LONG_VIEW.get(data, offset));
+            case FLOAT -> (float) FLOAT_VIEW.get(data, offset);
+            default -> (double) DOUBLE_VIEW.get(data, offset);
+        };
+    }
+
+    // Bit-fields are packed from the least significant bit of their storage unit
+    private static double readBits(byte[] data, int offset, byte kind, int shift, int width) {
+        // The unit is at least as wide as shift + width, reading 8 bytes would run past short payloads
+        int unitBytes = (shift + width + 7) / 8;
+        long unit = 0;
+        for (int i = unitBytes - 1; i >= 0; i--) {
+            unit = (unit << 8) | (data[offset + i] & 0xFF);
+        }
+        long value = width == 64 ? unit >>> shift : (unit >>> shift) & ((1L << width) - 1);
+        if (kind == BOOL) {
+            return value != 0 ? 1.0 : 0.0;
+        }
+        boolean signed = kind == INT8 || kind == INT16 || kind == INT32 || kind == INT64;
+        if (signed && width < 64 && (value & (1L << (width - 1))) != 0) {
+            value -= 1L << width;
+        }
+        return signed || width < 64 ? value : unsignedToDouble(value);
+    }
+
+    private static double unsignedToDouble(long value) {
+        return value >= 0 ? value : (double) (value >>> 1) * 2.0 + (value & 1);
+    }
+
+    private static byte kindOf(String type) {
+        return switch (type) {
+            case "bool" -> BOOL;
+            case "char" -> CHAR;
+            case "int8" -> INT8;
+            case "uint8" -> UINT8;
+            case "int16" -> INT16;
+            case "uint16" -> UINT16;
+            case "int32" -> INT32;
+            case "uint32" -> UINT32;
+            case "int64" -> INT64;
+            case "uint64" -> UINT64;
+            case "float", "float32" -> FLOAT;
+            case "double", "float64" -> DOUBLE;
+            default -> -1;
+        };
+    }
+
+    private static int sizeOf(byte kind) {
+        return switch (kind) {
+            case BOOL, CHAR, INT8, UINT8 -> 1;
+            case INT16, UINT16 -> 2;
+            case INT32, UINT32, FLOAT -> 4;
+            default -> 8;
+        };
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.Arrays;
+
+// A widget's request for values of some topics of one connection, opened with NetworkTableManager.subscribe.
+// Sources that talk to a robot turn it into an NT value subscription; until then only topic
+// announcements are received. Close it when the widget goes away.
+public final class Subscription implements AutoCloseable {
+
+    private final NetworkTableManager connection;
+    private final String[] prefixes;
+    private final double periodSeconds;
+    private final boolean sendAll;
+
+    Subscription(NetworkTableManager connection, String[] prefixes, double periodSeconds, boolean sendAll) {
+        this.connection = connection;
+        this.prefixes = prefixes;
+        this.periodSeconds = periodSeconds;
+        this.sendAll = sendAll;
+    }
+
+    public String[] getPrefixes() {
+        return prefixes;
+    }
+
+    // How often the server sends updates
+    public double getPeriodSeconds() {
+        return periodSeconds;
+    }
+
+    // Whether every change is sent instead of only the latest value per period
+    public boolean isSendAll() {
+        return sendAll;
+    }
+
+    @Override
+    public void close() {
+        connection.unsubscribe(this);
+    }
+
+    @Override
+    public String toString() {
+        return "Subscription" + Arrays.toString(prefixes) + " @ " + periodSeconds + "s";
+    }
+}
@@ -0,0 +1,237 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Binary layout shared by TelemetryRecorder and the readers of its segment files.
+//
+// Segment header: magic (int), version (int), bytes used including header (long)
+// Dictionary record: RECORD_TOPIC, topic id (int), name (string)
+// Value record: RECORD_VALUE, topic id (int), server time in microseconds (long), type tag (byte), payload
+// Strings are an int byte length followed by UTF-8 bytes, arrays an int element count followed by the elements.
+// Every segment repeats the dictionary records for the topics it uses, so each file can be read on its own.
+public final class TelemetryLogFormat {
+
+    public static final int MAGIC = 0x43444C47; // "CDLG"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int USED_BYTES_OFFSET = 8;
+
+    public static final String SEGMENT_PREFIX = "segment-";
+    public static final String SEGMENT_SUFFIX = ".cdlog";
+
+    public static final byte RECORD_TOPIC = 1;
+    public static final byte RECORD_VALUE = 2;
+
+    public static final byte TYPE_BOOLEAN = 1;
+    public static final byte TYPE_DOUBLE = 2;
+    public static final byte TYPE_INTEGER = 3;
+    public static final byte TYPE_FLOAT = 4;
+    public static final byte TYPE_STRING = 5;
+    public static final byte TYPE_RAW = 6;
+    public static final byte TYPE_BOOLEAN_ARRAY = 7;
+    public static final byte TYPE_DOUBLE_ARRAY = 8;
+    public static final byte TYPE_INTEGER_ARRAY = 9;
+    public static final byte TYPE_FLOAT_ARRAY = 10;
+    public static final byte TYPE_STRING_ARRAY = 11;
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private TelemetryLogFormat() {}
+
+    public static String segmentName(int index) {
+        return String.format("%s%05d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    // Type tag for a value as decoded by NetworkTableManager.decodeNTValue, 0 if it cannot be recorded
+    public static byte typeOf(Object value) {
+        if (value instanceof Boolean) return TYPE_BOOLEAN;
+        if (value instanceof Double) return TYPE_DOUBLE;
+        if (value instanceof Long) return TYPE_INTEGER;
+        if (value instanceof Float) return TYPE_FLOAT;
+        if (value instanceof String) return TYPE_STRING;
+        if (value instanceof byte[]) return TYPE_RAW;
+        if (value instanceof boolean[]) return TYPE_BOOLEAN_ARRAY;
+        if (value instanceof double[]) return TYPE_DOUBLE_ARRAY;
+        if (value instanceof long[]) return TYPE_INTEGER_ARRAY;
+        if (value instanceof float[]) return TYPE_FLOAT_ARRAY;
+        if (value instanceof String[]) return TYPE_STRING_ARRAY;
+        return 0;
+    }
+
+    // Encoded payload size in bytes, string lengths are measured as UTF-8
+    public static int payloadSize(byte type, Object value) {
+        switch (type) {
+            case TYPE_BOOLEAN: return 1;
+            case TYPE_DOUBLE: return 8;
+            case TYPE_INTEGER: return 8;
+            case TYPE_FLOAT: return 4;
+            case TYPE_STRING: return 4 + utf8Length((String) value);
+            case TYPE_RAW: return 4 + ((byte[]) value).length;
+            case TYPE_BOOLEAN_ARRAY: return 4 + ((boolean[]) value).length;
+            case TYPE_DOUBLE_ARRAY: return 4 + 8 * ((double[]) value).length;
+            case TYPE_INTEGER_ARRAY: return 4 + 8 * ((long[]) value).length;
+            case TYPE_FLOAT_ARRAY: return 4 + 4 * ((float[]) value).length;
+            case TYPE_STRING_ARRAY: {
+                int size = 4;
+                for (String element : (String[]) value) {
+                    size += 4 + utf8Length(element);
+                }
+                return size;
+            }
+            default: return 0;
+        }
+    }
+
+    public static void writePayload(ByteBuffer buffer, byte type, Object value) {
+        switch (type) {
+            case TYPE_BOOLEAN -> buffer.put((byte) (((Boolean) value) ? 1 : 0));
+            case TYPE_DOUBLE -> buffer.putDouble((Double) value);
+            case TYPE_INTEGER -> buffer.putLong((Long) value);
+            case TYPE_FLOAT -> buffer.putFloat((Float) value);
+            case TYPE_STRING -> writeString(buffer, (String) value);
+            case TYPE_RAW -> {
+                byte[] raw = (byte[]) value;
+                buffer.putInt(raw.length);
+                buffer.put(raw);
+            }
+            case TYPE_BOOLEAN_ARRAY -> {
+                boolean[] array = (boolean[]) value;
+                buffer.putInt(array.length);
+                for (boolean element : array) {
+                    buffer.put((byte) (element ? 1 : 0));
+                }
+            }
+            case TYPE_DOUBLE_ARRAY -> {
+                double[] array = (double[]) value;
+                buffer.putInt(array.length);
+                for (double element : array) {
+                    buffer.putDouble(element);
+                }
+            }
+            case TYPE_INTEGER_ARRAY -> {
+                long[] array = (long[]) value;
+                buffer.putInt(array.length);
+                for (long element : array) {
+                    buffer.putLong(element);
+                }
+            }
+            case TYPE_FLOAT_ARRAY -> {
+                float[] array = (float[]) value;
+                buffer.putInt(array.length);
+                for (float element : array) {
+                    buffer.putFloat(element);
+                }
+            }
+            case TYPE_STRING_ARRAY -> {
+                String[] array = (String[]) value;
+                buffer.putInt(array.length);
+                for (String element : array) {
+                    writeString(buffer, element);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    public static Object readPayload(ByteBuffer buffer, byte type) {
+        switch (type) {
+            case TYPE_BOOLEAN: return buffer.get() != 0;
+            case TYPE_DOUBLE: return buffer.getDouble();
+            case TYPE_INTEGER: return buffer.getLong();
+            case TYPE_FLOAT: return buffer.getFloat();
+            case TYPE_STRING: return readString(buffer);
+            case TYPE_RAW: {
+                byte[] raw = new byte[buffer.getInt()];
+                buffer.get(raw);
+                return raw;
+            }
+            case TYPE_BOOLEAN_ARRAY: {
+                boolean[] array = new boolean[buffer.getInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = buffer.get() != 0;
+                }
+                return array;
+            }
+            case TYPE_DOUBLE_ARRAY: {
+                double[] array = new double[buffer.getInt()];
+                buffer.asDoubleBuffer().get(array);
+                buffer.position(buffer.position() + 8 * array.length);
+                return array;
+            }
+            case TYPE_INTEGER_ARRAY: {
+                long[] array = new long[buffer.getInt()];
+                buffer.asLongBuffer().get(array);
+                buffer.position(buffer.position() + 8 * array.length);
+                return array;
+            }
+            case TYPE_FLOAT_ARRAY: {
+                float[] array = new float[buffer.getInt()];
+                buffer.asFloatBuffer().get(array);
+                buffer.position(buffer.position() + 4 * array.length);
+                return array;
+            }
+            case TYPE_STRING_ARRAY: {
+                String[] array = new String[buffer.getInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readString(buffer);
+                }
+                return array;
+            }
+            default: throw new IllegalStateException("Unknown telemetry type tag: " + type);
+        }
+    }
+
+    // Advance past a payload without decoding it
+    public static void skipPayload(ByteBuffer buffer, byte type) {
+        switch (type) {
+            case TYPE_BOOLEAN -> buffer.position(buffer.position() + 1);
+            case TYPE_DOUBLE, TYPE_INTEGER -> buffer.position(buffer.position() + 8);
+            case TYPE_FLOAT -> buffer.position(buffer.position() + 4);
+            case TYPE_STRING, TYPE_RAW, TYPE_BOOLEAN_ARRAY -> skipBytes(buffer, buffer.getInt());
+            case TYPE_DOUBLE_ARRAY, TYPE_INTEGER_ARRAY -> skipBytes(buffer, 8 * buffer.getInt());
+            case TYPE_FLOAT_ARRAY -> skipBytes(buffer, 4 * buffer.getInt());
+            case TYPE_STRING_ARRAY -> {
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    skipBytes(buffer, buffer.getInt());
+                }
+            }
+            default -> throw new IllegalStateException("Unknown telemetry type tag: " + type);
+        }
+    }
+
+    // Takes the length as an argument so it is read before the position
+    private static void skipBytes(ByteBuffer buffer, int length) {
+        buffer.position(buffer.position() + length);
+    }
+
+    public static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+// Reads a session written by TelemetryRecorder.
+// Opening the session makes one pass over every segment to build a sparse time index. Every
+// KEYFRAME_INTERVAL index entries also store a keyframe: the position of the latest value record
+// of every topic at that point, so seeking only decodes one record per topic plus the records
+// between the keyframe and the target time.
+public class TelemetryLogReader implements ReplayLog {
+
+    private static final long INDEX_INTERVAL_MICROS = 1_000_000L;
+    private static final int KEYFRAME_INTERVAL = 5;
+
+    private static class IndexEntry {
+        final long timestamp;
+        final long position;
+        // Latest value record position per topic id, only set on keyframes
+        final long[] latestPositions;
+
+        IndexEntry(long timestamp, long position, long[] latestPositions) {
+            this.timestamp = timestamp;
+            this.position = position;
+            this.latestPositions = latestPositions;
+        }
+    }
+
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final List<IndexEntry> index = new ArrayList<>();
+
+    private String[] topicNames = new String[256];
+    private long startTimestamp = Long.MAX_VALUE;
+    private long endTimestamp = Long.MIN_VALUE;
+
+    // Cursor state
+    private int cursorSegment = 0;
+    private ByteBuffer cursor;
+
+    public TelemetryLogReader(Path sessionDirectory) throws IOException {
+        List<Path> segmentPaths;
+        try (Stream<Path> files = Files.list(sessionDirectory)) {
+            segmentPaths = files
+                .filter(path -> path.getFileName().toString().startsWith(TelemetryLogFormat.SEGMENT_PREFIX))
+                .filter(path -> path.getFileName().toString().endsWith(TelemetryLogFormat.SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+        }
+        if (segmentPaths.isEmpty()) {
+            throw new IOException("No telemetry segments in " + sessionDirectory);
+        }
+
+        for (Path segmentPath : segmentPaths) {
+            FileChannel channel = FileChannel.open(segmentPath);
+            channels.add(channel);
+
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            segment.order(TelemetryLogFormat.BYTE_ORDER);
+            if (segment.getInt(0) != TelemetryLogFormat.MAGIC || segment.getInt(4) != TelemetryLogFormat.VERSION) {
+                close();
+                throw new IOException("Not a telemetry segment: " + segmentPath);
+            }
+            long usedBytes = segment.getLong(TelemetryLogFormat.USED_BYTES_OFFSET);
+            segment.limit((int) Math.min(usedBytes, segment.capacity()));
+            segments.add(segment);
+        }
+
+        buildIndex();
+        seekToPosition(position(0, TelemetryLogFormat.HEADER_SIZE));
+    }
+
+    @Override
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    @Override
+    public long getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    public String getTopicName(int topicId) {
+        return topicId < topicNames.length ? topicNames[topicId] : null;
+    }
+
+    // Sessions do not store NT types
+    @Override
+    public void forEachTopic(BiConsumer<String, String> consumer) {
+        for (String topicName : topicNames) {
+            if (topicName != null) {
+                consumer.accept(topicName, null);
+            }
+        }
+    }
+
+    // Timestamp of the next value record without consuming it, Long.MAX_VALUE at the end of the log
+    @Override
+    public long peekTimestamp() {
+        if (!skipToNextValue()) {
+            return Long.MAX_VALUE;
+        }
+        return cursor.getLong(cursor.position() + 1 + 4);
+    }
+
+    // Decode the next value record and hand it to consumer, returns false at the end of the log
+    @Override
+    public boolean next(ValueConsumer consumer) {
+        if (!skipToNextValue()) {
+            return false;
+        }
+        cursor.get();
+        int topicId = cursor.getInt();
+        long timestamp = cursor.getLong();
+        byte type = cursor.get();
+        Object value = TelemetryLogFormat.readPayload(cursor, type);
+        consumer.accept(topicNames[topicId], timestamp, value);
+        return true;
+    }
+
+    // Restore the full state at the latest keyframe before timestamp, then replay every record up
+    // to and including timestamp. The cursor is left at the first record after timestamp.
+    @Override
+    public void seek(long timestamp, ValueConsumer consumer) {
+        IndexEntry keyframe = null;
+        for (IndexEntry entry : index) {
+            if (entry.timestamp > timestamp) {
+                break;
+            }
+            if (entry.latestPositions != null) {
+                keyframe = entry;
+            }
+        }
+
+        if (keyframe == null) {
+            seekToPosition(position(0, TelemetryLogFormat.HEADER_SIZE));
+        } else {
+            for (long recordPosition : keyframe.latestPositions) {
+                if (recordPosition >= 0) {
+                    seekToPosition(recordPosition);
+                    next(consumer);
+                }
+            }
+            seekToPosition(keyframe.position);
+        }
+
+        while (peekTimestamp() <= timestamp) {
+            next(consumer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    // Single pass over all records, skipping payloads without decoding them
+    private void buildIndex() {
+        long[] latestPositions = new long[topicNames.length];
+        Arrays.fill(latestPositions, -1);
+        long nextIndexTimestamp = Long.MIN_VALUE;
+
+        for (int segmentIndex = 0; segmentIndex < segments.size(); segmentIndex++) {
+            ByteBuffer segment = segments.get(segmentIndex).duplicate().order(TelemetryLogFormat.BYTE_ORDER);
+            segment.position(TelemetryLogFormat.HEADER_SIZE);
+
+            while (segment.hasRemaining()) {
+                int recordStart = segment.position();
+                byte kind = segment.get();
+                int topicId = segment.getInt();
+
+                if (kind == TelemetryLogFormat.RECORD_TOPIC) {
+                    String name = TelemetryLogFormat.readString(segment);
+                    if (topicId >= topicNames.length) {
+                        topicNames = Arrays.copyOf(topicNames, Math.max(topicId + 1, topicNames.length * 2));
+                    }
+                    topicNames[topicId] = name;
+                    continue;
+                }
+
+                long timestamp = segment.getLong();
+                byte type = segment.get();
+                TelemetryLogFormat.skipPayload(segment, type);
+
+                if (timestamp >= nextIndexTimestamp) {
+                    boolean keyframe = index.size() % KEYFRAME_INTERVAL == 0;
+                    index.add(new IndexEntry(timestamp, position(segmentIndex, recordStart), keyframe ? trimPositions(latestPositions) : null));
+                    nextIndexTimestamp = timestamp + INDEX_INTERVAL_MICROS;
+                }
+
+                if (topicId >= latestPositions.length) {
+                    int oldLength = latestPositions.length;
+                    latestPositions = Arrays.copyOf(latestPositions, Math.max(topicId + 1, oldLength * 2));
+                    Arrays.fill(latestPositions, oldLength, latestPositions.length, -1);
+                }
+                latestPositions[topicId] = position(segmentIndex, recordStart);
+
+                startTimestamp = Math.min(startTimestamp, timestamp);
+                endTimestamp = Math.max(endTimestamp, timestamp);
+            }
+        }
+
+        if (startTimestamp > endTimestamp) {
+            startTimestamp = 0;
+            endTimestamp = 0;
+        }
+    }
+
+    private static long[] trimPositions(long[] latestPositions) {
+        int length = latestPositions.length;
+        while (length > 0 && latestPositions[length - 1] < 0) {
+            length--;
+        }
+        return Arrays.copyOf(latestPositions, length);
+    }
+
+    // Move the cursor past dictionary records, returns false at the end of the log
+    private boolean skipToNextValue() {
+        while (true) {
+            if (!cursor.hasRemaining()) {
+                if (cursorSegment + 1 >= segments.size()) {
+                    return false;
+                }
+                seekToPosition(position(cursorSegment + 1, TelemetryLogFormat.HEADER_SIZE));
+                continue;
+            }
+            if (cursor.get(cursor.position()) == TelemetryLogFormat.RECORD_VALUE) {
+                return true;
+            }
+            cursor.get();
+            cursor.getInt();
+            cursor.position(cursor.position() + 4 + cursor.getInt(cursor.position()));
+        }
+    }
+
+    private void seekToPosition(long position) {
+        cursorSegment = (int) (position >>> 32);
+        cursor = segments.get(cursorSegment).duplicate().order(TelemetryLogFormat.BYTE_ORDER);
+        cursor.position((int) position);
+    }
+
+    // Segment index in the high half, byte offset in the low half
+    private static long position(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | offset;
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded lock-free multi-producer, single-consumer queue of value changes.
+// Slots are preallocated parallel arrays with a per-slot sequence number, so offering never
+// allocates or blocks: when the queue is full the sample is dropped and counted instead.
+public class TelemetryQueue {
+
+    @FunctionalInterface
+    public interface Drain {
+        void accept(String topic, long timestamp, Object value);
+    }
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final String[] topics;
+    private final long[] timestamps;
+    private final Object[] values;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Only touched by the consumer thread
+    private long head = 0;
+
+    public TelemetryQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        topics = new String[size];
+        timestamps = new long[size];
+        values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(String topic, long timestamp, Object value) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        topics[slot] = topic;
+        timestamps[slot] = timestamp;
+        values[slot] = value;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    // Consumer only, hands up to maxItems queued changes to drain and returns how many were drained
+    public int drain(Drain drain, int maxItems) {
+        int drained = 0;
+        while (drained < maxItems) {
+            int slot = (int) (head & mask);
+            if (sequences.get(slot) != head + 1) {
+                break;
+            }
+            String topic = topics[slot];
+            Object value = values[slot];
+            long timestamp = timestamps[slot];
+            topics[slot] = null;
+            values[slot] = null;
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+
+            drain.accept(topic, timestamp, value);
+            drained++;
+        }
+        return drained;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Appends every value change to memory-mapped, fixed size segment files in a session directory.
+// Ingestion only offers changes to a bounded lock-free queue; a dedicated writer thread encodes
+// them and forces the mapped segment to disk in batches, so the live dashboard never waits on I/O.
+// Closed segments are unmapped and truncated to their used length, so short sessions stay small.
+public class TelemetryRecorder {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final int DRAIN_BATCH = 4096;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Largest record header: kind, topic id, timestamp, type tag
+    private static final int VALUE_HEADER_SIZE = 1 + 4 + 8 + 1;
+
+    // The JDK only unmaps a buffer when it is collected, Unsafe.invokeCleaner does it right away
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.out.println("Recording segments will not be truncated: " + e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path sessionDirectory;
+    private final TelemetryQueue queue = new TelemetryQueue(QUEUE_CAPACITY);
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+    // Set when the writer stopped on an I/O error, values are no longer recorded
+    private volatile boolean failed = false;
+
+    // Writer thread state
+    private final Map<String, Integer> topicIds = new HashMap<>();
+    private boolean[] topicWrittenInSegment = new boolean[256];
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private int segmentIndex = 0;
+    private long lastFlushNanos = System.nanoTime();
+    private volatile long recordedCount = 0;
+
+    public TelemetryRecorder(Path sessionDirectory) throws IOException {
+        this.sessionDirectory = sessionDirectory;
+        Files.createDirectories(sessionDirectory);
+        openSegment();
+
+        writerThread = new Thread(this::writeLoop, "Telemetry Recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public Path getSessionDirectory() {
+        return sessionDirectory;
+    }
+
+    // Called on the ingestion thread, never blocks. Returns false if the change was dropped.
+    public boolean record(String topic, long timestamp, Object value) {
+        return running && queue.offer(topic, timestamp, value);
+    }
+
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    public long getRecordedCount() {
+        return recordedCount;
+    }
+
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    // Stops accepting changes, writes everything already queued and waits for the writer to finish
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (running) {
+                int drained = queue.drain(this::writeValue, DRAIN_BATCH);
+
+                long now = System.nanoTime();
+                if (now - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+                    flush();
+                    lastFlushNanos = now;
+                }
+                if (drained == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            while (queue.drain(this::writeValue, DRAIN_BATCH) > 0) {
+                // Write out whatever was queued before close
+            }
+            closeSegment();
+        } catch (IOException | UncheckedIOException e) {
+            running = false;
+            failed = true;
+            System.out.println("Telemetry recording stopped: " + e.getMessage());
+        } finally {
+            // Unmap and truncate what was written before the failure, a second failure changes nothing
+            if (failed && segment != null) {
+                try {
+                    closeSegment();
+                } catch (IOException | UncheckedIOException e) {
+                    // Already reported
+                }
+            }
+        }
+    }
+
+    private void writeValue(String topic, long timestamp, Object value) {
+        byte type = TelemetryLogFormat.typeOf(value);
+        if (type == 0) {
+            return;
+        }
+        try {
+            int payloadSize = TelemetryLogFormat.payloadSize(type, value);
+            int topicRecordSize = 1 + 4 + 4 + 3 * topic.length();
+
+            // Values that could never fit in a segment are skipped
+            if (VALUE_HEADER_SIZE + payloadSize + topicRecordSize > SEGMENT_SIZE - TelemetryLogFormat.HEADER_SIZE) {
+                return;
+            }
+            if (segment.remaining() < VALUE_HEADER_SIZE + payloadSize + topicRecordSize) {
+                openSegment();
+            }
+
+            int topicId = topicIds.computeIfAbsent(topic, key -> topicIds.size());
+            if (topicId >= topicWrittenInSegment.length) {
+                boolean[] grown = new boolean[Math.max(topicId + 1, topicWrittenInSegment.length * 2)];
+                System.arraycopy(topicWrittenInSegment, 0, grown, 0, topicWrittenInSegment.length);
+                topicWrittenInSegment = grown;
+            }
+            if (!topicWrittenInSegment[topicId]) {
+                segment.put(TelemetryLogFormat.RECORD_TOPIC);
+                segment.putInt(topicId);
+                TelemetryLogFormat.writeString(segment, topic);
+                topicWrittenInSegment[topicId] = true;
+            }
+
+            segment.put(TelemetryLogFormat.RECORD_VALUE);
+            segment.putInt(topicId);
+            segment.putLong(timestamp);
+            segment.put(type);
+            TelemetryLogFormat.writePayload(segment, type, value);
+            recordedCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Publish the used length in the header and force dirty pages to disk
+    private void flush() {
+        segment.putLong(TelemetryLogFormat.USED_BYTES_OFFSET, segment.position());
+        segment.force();
+    }
+
+    private void openSegment() throws IOException {
+        if (segment != null) {
+            closeSegment();
+            segmentIndex++;
+        }
+        Path segmentPath = sessionDirectory.resolve(TelemetryLogFormat.segmentName(segmentIndex));
+        segmentChannel = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        segment.order(TelemetryLogFormat.BYTE_ORDER);
+
+        segment.putInt(TelemetryLogFormat.MAGIC);
+        segment.putInt(TelemetryLogFormat.VERSION);
+        segment.putLong(TelemetryLogFormat.HEADER_SIZE);
+        Arrays.fill(topicWrittenInSegment, false);
+    }
+
+    // The segment is released even if the final flush fails
+    private void closeSegment() throws IOException {
+        try {
+            flush();
+        } finally {
+            int usedBytes = segment.position();
+            MappedByteBuffer closed = segment;
+            segment = null;
+            try {
+                // A file can only be shrunk once it is no longer mapped on Windows
+                if (unmap(closed)) {
+                    segmentChannel.truncate(usedBytes);
+                }
+            } finally {
+                segmentChannel.close();
+            }
+        }
+    }
+
+    // Returns false if the buffer is still mapped
+    private static boolean unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return false;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
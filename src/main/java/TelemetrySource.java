@@ -0,0 +1,19 @@
+// Where a NetworkTableManager connection gets its values from. Every source pushes changes through
+// its connection's ingestValue, so the tree, charts, field and recorder work the same
+// for live robot data and for replayed sessions.
+public interface TelemetrySource {
+
+    void start();
+
+    void stop();
+
+    boolean isConnected();
+
+    // Start receiving values for a widget's topics, sources that already hold every value ignore this
+    default void addSubscription(Subscription subscription) {}
+
+    default void removeSubscription(Subscription subscription) {}
+
+    // Current time on the source's clock in microseconds, same timebase as ingested timestamps
+    long getTime();
+}
@@ -0,0 +1,104 @@
+// Fixed capacity ring buffer of (timestamp, value) samples for one topic.
+// Samples are stored in primitive arrays allocated once, so recording never allocates.
+// Timestamps are NT server time in microseconds.
+public class TimeSeries {
+
+    @FunctionalInterface
+    public interface SampleConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    private final long[] timestamps;
+    private final double[] values;
+    private final long retentionMicros;
+
+    // Index the next sample is written to
+    private int head = 0;
+    private int size = 0;
+
+    public TimeSeries(int capacity, long retentionMicros) {
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+        this.retentionMicros = retentionMicros;
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        timestamps[head] = timestamp;
+        values[head] = value;
+        head = (head + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getLatestTimestamp() {
+        return size == 0 ? 0 : timestamps[index(size - 1)];
+    }
+
+    public synchronized double getLatestValue() {
+        return size == 0 ? Double.NaN : values[index(size - 1)];
+    }
+
+    // Copy up to the last count samples (oldest first) into the given arrays, returns the number copied
+    public synchronized int copyLatest(int count, long[] timestampsOut, double[] valuesOut) {
+        int copied = Math.min(count, Math.min(size, Math.min(timestampsOut.length, valuesOut.length)));
+        int first = size - copied;
+        for (int i = 0; i < copied; i++) {
+            int idx = index(first + i);
+            timestampsOut[i] = timestamps[idx];
+            valuesOut[i] = values[idx];
+        }
+        return copied;
+    }
+
+    // Visit samples inside [fromTimestamp, toTimestamp] that are still within the retention window, oldest first
+    public synchronized void forEach(long fromTimestamp, long toTimestamp, SampleConsumer consumer) {
+        if (size == 0) {
+            return;
+        }
+        long oldestRetained = timestamps[index(size - 1)] - retentionMicros;
+        long from = Math.max(fromTimestamp, oldestRetained);
+
+        for (int i = firstAtOrAfter(from); i < size; i++) {
+            int idx = index(i);
+            if (timestamps[idx] > toTimestamp) {
+                break;
+            }
+            consumer.accept(timestamps[idx], values[idx]);
+        }
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // Binary search over logical positions, samples are appended in timestamp order
+    private int firstAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[index(mid)] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Logical position (0 = oldest) to array index
+    private int index(int position) {
+        int start = head - size;
+        if (start < 0) {
+            start += timestamps.length;
+        }
+        int idx = start + position;
+        return idx >= timestamps.length ? idx - timestamps.length : idx;
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// History for tracked topics of one connection, fed by its NetworkTableManager on every value change
+public final class TimeSeriesStore {
+
+    // Highest per topic update rate the buffers are sized for, faster topics keep proportionally less than the retention
+    private static final int MAX_SAMPLE_RATE_HZ = Math.max(1, DashboardConfig.getInt("timeseries.maxRateHz", 100));
+
+    private final Map<String, TimeSeries> series = new ConcurrentHashMap<>();
+
+    private static volatile int retentionSeconds = Math.max(1, DashboardConfig.getInt("timeseries.retentionSeconds", 300));
+
+    // Shared by all connections, only affects topics tracked after the call
+    public static void setRetentionSeconds(int seconds) {
+        retentionSeconds = seconds;
+    }
+
+    public static int getRetentionSeconds() {
+        return retentionSeconds;
+    }
+
+    public TimeSeries track(String topic) {
+        return series.computeIfAbsent(topic, key -> {
+            int seconds = retentionSeconds;
+            return new TimeSeries(seconds * MAX_SAMPLE_RATE_HZ, seconds * 1_000_000L);
+        });
+    }
+
+    public void untrack(String topic) {
+        series.remove(topic);
+    }
+
+    public TimeSeries get(String topic) {
+        return series.get(topic);
+    }
+
+    public Set<String> getTrackedTopics() {
+        return series.keySet();
+    }
+
+    // Drop recorded history but keep tracking, e.g. when a replay seeks backwards
+    public void clear() {
+        for (TimeSeries timeSeries : series.values()) {
+            timeSeries.clear();
+        }
+    }
+
+    // Called on the ingestion thread, a no-op for untracked topics
+    public void record(String topic, long timestamp, double value) {
+        TimeSeries timeSeries = series.get(topic);
+        if (timeSeries != null) {
+            timeSeries.add(timestamp, value);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Snapshot of a connection's known topics and their last values.
+// Saved when the connection drops, when its source changes and when the dashboard closes. It is
+// loaded at startup, so the tree and widgets show the robot's layout before it is reachable.
+// Values loaded from a catalog are marked stale until live data replaces them.
+//
+// Layout: magic (int), version (int), topic count (int), then per topic: name (string),
+// type tag (byte, 0 when the topic has no value), server time (long), payload. Strings and
+// payloads are encoded as in TelemetryLogFormat.
+public final class TopicCatalog {
+
+    public static final int MAGIC = 0x43444354; // "CDCT"
+    public static final int VERSION = 1;
+
+    private static final Path CATALOG_DIRECTORY = Path.of(System.getProperty("user.home"), "ChickenDash", "catalog");
+
+    private TopicCatalog() {}
+
+    // One file per connection name
+    public static Path pathFor(String connectionName) {
+        return CATALOG_DIRECTORY.resolve(connectionName.replaceAll("[^A-Za-z0-9_-]", "_") + ".cdcat");
+    }
+
+    // Written to a temporary file first, so a crash never leaves a truncated catalog behind
+    public static void save(Path file, TopicRegistry registry, ValueStore values) throws IOException {
+        int topicCount = registry.size();
+        byte[][] encodedNames = new byte[topicCount][];
+        Object[] topicValues = new Object[topicCount];
+        long[] timestamps = new long[topicCount];
+
+        int size = 12;
+        for (int topicId = 0; topicId < topicCount; topicId++) {
+            encodedNames[topicId] = registry.nameOf(topicId).getBytes(StandardCharsets.UTF_8);
+            topicValues[topicId] = values.get(topicId);
+            timestamps[topicId] = values.getTimestamp(topicId);
+            byte type = TelemetryLogFormat.typeOf(topicValues[topicId]);
+            size += 4 + encodedNames[topicId].length + 1 + 8 + TelemetryLogFormat.payloadSize(type, topicValues[topicId]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(TelemetryLogFormat.BYTE_ORDER);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(topicCount);
+        for (int topicId = 0; topicId < topicCount; topicId++) {
+            byte type = TelemetryLogFormat.typeOf(topicValues[topicId]);
+            buffer.putInt(encodedNames[topicId].length);
+            buffer.put(encodedNames[topicId]);
+            buffer.put(type);
+            buffer.putLong(timestamps[topicId]);
+            TelemetryLogFormat.writePayload(buffer, type, topicValues[topicId]);
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, buffer.array());
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Pass every cataloged topic to consumer, with a null value for topics that had none.
+    // Returns false if there is no catalog yet.
+    public static boolean load(Path file, ReplayLog.ValueConsumer consumer) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(TelemetryLogFormat.BYTE_ORDER);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a topic catalog: " + file);
+            }
+            int topicCount = buffer.getInt();
+            for (int i = 0; i < topicCount; i++) {
+                String topic = TelemetryLogFormat.readString(buffer);
+                byte type = buffer.get();
+                long timestamp = buffer.getLong();
+                Object value = type == ValueStore.TYPE_NONE ? null : TelemetryLogFormat.readPayload(buffer, type);
+                consumer.accept(topic, timestamp, value);
+            }
+        } catch (BufferUnderflowException | IllegalStateException | NegativeArraySizeException e) {
+            throw new IOException("Truncated topic catalog: " + file, e);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+// Typed, lock-free read access to one topic's latest value in a ValueStore.
+// Handles are cheap and never change topic, so widgets resolve them once and keep them instead
+// of looking values up by name every frame.
+public final class TopicHandle {
+
+    private final ValueStore store;
+    private final int id;
+
+    TopicHandle(ValueStore store, int id) {
+        this.store = store;
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // Changes every time the value is written or cleared, 0 if it never was
+    public long getSequence() {
+        return store.getSequence(id);
+    }
+
+    // True while the value is a cached one that no source has confirmed yet
+    public boolean isStale() {
+        return store.isStale(id);
+    }
+
+    public boolean hasValue() {
+        return store.getType(id) != ValueStore.TYPE_NONE;
+    }
+
+    // TelemetryLogFormat type tag, ValueStore.TYPE_NONE without a value
+    public byte getType() {
+        return store.getType(id);
+    }
+
+    public boolean isNumber() {
+        byte type = store.getType(id);
+        return type == TelemetryLogFormat.TYPE_DOUBLE || type == TelemetryLogFormat.TYPE_FLOAT || type == TelemetryLogFormat.TYPE_INTEGER;
+    }
+
+    // Server time of the latest value in microseconds
+    public long getTimestamp() {
+        return store.getTimestamp(id);
+    }
+
+    public double getDouble(double defaultValue) {
+        return store.getDouble(id, defaultValue);
+    }
+
+    public long getInteger(long defaultValue) {
+        return store.getInteger(id, defaultValue);
+    }
+
+    public boolean getBoolean(boolean defaultValue) {
+        return store.getBoolean(id, defaultValue);
+    }
+
+    // String, raw or array value, null for other types
+    public Object getReference() {
+        return store.getReference(id);
+    }
+
+    // Boxed value, only meant for display
+    public Object get() {
+        return store.get(id);
+    }
+}
@@ -0,0 +1,376 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Case-insensitive search over topic names, updated one topic at a time as topics are announced.
+// A compressed trie answers prefix queries by walking the prefix and collecting the subtree below
+// it; an n-gram index answers substring queries by checking only the topics that contain the
+// query's rarest trigram, two character queries are answered by the bigram postings directly.
+// Globs take their candidates from whichever of the two is smaller for their literal text.
+//
+//   /Drive/Mod      topics starting with the text
+//   speed           topics containing the text anywhere
+//   */Module?/Spe*  whole name glob, * matches any run of characters including /, ? one character
+//
+// Topics get dense ids in the order they are added and results list ids in ascending order.
+// Not thread safe, the dashboard only touches it on the JavaFX thread.
+public final class TopicIndex {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    // Trie node, the edge label leads into the node from its parent
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        // Topics whose lowercased name ends here, more than one when names differ only in case
+        int[] topicIds = NO_MATCHES;
+        // Topics in this subtree
+        int count = 0;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            for (Node child : children) {
+                if (child.label.charAt(0) == first) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        void addTopic(int id) {
+            topicIds = Arrays.copyOf(topicIds, topicIds.length + 1);
+            topicIds[topicIds.length - 1] = id;
+        }
+
+        void addChild(Node child) {
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+        }
+
+        void replaceChild(Node oldChild, Node newChild) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == oldChild) {
+                    children[i] = newChild;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    // Ids of the topics containing one n-gram, ascending since ids only grow
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            // An n-gram repeated within one name is only listed once
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    private Node root = new Node("");
+    private final Map<Long, Postings> ngrams = new HashMap<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> lowerNames = new ArrayList<>();
+
+    // Index a topic and return its id, a known topic keeps its id
+    public int add(String topic) {
+        Integer existing = ids.get(topic);
+        if (existing != null) {
+            return existing;
+        }
+        int id = names.size();
+        String lower = topic.toLowerCase(Locale.ROOT);
+        ids.put(topic, id);
+        names.add(topic);
+        lowerNames.add(lower);
+        insert(lower, id);
+        for (int i = 0; i + 2 <= lower.length(); i++) {
+            ngrams.computeIfAbsent(bigram(lower, i), key -> new Postings()).add(id);
+            if (i + 3 <= lower.length()) {
+                ngrams.computeIfAbsent(trigram(lower, i), key -> new Postings()).add(id);
+            }
+        }
+        return id;
+    }
+
+    public void clear() {
+        root = new Node("");
+        ngrams.clear();
+        ids.clear();
+        names.clear();
+        lowerNames.clear();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    // Ids of the topics matching a prefix, substring or glob query
+    public int[] query(String query) {
+        String lower = query.toLowerCase(Locale.ROOT);
+        if (isGlob(lower)) {
+            return queryGlob(lower);
+        }
+        if (lower.startsWith("/")) {
+            return prefixMatches(lower, name -> true);
+        }
+        return substringMatches(lower);
+    }
+
+    // Whether one topic matches a query, for checking newly added topics against a shown filter
+    public boolean matches(int id, String query) {
+        String lower = query.toLowerCase(Locale.ROOT);
+        String name = lowerNames.get(id);
+        if (isGlob(lower)) {
+            return globMatches(lower, name);
+        }
+        return lower.startsWith("/") ? name.startsWith(lower) : name.contains(lower);
+    }
+
+    private static boolean isGlob(String query) {
+        return query.indexOf('*') >= 0 || query.indexOf('?') >= 0;
+    }
+
+    private void insert(String name, int id) {
+        Node node = root;
+        node.count++;
+        int position = 0;
+        while (position < name.length()) {
+            Node child = node.child(name.charAt(position));
+            if (child == null) {
+                Node leaf = new Node(name.substring(position));
+                leaf.addTopic(id);
+                leaf.count = 1;
+                node.addChild(leaf);
+                return;
+            }
+            String label = child.label;
+            int common = 0;
+            while (common < label.length() && position + common < name.length()
+                && label.charAt(common) == name.charAt(position + common)) {
+                common++;
+            }
+            if (common < label.length()) {
+                // Split the edge where the new name leaves it
+                Node split = new Node(label.substring(0, common));
+                split.count = child.count;
+                child.label = label.substring(common);
+                split.addChild(child);
+                node.replaceChild(child, split);
+                child = split;
+            }
+            child.count++;
+            node = child;
+            position += common;
+        }
+        node.addTopic(id);
+    }
+
+    // Trie node below which every name starts with prefix, null if no name does
+    private Node findPrefix(String prefix) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            Node child = node.child(prefix.charAt(position));
+            if (child == null) {
+                return null;
+            }
+            int length = Math.min(child.label.length(), prefix.length() - position);
+            if (!child.label.regionMatches(0, prefix, position, length)) {
+                return null;
+            }
+            position += length;
+            node = child;
+        }
+        return node;
+    }
+
+    // Topics starting with prefix that pass nameFilter, ascending
+    private int[] prefixMatches(String prefix, NameFilter nameFilter) {
+        Node node = findPrefix(prefix);
+        if (node == null) {
+            return NO_MATCHES;
+        }
+        // A broad prefix is cheaper to check name by name than to collect and sort
+        if (node.count * 4 > names.size()) {
+            return scan(name -> name.startsWith(prefix) && nameFilter.test(name));
+        }
+
+        int[] matches = new int[node.count];
+        int count = 0;
+        Node[] stack = new Node[16];
+        int depth = 0;
+        stack[depth++] = node;
+        while (depth > 0) {
+            Node current = stack[--depth];
+            for (int id : current.topicIds) {
+                if (nameFilter.test(lowerNames.get(id))) {
+                    matches[count++] = id;
+                }
+            }
+            for (Node child : current.children) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = child;
+            }
+        }
+        matches = Arrays.copyOf(matches, count);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    private int[] substringMatches(String text) {
+        if (text.length() < 2) {
+            return scan(name -> name.contains(text));
+        }
+        if (text.length() == 2) {
+            Postings postings = ngrams.get(bigram(text, 0));
+            return postings == null ? NO_MATCHES : Arrays.copyOf(postings.ids, postings.size);
+        }
+        Postings rarest = rarestTrigram(text, 0, text.length());
+        if (rarest == null) {
+            return NO_MATCHES;
+        }
+        return filter(rarest, name -> name.contains(text));
+    }
+
+    private int[] queryGlob(String pattern) {
+        NameFilter globFilter = name -> globMatches(pattern, name);
+
+        // Candidates from the literal text before the first wildcard or from the rarest trigram
+        // of any literal run, whichever lists fewer topics
+        int firstWildcard = 0;
+        while (pattern.charAt(firstWildcard) != '*' && pattern.charAt(firstWildcard) != '?') {
+            firstWildcard++;
+        }
+        String prefix = pattern.substring(0, firstWildcard);
+        Node prefixNode = findPrefix(prefix);
+        if (prefixNode == null) {
+            return NO_MATCHES;
+        }
+
+        Postings rarest = null;
+        for (int start = 0; start < pattern.length(); ) {
+            int end = start;
+            while (end < pattern.length() && pattern.charAt(end) != '*' && pattern.charAt(end) != '?') {
+                end++;
+            }
+            if (end - start >= 3) {
+                Postings postings = rarestTrigram(pattern, start, end);
+                if (postings == null) {
+                    return NO_MATCHES;
+                }
+                if (rarest == null || postings.size < rarest.size) {
+                    rarest = postings;
+                }
+            }
+            start = end + 1;
+        }
+
+        if (rarest != null && rarest.size < prefixNode.count) {
+            return filter(rarest, globFilter);
+        }
+        return prefixMatches(prefix, globFilter);
+    }
+
+    // Postings of the least common trigram of text[start, end), null if one never occurs
+    private Postings rarestTrigram(String text, int start, int end) {
+        Postings rarest = null;
+        for (int i = start; i + 3 <= end; i++) {
+            Postings postings = ngrams.get(trigram(text, i));
+            if (postings == null) {
+                return null;
+            }
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        return rarest;
+    }
+
+    private interface NameFilter {
+        boolean test(String lowerName);
+    }
+
+    private int[] filter(Postings candidates, NameFilter nameFilter) {
+        int[] matches = new int[candidates.size];
+        int count = 0;
+        for (int i = 0; i < candidates.size; i++) {
+            int id = candidates.ids[i];
+            if (nameFilter.test(lowerNames.get(id))) {
+                matches[count++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    // Queries too short for a trigram check every name
+    private int[] scan(NameFilter nameFilter) {
+        int[] matches = new int[16];
+        int count = 0;
+        for (int id = 0; id < lowerNames.size(); id++) {
+            if (nameFilter.test(lowerNames.get(id))) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private static long bigram(String text, int index) {
+        return (1L << 48) | ((long) text.charAt(index) << 16) | text.charAt(index + 1);
+    }
+
+    private static long trigram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    // Whole name glob match, backtracking only to the last * seen
+    static boolean globMatches(String pattern, String name) {
+        int p = 0;
+        int n = 0;
+        int starPattern = -1;
+        int starName = 0;
+        while (n < name.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+                p++;
+                n++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starPattern = p++;
+                starName = n;
+            } else if (starPattern >= 0) {
+                p = starPattern + 1;
+                n = ++starName;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+}
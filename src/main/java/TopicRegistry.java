@@ -0,0 +1,55 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Assigns every topic name a dense int id the first time it is seen.
+// Ids are never reused or removed, so they can index columns and arrays for the lifetime of the
+// registry. Name lookups are a single hash lookup; id to name is a plain array read.
+public final class TopicRegistry {
+
+    public static final int NO_ID = -1;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[256];
+    private volatile int size = 0;
+
+    // Id of a topic, registering it if it is new
+    public int idOf(String topicName) {
+        Integer id = ids.get(topicName);
+        if (id != null) {
+            return id;
+        }
+        return register(topicName);
+    }
+
+    // Id of a known topic, NO_ID if it was never registered
+    public int find(String topicName) {
+        Integer id = ids.get(topicName);
+        return id != null ? id : NO_ID;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    // Number of registered topics, ids are 0 to size - 1
+    public int size() {
+        return size;
+    }
+
+    private synchronized int register(String topicName) {
+        Integer existing = ids.get(topicName);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[id] = topicName;
+        // Publish the name before the size and the map entry so readers never see a missing name
+        size = id + 1;
+        ids.put(topicName, id);
+        return id;
+    }
+}
@@ -1,61 +1,133 @@
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Date;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-
+import java.util.Optional;
+import java.util.Set;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.chart.CategoryAxis;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
+import javafx.scene.control.Menu;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeTableCell;
 import javafx.scene.control.TreeTableColumn;
 import javafx.scene.control.TreeTableRow;
 import javafx.scene.control.TreeTableView;
-import javafx.scene.image.ImageView;
+import javafx.scene.image.Image;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
-import javafx.scene.layout.StackPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 
 public class UIController {
 
-    private final static double fieldLength = 708.0;
+    private static FieldRenderer fieldRenderer;
+
+    // Connection shown by the tree, the top bar controls and new charts act on it
+    private static NetworkTableManager treeConnection;
+
+    private static final String FOLDER_VALUE = "...";
 
-    private static GraphicsContext fieldGC;
+    // Array elements shown in the tree before the rest is left to the inspector
+    private static final int ARRAY_PREVIEW_ELEMENTS = 4;
 
+    // Rows whose value came from the topic catalog and was not confirmed by the robot yet
+    private static final String STALE_ROW_STYLE = "-fx-opacity: 0.5;";
+
+    // Value subscriptions of expanded folders, and folders whose subscription must be rebuilt
+    private static final double TREE_SUBSCRIPTION_PERIOD = 0.1;
+    private static Map<TreeItem<NTDataModel>, Subscription> folderSubscriptions = new HashMap<>();
+    private static Set<TreeItem<NTDataModel>> foldersToResubscribe = new LinkedHashSet<>();
+
+    // Path index: topic path without the leading "/" to its tree item, for both folders and leaves
     private static Map<String, TreeItem<NTDataModel>> treeItemMap = new HashMap<>();
+    // Full topic name to its leaf item, so repeat updates skip the path walk entirely
+    private static Map<String, TreeItem<NTDataModel>> topicItemMap = new HashMap<>();
+
+    // Search over the tree's topics, fed as leaves are created
+    private static TopicIndex topicIndex = new TopicIndex();
+    // Shown query, null while the full tree is shown
+    private static String filterQuery = null;
+    private static boolean filterDirty = false;
+    private static List<Subscription> filterSubscriptions = new ArrayList<>();
+    // Results up to this size open fully, larger ones open folder by folder
+    private static final int FILTER_EXPAND_LIMIT = 200;
 
     // Declare UI elements as instance variables
     private static Label robotStatus;
+    private static Label frameStatus;
+    private static Label metricsOverlay;
+    private static long shownSkippedFrames = 0;
+    private static Label alertBanner;
+    // Alert log count of each connection when the banner was last updated
+    private static Map<NetworkTableManager, Long> seenAlertCounts = new HashMap<>();
+    private static final int ALERT_MENU_EVENTS = 20;
     private static Button connectButton;
+    private static ToggleButton recordButton;
+    private static Button playPauseButton;
+    private static Slider replaySlider;
+    private static Label replayTime;
     private static ComboBox<String> autoSelector;
     private static GridPane chartGrid;
 
     private static TreeTableView<NTDataModel> treeTableView;
+    // Root of the full tree, the view shows a filtered root while a search is active
+    private static TreeItem<NTDataModel> treeRoot;
 
     // Declare values to track for graphing
-    private static final int MAX_DATA_POINTS = 10;
+    private static final int CHART_COLUMNS = 6;
+    private static final double CHART_WINDOW_SECONDS = 10.0;
+
+    // A topic of one connection, charts can mix topics of different connections
+    private record TrackedTopic(NetworkTableManager connection, String topic) {
+        // Signal name in the chart, prefixed by the connection once there is more than one
+        String label() {
+            return NetworkTableManager.getConnections().size() > 1 ? connection.getName() + ": " + topic : topic;
+        }
+    }
 
-    private static Map<String, XYChart.Series<String, Number>> trackedValues = new HashMap<>();
-    private static Map<String, LineChart<String, Number>> activeCharts = new HashMap<>();
+    // Tracked topic to the chart it is drawn in, a chart can hold several topics
+    private static Map<TrackedTopic, StripChart> trackedValues = new HashMap<>();
+    private static List<StripChart> activeCharts = new ArrayList<>();
 
-    final static SimpleDateFormat simpleDateFormat = new SimpleDateFormat("ss.SSS");
+    // Charts receive every change of their topics
+    private static final double CHART_SUBSCRIPTION_PERIOD = 0.02;
+    private static Map<TrackedTopic, Subscription> chartSubscriptions = new HashMap<>();
+    // Signal name each tracked topic was added to its chart with
+    private static Map<TrackedTopic, String> signalLabels = new HashMap<>();
 
     // **************************** DISPLAY ELEMENTS **************************** //
 
@@ -67,51 +139,76 @@ public class UIController {
 
         robotStatus = new Label("Robot: Connected");
 
-        TextField teamNumIPField = new TextField("localhost");
+        TextField teamNumIPField = new TextField(treeConnection.getAddress());
+
+        // Connection the tree and the controls next to it act on
+        ComboBox<NetworkTableManager> connectionSelector = new ComboBox<>();
+        connectionSelector.getItems().addAll(NetworkTableManager.getConnections());
+        connectionSelector.setValue(treeConnection);
+        connectionSelector.setOnAction(e -> {
+            NetworkTableManager selected = connectionSelector.getValue();
+            if (selected != null) {
+                setTreeConnection(selected);
+                teamNumIPField.setText(selected.getAddress());
+            }
+        });
+
+        Button addConnectionButton = new Button("+");
+        addConnectionButton.setOnAction(e -> {
+            int number = NetworkTableManager.getConnections().size() + 1;
+            while (NetworkTableManager.getConnection("Robot " + number) != null) {
+                number++;
+            }
+            NetworkTableManager connection = NetworkTableManager.open("Robot " + number, teamNumIPField.getText());
+            connection.useCatalog(TopicCatalog.pathFor(connection.getName()));
+            connectionSelector.getItems().add(connection);
+            connectionSelector.setValue(connection);
+        });
 
         connectButton = new Button("Connect");
         EventHandler<ActionEvent> connectEvent = new EventHandler<ActionEvent>() {
             public void handle(ActionEvent e) {
-                System.out.println("Connecting with id: " + teamNumIPField.getText());
-                NetworkTableManager.connectToNetworkTables(teamNumIPField.getText());
+                System.out.println("Connecting " + treeConnection.getName() + " with id: " + teamNumIPField.getText());
+                treeConnection.connectToNetworkTables(teamNumIPField.getText());
             }
         };
         connectButton.setOnAction(connectEvent);
 
+        recordButton = new ToggleButton("Record");
+        recordButton.setOnAction(e -> toggleRecording());
+
         Label battery = new Label("Battery: 99V");
         Label timer = new Label("Timer: 0:00");
+        frameStatus = new Label("Skipped frames: 0");
+
+        // Metrics overlay, hidden until toggled so it takes no space in the bar
+        metricsOverlay = new Label();
+        metricsOverlay.setStyle("-fx-text-fill: #f1c40f;");
+        metricsOverlay.managedProperty().bind(metricsOverlay.visibleProperty());
+        ToggleButton metricsButton = new ToggleButton("Metrics");
+        metricsOverlay.visibleProperty().bind(metricsButton.selectedProperty());
+
+        // Alert banner, hidden until a watch fires
+        alertBanner = new Label();
+        alertBanner.setStyle("-fx-background-color: #c0392b; -fx-text-fill: white; -fx-padding: 0 6 0 6;");
+        alertBanner.managedProperty().bind(alertBanner.visibleProperty());
+        alertBanner.setVisible(false);
+        alertBanner.setOnMouseClicked(e -> showAlertMenu(e.getScreenX(), e.getScreenY()));
 
         robotStatus.setStyle("-fx-text-fill: white;");
         battery.setStyle("-fx-text-fill: white;");
         timer.setStyle("-fx-text-fill: white;");
+        frameStatus.setStyle("-fx-text-fill: white;");
 
-        topBar.getChildren().addAll(robotStatus, teamNumIPField, connectButton, battery, timer);
+        topBar.getChildren().addAll(robotStatus, connectionSelector, addConnectionButton, teamNumIPField, connectButton, recordButton, battery, timer, frameStatus, metricsButton, metricsOverlay, alertBanner);
         return topBar;
     }
 
     // Create field view
-    public static StackPane createFieldView() {
-        StackPane fieldView = new StackPane();
-
-        final Canvas fieldCanvas = new Canvas();
-        ImageView fieldImage = new ImageView(UIController.class.getResource("/assets/crescendo-field.jpg").toExternalForm());
-        fieldImage.setRotate(180);
-        fieldImage.setPreserveRatio(true);
-
-        fieldImage.fitWidthProperty().bind(fieldView.widthProperty());
-        fieldImage.fitHeightProperty().bind(fieldView.heightProperty());
-
-        fieldCanvas.widthProperty().bind(fieldView.widthProperty());
-        fieldCanvas.heightProperty().bind(fieldView.heightProperty());
-
-        fieldView.setMinSize(100, 100);
-
-        fieldGC = fieldCanvas.getGraphicsContext2D();
-
-        fieldView.getChildren().addAll(fieldImage, fieldCanvas);
-        drawRobot(0, 0, 0);
-
-        return fieldView;
+    public static FieldRenderer createFieldView() {
+        Image fieldImage = new Image(UIController.class.getResource("/assets/crescendo-field.jpg").toExternalForm());
+        fieldRenderer = new FieldRenderer(fieldImage);
+        return fieldRenderer;
     }
 
     // Create network table viewer
@@ -120,13 +217,15 @@ public class UIController {
         treeTableView = new TreeTableView<>();
         treeTableView.setPrefWidth(350);
 
-        TreeItem<NTDataModel> rootItem = new TreeItem<>(new NTDataModel("NetworkTable", "..."));
+        TreeItem<NTDataModel> rootItem = new TreeItem<>(new NTDataModel("NetworkTable", null, FOLDER_VALUE));
+        treeRoot = rootItem;
         treeTableView.setRoot(rootItem);
         rootItem.setExpanded(true);
+        watchExpansion(rootItem);
 
         // Define columns
         TreeTableColumn<NTDataModel, String> keyColumn = new TreeTableColumn<>("NT Key");
-        TreeTableColumn<NTDataModel, String> valueColumn = new TreeTableColumn<>("NT Value");
+        TreeTableColumn<NTDataModel, Object> valueColumn = new TreeTableColumn<>("NT Value");
 
         keyColumn.prefWidthProperty().bind(treeTableView.widthProperty().multiply(0.7));
         valueColumn.prefWidthProperty().bind(treeTableView.widthProperty().multiply(0.3));
@@ -134,6 +233,16 @@ public class UIController {
         keyColumn.setCellValueFactory(param -> param.getValue().getValue().keyProperty());
         valueColumn.setCellValueFactory(param -> param.getValue().getValue().valueProperty());
 
+        // Values are only formatted by cells that are on screen, hidden rows just hold the raw value
+        valueColumn.setCellFactory(column -> new TreeTableCell<>() {
+            @Override
+            protected void updateItem(Object item, boolean empty) {
+                super.updateItem(item, empty);
+                // Topics nobody subscribed to yet have no value
+                setText(empty || item == null ? null : decodeValue(item));
+            }
+        });
+
         treeTableView.getColumns().add(keyColumn);
         treeTableView.getColumns().add(valueColumn);
 
@@ -142,30 +251,68 @@ public class UIController {
         
         MenuItem startTrackingItem = new MenuItem("Start Tracking Value");
 
+        Menu addToChartMenu = new Menu("Add To Chart");
+
         MenuItem stopTrackingItem = new MenuItem("Stop Tracking Value");
 
-        selectionContextMenu.getItems().addAll(startTrackingItem, stopTrackingItem);
+        MenuItem addWatchItem = new MenuItem("Add Watch...");
+
+        MenuItem inspectItem = new MenuItem("Inspect...");
+
+        selectionContextMenu.getItems().addAll(startTrackingItem, addToChartMenu, stopTrackingItem, addWatchItem, inspectItem);
 
         // Setup click events
         treeTableView.setRowFactory(tv -> {
-            TreeTableRow<NTDataModel> row = new TreeTableRow<>();
+            TreeTableRow<NTDataModel> row = new TreeTableRow<>() {
+                @Override
+                protected void updateItem(NTDataModel item, boolean empty) {
+                    super.updateItem(item, empty);
+                    styleProperty().unbind();
+                    if (empty || item == null) {
+                        setStyle("");
+                    } else {
+                        styleProperty().bind(Bindings.when(item.staleProperty()).then(STALE_ROW_STYLE).otherwise(""));
+                    }
+                }
+            };
             row.setOnMouseClicked(event -> {
                 if (event.getButton() == MouseButton.SECONDARY && !row.isEmpty()) {
                     NTDataModel selectedItem = row.getItem();
-                    String selectedValue = selectedItem.valueProperty().getValue();
+                    Object selectedValue = selectedItem.valueProperty().get();
 
                     TreeItem<NTDataModel> treeItem = row.getTreeItem();
                     if (treeItem != null) {
-                        String path = getPath(treeItem);
+                        String path = selectedItem.getTopic();
+
+                        boolean numeric = selectedValue instanceof Number;
+                        boolean watchable = numeric || selectedValue instanceof Boolean;
+                        boolean inspectable = ValueInspector.canInspect(selectedValue);
+                        if (path != null && (watchable || inspectable)) {
 
-                        if (!selectedValue.equals("...") && canBeDouble(selectedValue)) {
+                        // Booleans can be watched but not charted, arrays and raw values can only be inspected
+                        startTrackingItem.setDisable(!numeric);
+                        stopTrackingItem.setDisable(!numeric);
+                        addWatchItem.setDisable(!watchable);
+                        inspectItem.setDisable(!inspectable);
 
                         startTrackingItem.setOnAction( contextEvent -> {
-                            trackedValues.put(path, new XYChart.Series<String, Number>());
+                            startTracking(path, null);
                         });
 
+                        addToChartMenu.getItems().clear();
+                        for (StripChart chart : activeCharts) {
+                            MenuItem chartItem = new MenuItem(chart.getTitle());
+                            chartItem.setOnAction( contextEvent -> startTracking(path, chart));
+                            addToChartMenu.getItems().add(chartItem);
+                        }
+                        addToChartMenu.setDisable(!numeric || activeCharts.isEmpty());
+
+                        addWatchItem.setOnAction( contextEvent -> addWatch(path));
+
+                        inspectItem.setOnAction( contextEvent -> ValueInspector.show(treeConnection, path));
+
                         stopTrackingItem.setOnAction( contextEvent -> {
-                            trackedValues.remove(path);
+                            stopTracking(path);
                         });
 
                         selectionContextMenu.show(row, event.getScreenX(), event.getScreenY());
@@ -178,6 +325,17 @@ public class UIController {
         return treeTableView;
     }
 
+    // Tree with a search box above it
+    public static VBox createTopicBrowser(TreeTableView<NTDataModel> networkTableViewer) {
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search topics: text, /prefix or glob*");
+        searchField.textProperty().addListener((observable, oldQuery, newQuery) -> setTopicFilter(newQuery));
+
+        VBox topicBrowser = new VBox(searchField, networkTableViewer);
+        VBox.setVgrow(networkTableViewer, Priority.ALWAYS);
+        return topicBrowser;
+    }
+
     // Create control panel (model selector, auto selector, run button)
     public static HBox createControlPanel() {
         
@@ -194,6 +352,84 @@ public class UIController {
         return controlPanel;
     }
 
+    // Create replay controls (open session, play/pause, speed, seek bar)
+    public static HBox createReplayControls() {
+
+        HBox replayControls = new HBox(10);
+        replayControls.setPadding(new Insets(10));
+
+        CheckBox republishBox = new CheckBox("Republish");
+
+        Button openReplayButton = new Button("Open Replay");
+        openReplayButton.setOnAction(e -> {
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle("Open Recorded Session");
+            File sessionDirectory = chooser.showDialog(openReplayButton.getScene().getWindow());
+            if (sessionDirectory != null) {
+                try {
+                    treeConnection.startReplay(sessionDirectory.toPath(), republishBox.isSelected());
+                    System.out.println("Replaying: " + sessionDirectory);
+                } catch (IOException ex) {
+                    System.out.println("Could not open replay: " + ex.getMessage());
+                }
+            }
+        });
+
+        // Indexing a large log takes a moment, it is opened off the FX thread
+        Button openLogButton = new Button("Open Log");
+        openLogButton.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Open WPILib Log");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("WPILib logs", "*.wpilog"));
+            File logFile = chooser.showOpenDialog(openLogButton.getScene().getWindow());
+            if (logFile == null) {
+                return;
+            }
+            NetworkTableManager connection = treeConnection;
+            boolean republish = republishBox.isSelected();
+            Thread opener = new Thread(() -> {
+                long startNanos = System.nanoTime();
+                try {
+                    connection.startReplay(logFile.toPath(), republish);
+                    System.out.printf("Replaying: %s (indexed in %d ms)%n", logFile, (System.nanoTime() - startNanos) / 1_000_000);
+                } catch (IOException ex) {
+                    System.out.println("Could not open log: " + ex.getMessage());
+                }
+            }, "Log Index");
+            opener.setDaemon(true);
+            opener.start();
+        });
+
+        playPauseButton = new Button("Pause");
+        playPauseButton.setOnAction(e -> {
+            if (treeConnection.getSource() instanceof ReplaySource replaySource) {
+                replaySource.setPaused(!replaySource.isPaused());
+            }
+        });
+
+        ComboBox<Double> speedSelector = new ComboBox<>();
+        speedSelector.getItems().addAll(0.25, 0.5, 1.0, 2.0, 4.0, 8.0, 16.0);
+        speedSelector.setValue(1.0);
+        speedSelector.setOnAction(e -> {
+            if (treeConnection.getSource() instanceof ReplaySource replaySource) {
+                replaySource.setSpeed(speedSelector.getValue());
+            }
+        });
+
+        replaySlider = new Slider(0, 1, 0);
+        replaySlider.setPrefWidth(250);
+        replaySlider.setOnMouseReleased(e -> {
+            if (treeConnection.getSource() instanceof ReplaySource replaySource) {
+                replaySource.seek(replaySource.getStartTimestamp() + (long) (replaySlider.getValue() * 1_000_000L));
+            }
+        });
+
+        replayTime = new Label("--:--");
+
+        replayControls.getChildren().addAll(openReplayButton, openLogButton, republishBox, playPauseButton, new Label("Speed: "), speedSelector, replaySlider, replayTime);
+        return replayControls;
+    }
+
     // Create swerve module visualiztaion
     public static GridPane createValueTrackingCharts() {
         chartGrid = new GridPane();
@@ -206,40 +442,142 @@ public class UIController {
 
     // **************************** UPDATE ELEMENTS **************************** //
 
-    // Draw robot
-    public static void drawRobot(double x, double y, double rotation) {
-        fieldGC.save();
-        fieldGC.clearRect(0, 0, fieldGC.getCanvas().getWidth(), fieldGC.getCanvas().getHeight());
-
-        double resizeScaler = fieldGC.getCanvas().getWidth() / fieldLength;
+    // Follow replay progress unless the user is dragging the seek bar
+    public static void updateReplayControls() {
+        if (!(treeConnection.getSource() instanceof ReplaySource replaySource)) {
+            replayTime.setText("--:--");
+            return;
+        }
 
-        x = x * resizeScaler;
-        y = y * resizeScaler;
+        double durationSeconds = (replaySource.getEndTimestamp() - replaySource.getStartTimestamp()) / 1_000_000.0;
+        double positionSeconds = Math.min(durationSeconds, (replaySource.getTime() - replaySource.getStartTimestamp()) / 1_000_000.0);
 
-        double robotWidth = 30.0 * resizeScaler;
-        double robotHeight = 30.0 * resizeScaler;
+        replaySlider.setMax(durationSeconds);
+        if (!replaySlider.isValueChanging() && !replaySlider.isPressed()) {
+            replaySlider.setValue(positionSeconds);
+        }
+        playPauseButton.setText(replaySource.isPaused() ? "Play" : "Pause");
+        replayTime.setText(formatMatchTime(positionSeconds) + " / " + formatMatchTime(durationSeconds));
+    }
 
-        double halfRobotWidth = robotWidth / 2.0;
-        double halfRobotHeight = robotHeight / 2.0;
+    private static void toggleRecording() {
+        if (treeConnection.isRecording()) {
+            treeConnection.stopRecording();
+            recordButton.setSelected(false);
+            return;
+        }
 
+        String sessionName = treeConnection.getName().replaceAll("[^A-Za-z0-9_-]", "_") + "-session-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path sessionDirectory = Path.of(System.getProperty("user.home"), "ChickenDash", "recordings", sessionName);
         try {
-            fieldGC.translate(-y + (fieldGC.getCanvas().getWidth() / 2), -x + (fieldGC.getCanvas().getHeight() / 2)); // Switch X and Y because of field orientation
-            fieldGC.rotate(rotation);
+            treeConnection.startRecording(sessionDirectory);
+            System.out.println("Recording to: " + sessionDirectory);
+            recordButton.setSelected(true);
+        } catch (IOException e) {
+            System.out.println("Could not start recording: " + e.getMessage());
+            recordButton.setSelected(false);
+        }
+    }
+
+    // Add a robot or ghost pose to the field view, returns its index for updateRobotPose
+    public static int addFieldRobot(Color color, boolean ghost) {
+        return fieldRenderer.addRobot(color, ghost);
+    }
 
-            fieldGC.setFill(Color.RED);
-            fieldGC.setStroke(Color.RED);
+    public static void updateRobotPose(int robotIndex, double x, double y, double rotation) {
+        fieldRenderer.setPose(robotIndex, x, y, rotation);
+    }
 
-            fieldGC.fillPolygon(new double[]{-halfRobotWidth, halfRobotWidth, 0}, new double[]{-halfRobotHeight, -halfRobotHeight, halfRobotHeight}, 3);
-            fieldGC.strokePolygon(new double[]{-halfRobotWidth, halfRobotWidth, halfRobotWidth, -halfRobotWidth}, new double[]{-halfRobotHeight, -halfRobotHeight, halfRobotHeight, halfRobotHeight}, 4);
-        } finally {
-            fieldGC.restore();
-        }
+    // Redraw the field layers that changed since the last frame
+    public static void renderField() {
+        fieldRenderer.render();
     }
 
-    public static void updateStatusBar(boolean isConnected) {
+    public static void updateStatusBar(boolean isConnected, long skippedFrames) {
         if (robotStatus != null) {
             robotStatus.setText("Robot: " + (isConnected ? "Connected" : "Disconnected"));
         }
+        // Follows the shown connection, and clears itself when its recorder failed
+        if (recordButton != null && recordButton.isSelected() != treeConnection.isRecording()) {
+            recordButton.setSelected(!recordButton.isSelected());
+        }
+        if (frameStatus != null && skippedFrames != shownSkippedFrames) {
+            shownSkippedFrames = skippedFrames;
+            frameStatus.setText("Skipped frames: " + skippedFrames);
+        }
+    }
+
+    // Called once per metrics interval, the text is only built when the overlay is shown
+    public static void updateMetricsOverlay() {
+        if (metricsOverlay != null && metricsOverlay.isVisible()) {
+            metricsOverlay.setText(Metrics.formatInterval());
+        }
+    }
+
+    // Show the newest alert once any connection logged a new one
+    public static void updateAlerts() {
+        if (alertBanner == null) {
+            return;
+        }
+        AlertLog.Event newest = null;
+        NetworkTableManager newestConnection = null;
+        for (NetworkTableManager connection : NetworkTableManager.getConnections()) {
+            AlertLog log = connection.getWatchEngine().getLog();
+            long count = log.getWrittenCount();
+            Long seen = seenAlertCounts.put(connection, count);
+            if (seen != null && seen == count) {
+                continue;
+            }
+            List<AlertLog.Event> events = log.recent(1);
+            if (!events.isEmpty() && (newest == null || events.get(0).timestamp() > newest.timestamp())) {
+                newest = events.get(0);
+                newestConnection = connection;
+            }
+        }
+        if (newest != null) {
+            alertBanner.setText("Alert: " + formatAlert(newestConnection, newest));
+            alertBanner.setVisible(true);
+        }
+    }
+
+    private static String formatAlert(NetworkTableManager connection, AlertLog.Event event) {
+        String prefix = NetworkTableManager.getConnections().size() > 1 ? connection.getName() + ": " : "";
+        return String.format(Locale.ROOT, "%s%s (%s) = %.3f at %.2fs", prefix, event.watchName(), event.condition(), event.value(), event.timestamp() / 1_000_000.0);
+    }
+
+    // Recent alerts of every connection, newest first
+    private static void showAlertMenu(double screenX, double screenY) {
+        ContextMenu alertMenu = new ContextMenu();
+        for (NetworkTableManager connection : NetworkTableManager.getConnections()) {
+            for (AlertLog.Event event : connection.getWatchEngine().getLog().recent(ALERT_MENU_EVENTS)) {
+                alertMenu.getItems().add(new MenuItem(formatAlert(connection, event)));
+            }
+        }
+        MenuItem clearItem = new MenuItem("Clear");
+        clearItem.setOnAction(e -> {
+            for (NetworkTableManager connection : NetworkTableManager.getConnections()) {
+                connection.getWatchEngine().getLog().clear();
+            }
+            alertBanner.setVisible(false);
+        });
+        alertMenu.getItems().addAll(new SeparatorMenuItem(), clearItem);
+        alertMenu.show(alertBanner, screenX, screenY);
+    }
+
+    // Ask for a condition like "below 7" or "above 40 for 0.5" and watch the topic on the tree connection
+    private static void addWatch(String topic) {
+        TextInputDialog dialog = new TextInputDialog("above 0");
+        dialog.setTitle("Add Watch");
+        dialog.setHeaderText(topic);
+        dialog.setContentText("Condition:");
+        Optional<String> condition = dialog.showAndWait();
+        if (condition.isPresent()) {
+            try {
+                treeConnection.getWatchEngine().define(topic + " " + condition.get().trim(), topic, condition.get(), 0);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Watch not added: " + e.getMessage());
+            }
+        }
     }
 
     public static String updateAutoSelector(List<String> autoSelectionOptions) {
@@ -252,187 +590,365 @@ public class UIController {
         return autoSelector.getValue();
     }
 
-    public static void organizeNTTreeData(TreeTableView<NTDataModel> treeTableView, Map<String, Object> masterTable) {
+    // Apply only the topics that changed since the last update, cost is O(changed rows)
+    // Only touches tree items, so it also runs without a JavaFX toolkit (e.g. in benchmarks)
+    public static void organizeNTTreeData(TreeItem<NTDataModel> rootItem, Collection<String> changedTopics) {
 
-        TreeItem<NTDataModel> rootItem = treeTableView.getRoot();
+        for (String topic : changedTopics) {
+            TreeItem<NTDataModel> item = topicItemMap.get(topic);
+            if (item == null) {
+                item = createNestedTreeItems(rootItem, topic);
+                if (item == rootItem) {
+                    continue;
+                }
+                item.getValue().setTopic(topic);
+                topicItemMap.put(topic, item);
 
-        for (Map.Entry<String, Object> entry : masterTable.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            String valueString = decodeValue(value);
+                int indexId = topicIndex.add(topic);
+                if (filterQuery != null && topicIndex.matches(indexId, filterQuery)) {
+                    filterDirty = true;
+                }
 
-            if (treeItemMap.containsKey(key)) {
-                TreeItem<NTDataModel> item = treeItemMap.get(key);
-                item.getValue().valueProperty().set(valueString);
-            } else {
-                createNestedTreeItems(rootItem, key, valueString, "");
+                // The parent's value subscription lists its leaf children
+                if (item.getParent() != null) {
+                    foldersToResubscribe.add(item.getParent());
+                }
             }
+            item.getValue().valueProperty().set(treeConnection.getValue(topic));
+            item.getValue().staleProperty().set(treeConnection.isStale(topic));
+        }
+
+        if (filterDirty) {
+            filterDirty = false;
+            showFilteredTree();
         }
     }
 
-    // Tree Item class
-    public static class NTDataModel {
-        private final StringProperty key;
-        private final StringProperty value;
+    public static TreeItem<NTDataModel> getTreeRoot() {
+        return treeRoot;
+    }
 
-        public NTDataModel(String key, String value) {
-            this.key = new SimpleStringProperty(key);
-            this.value = new SimpleStringProperty(value);
+    public static NetworkTableManager getTreeConnection() {
+        return treeConnection;
+    }
+
+    // Show another connection in the tree, rebuilt from its known topics over the next frame
+    public static void setTreeConnection(NetworkTableManager connection) {
+        if (connection == treeConnection) {
+            return;
+        }
+        if (treeRoot != null) {
+            resetTree(treeRoot);
+        }
+        treeConnection = connection;
+        connection.markAllDirty();
+        if (filterQuery != null) {
+            showFilteredTree();
         }
+    }
 
-        public StringProperty keyProperty() {
-            return key;
+    // Remove every topic and folder below the root and drop their subscriptions
+    public static void resetTree(TreeItem<NTDataModel> rootItem) {
+        for (Subscription subscription : folderSubscriptions.values()) {
+            subscription.close();
         }
+        folderSubscriptions.clear();
+        foldersToResubscribe.clear();
+        treeItemMap.clear();
+        topicItemMap.clear();
+        topicIndex.clear();
+        closeFilterSubscriptions();
+        rootItem.getChildren().clear();
+    }
 
-        public StringProperty valueProperty() {
-            return value;
+    // Show only the topics matching a query, a blank query shows the full tree again
+    public static void setTopicFilter(String query) {
+        closeFilterSubscriptions();
+        if (query == null || query.isBlank()) {
+            filterQuery = null;
+            treeTableView.setRoot(treeRoot);
+            return;
         }
+        filterQuery = query.trim();
+        showFilteredTree();
     }
 
-    private static void createNestedTreeItems(TreeItem<NTDataModel> rootItem, String key, String value, String currentPath) {
+    // Only the root is built here, folders build their children when they are first expanded
+    private static void showFilteredTree() {
+        closeFilterSubscriptions();
+        int[] matches = topicIndex.query(filterQuery);
+        FilterFolder filterRoot = new FilterFolder(new NTDataModel("NetworkTable", null, matches.length + " matches"), matches, 0, matches.length <= FILTER_EXPAND_LIMIT);
+        filterRoot.setExpanded(true);
+        treeTableView.setRoot(filterRoot);
+    }
 
-        String trimmedKey = key.replaceFirst("^/", "");
-        String[] keyArray = trimmedKey.split("/", 2);
+    private static void closeFilterSubscriptions() {
+        for (Subscription subscription : filterSubscriptions) {
+            subscription.close();
+        }
+        filterSubscriptions.clear();
+    }
 
-        String[] filteredKeyArray = Arrays.stream(keyArray)
-                                                .filter(s -> !s.isEmpty())
-                                                .toArray(String[]::new);
-        
-        if (filteredKeyArray.length == 2) {
-            String newEntryName = filteredKeyArray[0];
-            String newKey = filteredKeyArray[1];
-            TreeItem<NTDataModel> item;
-            
-            String newPath = currentPath.isEmpty() ? newEntryName : currentPath + "/" + newEntryName;
-
-            // Check if this path segment already exists
-            if (treeItemMap.containsKey(newPath)) {
-                item = treeItemMap.get(newPath);
-            } else {
-                item = new TreeItem<>(new NTDataModel(newEntryName, "..."));
-                treeItemMap.put(newPath, item);
-                rootItem.getChildren().add(item);
+    // Folder of the filtered tree holding the index ids of the matches below it.
+    // Leaves share the full tree's data models, so their values stay current.
+    private static final class FilterFolder extends TreeItem<NTDataModel> {
+        private final int[] matches;
+        // Start of the remaining path in the matching topic names
+        private final int pathOffset;
+        private final boolean expandAll;
+        private boolean built = false;
+
+        FilterFolder(NTDataModel model, int[] matches, int pathOffset, boolean expandAll) {
+            super(model);
+            this.matches = matches;
+            this.pathOffset = pathOffset;
+            this.expandAll = expandAll;
+            setExpanded(expandAll);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+
+        @Override
+        public ObservableList<TreeItem<NTDataModel>> getChildren() {
+            if (!built) {
+                built = true;
+                super.getChildren().setAll(buildChildren());
             }
-            createNestedTreeItems(item, newKey, value, newPath);
+            return super.getChildren();
+        }
 
-        } else if (filteredKeyArray.length == 1) {
-            String entryName = filteredKeyArray[0];
-            String fullPath = currentPath.isEmpty() ? entryName : currentPath + "/" + entryName;
+        // Group the matches by their next path segment
+        private List<TreeItem<NTDataModel>> buildChildren() {
+            Map<String, List<Integer>> folders = new LinkedHashMap<>();
+            Map<String, Integer> folderOffsets = new HashMap<>();
+            List<TreeItem<NTDataModel>> children = new ArrayList<>();
+            List<String> leafTopics = new ArrayList<>();
+            for (int id : matches) {
+                String topic = topicIndex.nameOf(id);
+                int start = pathOffset;
+                while (start < topic.length() && topic.charAt(start) == '/') {
+                    start++;
+                }
+                int slash = topic.indexOf('/', start);
+                if (slash < 0 || slash == topic.length() - 1) {
+                    TreeItem<NTDataModel> leaf = topicItemMap.get(topic);
+                    if (leaf != null) {
+                        children.add(new TreeItem<>(leaf.getValue()));
+                        leafTopics.add(topic);
+                    }
+                } else {
+                    String segment = topic.substring(start, slash);
+                    folders.computeIfAbsent(segment, key -> new ArrayList<>()).add(id);
+                    folderOffsets.putIfAbsent(segment, slash + 1);
+                }
+            }
+            for (Map.Entry<String, List<Integer>> folder : folders.entrySet()) {
+                int[] folderMatches = folder.getValue().stream().mapToInt(Integer::intValue).toArray();
+                children.add(new FilterFolder(new NTDataModel(folder.getKey(), null, FOLDER_VALUE), folderMatches, folderOffsets.get(folder.getKey()), expandAll));
+            }
+            if (!leafTopics.isEmpty()) {
+                filterSubscriptions.add(treeConnection.subscribe(leafTopics.toArray(new String[0]), TREE_SUBSCRIPTION_PERIOD, false));
+            }
+            return children;
+        }
+    }
 
+    // Subscribe to the values of every expanded, visible folder's leaf children at the tree rate
+    // and drop the subscriptions of folders that were collapsed or hidden by a collapsed parent
+    public static void updateTreeSubscriptions() {
+        for (TreeItem<NTDataModel> folder : foldersToResubscribe) {
+            Subscription oldSubscription = folderSubscriptions.remove(folder);
+            if (oldSubscription != null) {
+                oldSubscription.close();
+            }
+            if (!isShowingChildren(folder)) {
+                continue;
+            }
 
-            // For leaf nodes, use full key for map
-            if (treeItemMap.containsKey(fullPath)) {
-                TreeItem<NTDataModel> existingItem = treeItemMap.get(fullPath);
-                existingItem.getValue().valueProperty().set(value);
-            } else {
-                TreeItem<NTDataModel> newItem = new TreeItem<>(new NTDataModel(entryName, value));
-                treeItemMap.put(fullPath, newItem);
-                rootItem.getChildren().add(newItem);
+            List<String> leafTopics = new ArrayList<>();
+            for (TreeItem<NTDataModel> child : folder.getChildren()) {
+                if (child.getValue().getTopic() != null) {
+                    leafTopics.add(child.getValue().getTopic());
+                }
+            }
+            if (!leafTopics.isEmpty()) {
+                folderSubscriptions.put(folder, treeConnection.subscribe(leafTopics.toArray(new String[0]), TREE_SUBSCRIPTION_PERIOD, false));
             }
         }
+        foldersToResubscribe.clear();
     }
 
-    // Track all values
-    public static void updateTrackedValues() {
+    // Expanding or collapsing a folder changes the visibility of every expanded folder below it
+    private static void watchExpansion(TreeItem<NTDataModel> folder) {
+        folder.expandedProperty().addListener((observable, wasExpanded, isExpanded) -> markSubtreeForResubscribe(folder));
+    }
+
+    private static void markSubtreeForResubscribe(TreeItem<NTDataModel> folder) {
+        foldersToResubscribe.add(folder);
+        for (TreeItem<NTDataModel> child : folder.getChildren()) {
+            if (child.isExpanded()) {
+                markSubtreeForResubscribe(child);
+            }
+        }
+    }
+
+    private static boolean isShowingChildren(TreeItem<NTDataModel> folder) {
+        for (TreeItem<NTDataModel> item = folder; item != null; item = item.getParent()) {
+            if (!item.isExpanded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Tree Item class
+    public static class NTDataModel {
+        private final StringProperty key;
+        private final ObjectProperty<Object> value;
+        private final BooleanProperty stale = new SimpleBooleanProperty(false);
+        private String topic;
 
-        final int COLUMNS = 6;
+        public NTDataModel(String key, String topic, Object value) {
+            this.key = new SimpleStringProperty(key);
+            this.topic = topic;
+            this.value = new SimpleObjectProperty<>(value);
+        }
 
-        int row = 0;
-        int col = 0;
+        public StringProperty keyProperty() {
+            return key;
+        }
 
-        for (Map.Entry<String, XYChart.Series<String, Number>> entry : trackedValues.entrySet()) {
+        // Raw decoded NT value, formatted lazily by the value column cells
+        public ObjectProperty<Object> valueProperty() {
+            return value;
+        }
 
-            String topicName = entry.getKey();
-            XYChart.Series<String, Number> currentValuesSeries = entry.getValue();
+        // Value is cached and not confirmed by the source yet
+        public BooleanProperty staleProperty() {
+            return stale;
+        }
 
-            LineChart<String, Number> lineChart = activeCharts.get(topicName);
-            if (lineChart == null) {
-                // Create chart
-                CategoryAxis xAxis = new CategoryAxis();
-                NumberAxis yAxis = new NumberAxis();
+        // Full NT topic name, null for folders
+        public String getTopic() {
+            return topic;
+        }
 
-                xAxis.setAnimated(false);
-                yAxis.setAnimated(false);
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+    }
 
-                lineChart = new LineChart<>(xAxis, yAxis);
-                lineChart.getData().add(currentValuesSeries);
+    // Find or create the tree item for a topic, creating only the missing parent folders
+    private static TreeItem<NTDataModel> createNestedTreeItems(TreeItem<NTDataModel> rootItem, String topic) {
 
-                lineChart.setTitle(topicName);
-                lineChart.setStyle("-fx-font-size: " + 6 + "px;");
-                lineChart.setCreateSymbols(false);
-                lineChart.setAnimated(false);
-                lineChart.setMaxHeight(50);
+        int start = 0;
+        int end = topic.length();
+        while (start < end && topic.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && topic.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (start == end) {
+            return rootItem;
+        }
 
-                currentValuesSeries.getNode().setStyle("-fx-stroke: blue; -fx-stroke-width: 2px;");
+        String path = (start == 0 && end == topic.length()) ? topic : topic.substring(start, end);
 
-                // Calculate grid position
-                col = activeCharts.size() % COLUMNS;
-                row = activeCharts.size() / COLUMNS;
+        TreeItem<NTDataModel> item = treeItemMap.get(path);
+        if (item != null) {
+            return item;
+        }
 
-                // Add to display and activeCharts
-                chartGrid.add(lineChart, col, row);
-                activeCharts.put(topicName, lineChart);
-            }
+        int slash = path.lastIndexOf('/');
+        TreeItem<NTDataModel> parentItem = slash < 0 ? rootItem : createNestedTreeItems(rootItem, path.substring(0, slash));
 
-            // Get new NT value and add to series
-            Object currentValue = NetworkTableManager.getValue(topicName);
+        item = new TreeItem<>(new NTDataModel(path.substring(slash + 1), null, FOLDER_VALUE));
+        watchExpansion(item);
+        treeItemMap.put(path, item);
+        parentItem.getChildren().add(item);
+        return item;
+    }
 
-            Date now = new Date();
-            currentValuesSeries.getData().add(new XYChart.Data<>(simpleDateFormat.format(now), (double) currentValue));
+    // Start tracking a topic of the tree's connection in an existing chart, or in a new chart when chart is null
+    private static void startTracking(String topicName, StripChart chart) {
+        TrackedTopic tracked = new TrackedTopic(treeConnection, topicName);
+        if (chart != null && trackedValues.get(tracked) == chart) {
+            return;
+        }
+        stopTracking(topicName);
 
-            // Trim series if it's too long
-            if (currentValuesSeries.getData().size() > MAX_DATA_POINTS) {
-                currentValuesSeries.getData().remove(0);
-            }
-            trackedValues.put(topicName, currentValuesSeries);
-        }
-
-        activeCharts.keySet().removeIf(topicName -> {
-            if (!trackedValues.containsKey(topicName)) {
-                LineChart<String, Number> chartToRemove = activeCharts.get(topicName);
-                chartGrid.getChildren().remove(chartToRemove);
-
-                // Reposition remaining charts to fill gaps
-                int index = 0;
-                for (LineChart<String, Number> chart : activeCharts.values()) {
-                    if (chart != chartToRemove) {
-                        int newCol = index % COLUMNS;
-                        int newRow = index / COLUMNS;
-                        GridPane.setColumnIndex(chart, newCol);
-                        GridPane.setRowIndex(chart, newRow);
-                        index++;
-                    }
-                }
-                return true;
+        // Seed with the current value so topics that rarely change still plot
+        TimeSeries timeSeries = treeConnection.getTimeSeriesStore().track(topicName);
+        TopicHandle handle = treeConnection.getHandle(topicName);
+        if (handle.isNumber()) {
+            timeSeries.add(treeConnection.getServerTime(), handle.getDouble(0.0));
+        }
+
+        String label = tracked.label();
+        if (chart == null) {
+            chart = new StripChart(label);
+            chart.setWindowSeconds(CHART_WINDOW_SECONDS);
+
+            // Calculate grid position
+            int col = activeCharts.size() % CHART_COLUMNS;
+            int row = activeCharts.size() / CHART_COLUMNS;
+
+            // Add to display and activeCharts
+            chartGrid.add(chart, col, row);
+            activeCharts.add(chart);
+        }
+        chart.addSignal(label, timeSeries);
+        trackedValues.put(tracked, chart);
+        signalLabels.put(tracked, label);
+        chartSubscriptions.put(tracked, treeConnection.subscribe(new String[] {topicName}, CHART_SUBSCRIPTION_PERIOD, true));
+    }
+
+    private static void stopTracking(String topicName) {
+        TrackedTopic tracked = new TrackedTopic(treeConnection, topicName);
+        StripChart chart = trackedValues.remove(tracked);
+        if (chart == null) {
+            return;
+        }
+        treeConnection.getTimeSeriesStore().untrack(topicName);
+        chartSubscriptions.remove(tracked).close();
+        chart.removeSignal(signalLabels.remove(tracked));
+
+        if (chart.isEmpty()) {
+            chartGrid.getChildren().remove(chart);
+            activeCharts.remove(chart);
+
+            // Reposition remaining charts to fill gaps
+            for (int index = 0; index < activeCharts.size(); index++) {
+                GridPane.setColumnIndex(activeCharts.get(index), index % CHART_COLUMNS);
+                GridPane.setRowIndex(activeCharts.get(index), index / CHART_COLUMNS);
             }
-            return false;
-        });
+        }
     }
 
-    // **************************** UTILS **************************** //
+    // Redraw all tracked values from the time-series store
+    public static void updateTrackedValues() {
+        for (StripChart chart : activeCharts) {
+            chart.redraw();
+        }
+    }
 
-    private static String getPath(TreeItem<NTDataModel> item) {
-        StringBuilder pathBuilder = new StringBuilder();
-        TreeItem<NTDataModel> current = item;
+    // **************************** UTILS **************************** //
 
-        while (current != null) {
-            pathBuilder.insert(0, "/" + current.getValue().keyProperty().getValue());
-            current = current.getParent();
-        }
-        return pathBuilder.length() > 0 ? pathBuilder.substring(1).replace("NetworkTable", "") : "";
+    private static String formatMatchTime(double seconds) {
+        int totalSeconds = (int) seconds;
+        return String.format("%d:%02d", totalSeconds / 60, totalSeconds % 60);
     }
 
     // Helper method to decode entries
+    // Arrays and raw values show their type, length and first elements, the full value is in the inspector
     private static String decodeValue(Object value) {
         String valueString;
-        if (value instanceof String[]) {
-            valueString = Arrays.toString((String[]) value);
-        } else if (value instanceof double[]) {
-            valueString = Arrays.toString((double[]) value);
-        } else if (value instanceof boolean[]) {
-            valueString = Arrays.toString((boolean[]) value);
-        } else if (value instanceof List) {
-            valueString = value.toString();
+        if (ValueInspector.canInspect(value)) {
+            valueString = ValueInspector.summarize(value, ARRAY_PREVIEW_ELEMENTS);
         } else if (value != null) {
             valueString = value.toString();
         } else {
@@ -440,14 +956,4 @@ public class UIController {
         }
         return valueString;
     }
-
-    // Helper method to determine if value can be a double
-    public static boolean canBeDouble(String str) {
-        try {
-            Double.parseDouble(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
 }
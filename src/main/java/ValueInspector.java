@@ -0,0 +1,294 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+// Window showing one array or raw topic element by element.
+// The value is read straight from the connection's ValueStore and never copied. Rows are split into
+// pages and the ListView only creates cells for the visible rows, so each refresh formats a screenful
+// of elements however long the array is. Elements that differ from the previously shown value are
+// highlighted. Raw values are shown as hex, 16 bytes per row.
+public final class ValueInspector {
+
+    private static final int PAGE_ROWS = 1000;
+    private static final int BYTES_PER_ROW = 16;
+    private static final double SUBSCRIPTION_PERIOD = 0.1;
+    private static final String CHANGED_STYLE = "-fx-background-color: #f9e79f;";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final List<ValueInspector> openInspectors = new ArrayList<>();
+
+    private final NetworkTableManager connection;
+    private final String topic;
+    private final TopicHandle handle;
+    private final Subscription subscription;
+    private final Stage stage = new Stage();
+    private final Label summary = new Label();
+    private final Label pageLabel = new Label();
+    private final ObservableList<Integer> pageRows = FXCollections.observableArrayList();
+    private final ListView<Integer> rowView = new ListView<>(pageRows);
+
+    // Shown value and the one shown before it, both owned by the ValueStore
+    private Object current;
+    private Object previous;
+    private long shownSequence = -1;
+    private int page = 0;
+
+    private ValueInspector(NetworkTableManager connection, String topic) {
+        this.connection = connection;
+        this.topic = topic;
+        this.handle = connection.getHandle(topic);
+        this.subscription = connection.subscribe(new String[] {topic}, SUBSCRIPTION_PERIOD, false);
+
+        rowView.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Integer row, boolean empty) {
+                super.updateItem(row, empty);
+                if (empty || row == null || current == null) {
+                    setText(null);
+                    setStyle("");
+                    return;
+                }
+                setText(formatRow(current, row));
+                setStyle(rowChanged(row) ? CHANGED_STYLE : "");
+            }
+        });
+        rowView.setStyle("-fx-font-family: monospace;");
+        VBox.setVgrow(rowView, Priority.ALWAYS);
+
+        Button previousPage = new Button("<");
+        previousPage.setOnAction(e -> showPage(page - 1));
+        Button nextPage = new Button(">");
+        nextPage.setOnAction(e -> showPage(page + 1));
+        HBox pager = new HBox(10, previousPage, pageLabel, nextPage);
+
+        VBox root = new VBox(5, summary, pager, rowView);
+        root.setPadding(new Insets(10));
+        stage.setScene(new Scene(root, 520, 600));
+        stage.setTitle(NetworkTableManager.getConnections().size() > 1 ? connection.getName() + ": " + topic : topic);
+        stage.setOnHidden(e -> close());
+    }
+
+    // Open an inspector for a topic of a connection, or bring its open one to the front
+    public static void show(NetworkTableManager connection, String topic) {
+        for (ValueInspector inspector : openInspectors) {
+            if (inspector.connection == connection && inspector.topic.equals(topic)) {
+                inspector.stage.toFront();
+                return;
+            }
+        }
+        ValueInspector inspector = new ValueInspector(connection, topic);
+        openInspectors.add(inspector);
+        inspector.update();
+        inspector.stage.show();
+    }
+
+    // Called from the frame loop, only inspectors whose value changed format anything
+    public static void updateAll() {
+        for (ValueInspector inspector : openInspectors) {
+            inspector.update();
+        }
+    }
+
+    public static boolean canInspect(Object value) {
+        return value != null && value.getClass().isArray();
+    }
+
+    private void update() {
+        long sequence = handle.getSequence();
+        if (sequence == shownSequence) {
+            return;
+        }
+        shownSequence = sequence;
+        previous = current;
+        current = handle.getReference();
+
+        summary.setText(current == null ? "No value" : summarize(current, 0)
+            + String.format(Locale.ROOT, "   at %.3fs", handle.getTimestamp() / 1_000_000.0));
+        int pages = Math.max(1, (rowCount() + PAGE_ROWS - 1) / PAGE_ROWS);
+        if (page >= pages || pageRows.size() != rowsOnPage(page)) {
+            showPage(Math.min(page, pages - 1));
+        } else {
+            // Only the visible cells are updated
+            rowView.refresh();
+        }
+    }
+
+    private void showPage(int newPage) {
+        int pages = Math.max(1, (rowCount() + PAGE_ROWS - 1) / PAGE_ROWS);
+        page = Math.max(0, Math.min(newPage, pages - 1));
+        int firstRow = page * PAGE_ROWS;
+        List<Integer> rows = new ArrayList<>();
+        for (int row = firstRow; row < firstRow + rowsOnPage(page); row++) {
+            rows.add(row);
+        }
+        pageRows.setAll(rows);
+        pageLabel.setText("Page " + (page + 1) + " of " + pages);
+    }
+
+    private int rowCount() {
+        if (current == null) {
+            return 0;
+        }
+        int length = lengthOf(current);
+        return current instanceof byte[] ? (length + BYTES_PER_ROW - 1) / BYTES_PER_ROW : length;
+    }
+
+    private int rowsOnPage(int pageIndex) {
+        return Math.max(0, Math.min(PAGE_ROWS, rowCount() - pageIndex * PAGE_ROWS));
+    }
+
+    private boolean rowChanged(int row) {
+        if (previous == null) {
+            return false;
+        }
+        if (current instanceof byte[] bytes) {
+            int end = Math.min(bytes.length, (row + 1) * BYTES_PER_ROW);
+            for (int index = row * BYTES_PER_ROW; index < end; index++) {
+                if (elementChanged(previous, current, index)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return elementChanged(previous, current, row);
+    }
+
+    private void close() {
+        openInspectors.remove(this);
+        subscription.close();
+    }
+
+    // "double[480] [1.0, 2.5, 3.0, 4.0, ...]", a type, length and preview without formatting the whole array
+    static String summarize(Object array, int previewElements) {
+        int length = lengthOf(array);
+        StringBuilder text = new StringBuilder(typeName(array)).append('[').append(length).append(']');
+        if (previewElements <= 0) {
+            return text.toString();
+        }
+        int shown = Math.min(length, previewElements);
+        text.append(' ');
+        if (array instanceof byte[] bytes) {
+            for (int index = 0; index < shown; index++) {
+                appendHex(text.append(index == 0 ? "" : " "), bytes[index]);
+            }
+            return text.append(length > shown ? " ..." : "").toString();
+        }
+        text.append('[');
+        for (int index = 0; index < shown; index++) {
+            text.append(index == 0 ? "" : ", ").append(formatElement(array, index));
+        }
+        return text.append(length > shown ? ", ...]" : "]").toString();
+    }
+
+    static int lengthOf(Object array) {
+        if (array instanceof double[] doubles) {
+            return doubles.length;
+        } else if (array instanceof float[] floats) {
+            return floats.length;
+        } else if (array instanceof long[] longs) {
+            return longs.length;
+        } else if (array instanceof boolean[] booleans) {
+            return booleans.length;
+        } else if (array instanceof String[] strings) {
+            return strings.length;
+        } else if (array instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        return 0;
+    }
+
+    private static String typeName(Object array) {
+        if (array instanceof double[]) {
+            return "double";
+        } else if (array instanceof float[]) {
+            return "float";
+        } else if (array instanceof long[]) {
+            return "int";
+        } else if (array instanceof boolean[]) {
+            return "boolean";
+        } else if (array instanceof String[]) {
+            return "string";
+        }
+        return "raw";
+    }
+
+    private static String formatElement(Object array, int index) {
+        if (array instanceof double[] doubles) {
+            return Double.toString(doubles[index]);
+        } else if (array instanceof float[] floats) {
+            return Float.toString(floats[index]);
+        } else if (array instanceof long[] longs) {
+            return Long.toString(longs[index]);
+        } else if (array instanceof boolean[] booleans) {
+            return Boolean.toString(booleans[index]);
+        } else if (array instanceof String[] strings) {
+            return strings[index];
+        }
+        return "";
+    }
+
+    // One row of the inspector, "[12] 3.5" or "000010  0a 1b ... |..text..|"
+    private static String formatRow(Object array, int row) {
+        if (!(array instanceof byte[] bytes)) {
+            return row < lengthOf(array) ? "[" + row + "] " + formatElement(array, row) : "";
+        }
+        int start = row * BYTES_PER_ROW;
+        int end = Math.min(bytes.length, start + BYTES_PER_ROW);
+        StringBuilder text = new StringBuilder(80);
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            text.append(HEX_DIGITS[(start >>> shift) & 0xF]);
+        }
+        text.append(' ');
+        for (int index = start; index < start + BYTES_PER_ROW; index++) {
+            text.append(' ');
+            if (index < end) {
+                appendHex(text, bytes[index]);
+            } else {
+                text.append("  ");
+            }
+        }
+        text.append("  |");
+        for (int index = start; index < end; index++) {
+            char c = (char) (bytes[index] & 0xFF);
+            text.append(c >= 0x20 && c < 0x7F ? c : '.');
+        }
+        return text.append('|').toString();
+    }
+
+    private static void appendHex(StringBuilder text, byte value) {
+        text.append(HEX_DIGITS[(value >> 4) & 0xF]).append(HEX_DIGITS[value & 0xF]);
+    }
+
+    private static boolean elementChanged(Object previous, Object current, int index) {
+        if (previous.getClass() != current.getClass() || index >= lengthOf(previous)) {
+            return true;
+        }
+        if (current instanceof double[] doubles) {
+            return Double.doubleToLongBits(doubles[index]) != Double.doubleToLongBits(((double[]) previous)[index]);
+        } else if (current instanceof float[] floats) {
+            return Float.floatToIntBits(floats[index]) != Float.floatToIntBits(((float[]) previous)[index]);
+        } else if (current instanceof long[] longs) {
+            return longs[index] != ((long[]) previous)[index];
+        } else if (current instanceof boolean[] booleans) {
+            return booleans[index] != ((boolean[]) previous)[index];
+        } else if (current instanceof String[] strings) {
+            return !strings[index].equals(((String[]) previous)[index]);
+        } else if (current instanceof byte[] bytes) {
+            return bytes[index] != ((byte[]) previous)[index];
+        }
+        return false;
+    }
+}
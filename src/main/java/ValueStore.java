@@ -0,0 +1,346 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// Latest value of every topic, stored in columns indexed by TopicRegistry id.
+// Numbers, integers and booleans live unboxed in double[], long[] and bitset columns; strings, raw
+// bytes and arrays in a reference column. Each topic has a sequence number used as a seqlock:
+// writers make it odd while they write and even again after, so readers retry instead of locking
+// and always see a type, value and timestamp that belong together. The sequence only grows, so
+// readers can also compare it to the one they saw last to detect a change without reading the value.
+//
+// Columns are split into fixed size pages that are never moved, so growing the store never races
+// with writers of existing topics.
+//
+// A value can be marked stale, e.g. when it was loaded from the topic catalog rather than received.
+// Marking remembers the value's sequence; the value is stale while its sequence still matches, so
+// the next write confirms it without the write paths doing anything extra.
+public final class ValueStore {
+
+    // Type tags are the ones recorded in telemetry logs, TYPE_NONE means no value
+    public static final byte TYPE_NONE = 0;
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final class Page {
+        final long[] sequences = new long[PAGE_SIZE];
+        final long[] timestamps = new long[PAGE_SIZE];
+        final byte[] types = new byte[PAGE_SIZE];
+        final double[] numbers = new double[PAGE_SIZE];
+        final long[] integers = new long[PAGE_SIZE];
+        final long[] booleanBits = new long[PAGE_SIZE / Long.SIZE];
+        final Object[] references = new Object[PAGE_SIZE];
+        final long[] staleSequences = new long[PAGE_SIZE];
+    }
+
+    private volatile Page[] pages = new Page[4];
+
+    public TopicHandle handle(int id) {
+        return new TopicHandle(this, id);
+    }
+
+    public void setDouble(int id, long timestamp, double value) {
+        Page page = writablePage(id);
+        int slot = id & PAGE_MASK;
+        long sequence = beginWrite(page, slot);
+        page.types[slot] = TelemetryLogFormat.TYPE_DOUBLE;
+        page.numbers[slot] = value;
+        page.references[slot] = null;
+        page.timestamps[slot] = timestamp;
+        endWrite(page, slot, sequence);
+    }
+
+    public void setFloat(int id, long timestamp, float value) {
+        Page page = writablePage(id);
+        int slot = id & PAGE_MASK;
+        long sequence = beginWrite(page, slot);
+        page.types[slot] = TelemetryLogFormat.TYPE_FLOAT;
+        page.numbers[slot] = value;
+        page.references[slot] = null;
+        page.timestamps[slot] = timestamp;
+        endWrite(page, slot, sequence);
+    }
+
+    public void setInteger(int id, long timestamp, long value) {
+        Page page = writablePage(id);
+        int slot = id & PAGE_MASK;
+        long sequence = beginWrite(page, slot);
+        page.types[slot] = TelemetryLogFormat.TYPE_INTEGER;
+        page.integers[slot] = value;
+        page.references[slot] = null;
+        page.timestamps[slot] = timestamp;
+        endWrite(page, slot, sequence);
+    }
+
+    public void setBoolean(int id, long timestamp, boolean value) {
+        Page page = writablePage(id);
+        int slot = id & PAGE_MASK;
+        long sequence = beginWrite(page, slot);
+        page.types[slot] = TelemetryLogFormat.TYPE_BOOLEAN;
+        // Neighbouring topics share the word, so the bit is flipped atomically
+        long bit = 1L << (slot & (Long.SIZE - 1));
+        if (value) {
+            LONGS.getAndBitwiseOr(page.booleanBits, slot >>> 6, bit);
+        } else {
+            LONGS.getAndBitwiseAnd(page.booleanBits, slot >>> 6, ~bit);
+        }
+        page.references[slot] = null;
+        page.timestamps[slot] = timestamp;
+        endWrite(page, slot, sequence);
+    }
+
+    // Strings, raw bytes and arrays. The array must not be modified after it is stored.
+    public void setReference(int id, long timestamp, byte type, Object value) {
+        Page page = writablePage(id);
+        int slot = id & PAGE_MASK;
+        long sequence = beginWrite(page, slot);
+        page.types[slot] = value == null ? TYPE_NONE : type;
+        page.references[slot] = value;
+        page.timestamps[slot] = timestamp;
+        endWrite(page, slot, sequence);
+    }
+
+    // Store a value as decoded by NetworkTableManager.decodeNTValue, used by replay and resync paths
+    public void set(int id, long timestamp, Object value) {
+        if (value instanceof Double doubleValue) {
+            setDouble(id, timestamp, doubleValue);
+        } else if (value instanceof Long longValue) {
+            setInteger(id, timestamp, longValue);
+        } else if (value instanceof Float floatValue) {
+            setFloat(id, timestamp, floatValue);
+        } else if (value instanceof Boolean booleanValue) {
+            setBoolean(id, timestamp, booleanValue);
+        } else {
+            setReference(id, timestamp, TelemetryLogFormat.typeOf(value), value);
+        }
+    }
+
+    // Forget the value of a topic, readers see TYPE_NONE
+    public void clear(int id) {
+        if (page(id) != null) {
+            setReference(id, 0, TYPE_NONE, null);
+        }
+    }
+
+    // Mark the current value stale until the topic is written again
+    public void markStale(int id) {
+        Page page = page(id);
+        if (page == null) {
+            return;
+        }
+        int slot = id & PAGE_MASK;
+        LONGS.setRelease(page.staleSequences, slot, readBegin(page, slot));
+    }
+
+    public boolean isStale(int id) {
+        Page page = page(id);
+        if (page == null) {
+            return false;
+        }
+        int slot = id & PAGE_MASK;
+        long sequence = (long) LONGS.getAcquire(page.sequences, slot);
+        return sequence != 0 && (long) LONGS.getAcquire(page.staleSequences, slot) == sequence;
+    }
+
+    // 0 until the topic has been written, even numbers after that
+    public long getSequence(int id) {
+        Page page = page(id);
+        if (page == null) {
+            return 0;
+        }
+        return readBegin(page, id & PAGE_MASK);
+    }
+
+    public byte getType(int id) {
+        Page page = page(id);
+        if (page == null) {
+            return TYPE_NONE;
+        }
+        int slot = id & PAGE_MASK;
+        while (true) {
+            long sequence = readBegin(page, slot);
+            byte type = page.types[slot];
+            if (readValid(page, slot, sequence)) {
+                return type;
+            }
+        }
+    }
+
+    public long getTimestamp(int id) {
+        Page page = page(id);
+        if (page == null) {
+            return 0;
+        }
+        int slot = id & PAGE_MASK;
+        while (true) {
+            long sequence = readBegin(page, slot);
+            long timestamp = page.timestamps[slot];
+            if (readValid(page, slot, sequence)) {
+                return timestamp;
+            }
+        }
+    }
+
+    // Double, float and integer topics as a double, defaultValue for anything else
+    public double getDouble(int id, double defaultValue) {
+        Page page = page(id);
+        if (page == null) {
+            return defaultValue;
+        }
+        int slot = id & PAGE_MASK;
+        while (true) {
+            long sequence = readBegin(page, slot);
+            byte type = page.types[slot];
+            double number = page.numbers[slot];
+            long integer = page.integers[slot];
+            if (readValid(page, slot, sequence)) {
+                switch (type) {
+                    case TelemetryLogFormat.TYPE_DOUBLE:
+                    case TelemetryLogFormat.TYPE_FLOAT:
+                        return number;
+                    case TelemetryLogFormat.TYPE_INTEGER:
+                        return integer;
+                    default:
+                        return defaultValue;
+                }
+            }
+        }
+    }
+
+    public long getInteger(int id, long defaultValue) {
+        Page page = page(id);
+        if (page == null) {
+            return defaultValue;
+        }
+        int slot = id & PAGE_MASK;
+        while (true) {
+            long sequence = readBegin(page, slot);
+            byte type = page.types[slot];
+            long integer = page.integers[slot];
+            if (readValid(page, slot, sequence)) {
+                return type == TelemetryLogFormat.TYPE_INTEGER ? integer : defaultValue;
+            }
+        }
+    }
+
+    public boolean getBoolean(int id, boolean defaultValue) {
+        Page page = page(id);
+        if (page == null) {
+            return defaultValue;
+        }
+        int slot = id & PAGE_MASK;
+        while (true) {
+            long sequence = readBegin(page, slot);
+            byte type = page.types[slot];
+            boolean value = (page.booleanBits[slot >>> 6] & (1L << (slot & (Long.SIZE - 1)))) != 0;
+            if (readValid(page, slot, sequence)) {
+                return type == TelemetryLogFormat.TYPE_BOOLEAN ? value : defaultValue;
+            }
+        }
+    }
+
+    // String, raw or array value, null for primitive topics and topics without a value
+    public Object getReference(int id) {
+        Page page = page(id);
+        if (page == null) {
+            return null;
+        }
+        int slot = id & PAGE_MASK;
+        while (true) {
+            long sequence = readBegin(page, slot);
+            Object reference = page.references[slot];
+            if (readValid(page, slot, sequence)) {
+                return reference;
+            }
+        }
+    }
+
+    // Boxed value for display and recording, null if the topic has no value
+    public Object get(int id) {
+        Page page = page(id);
+        if (page == null) {
+            return null;
+        }
+        int slot = id & PAGE_MASK;
+        while (true) {
+            long sequence = readBegin(page, slot);
+            byte type = page.types[slot];
+            double number = page.numbers[slot];
+            long integer = page.integers[slot];
+            boolean bit = (page.booleanBits[slot >>> 6] & (1L << (slot & (Long.SIZE - 1)))) != 0;
+            Object reference = page.references[slot];
+            if (readValid(page, slot, sequence)) {
+                switch (type) {
+                    case TYPE_NONE: return null;
+                    case TelemetryLogFormat.TYPE_DOUBLE: return number;
+                    case TelemetryLogFormat.TYPE_FLOAT: return (float) number;
+                    case TelemetryLogFormat.TYPE_INTEGER: return integer;
+                    case TelemetryLogFormat.TYPE_BOOLEAN: return bit;
+                    default: return reference;
+                }
+            }
+        }
+    }
+
+    private Page page(int id) {
+        Page[] current = pages;
+        int pageIndex = id >>> PAGE_SHIFT;
+        return pageIndex < current.length ? current[pageIndex] : null;
+    }
+
+    private Page writablePage(int id) {
+        Page page = page(id);
+        return page != null ? page : allocatePage(id >>> PAGE_SHIFT);
+    }
+
+    // Pages are only added, the page objects themselves are shared with the previous array
+    private synchronized Page allocatePage(int pageIndex) {
+        Page[] current = pages;
+        if (pageIndex >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, pageIndex + 1));
+        } else if (current[pageIndex] != null) {
+            return current[pageIndex];
+        } else {
+            current = current.clone();
+        }
+        Page page = new Page();
+        current[pageIndex] = page;
+        pages = current;
+        return page;
+    }
+
+    // Claim the topic for writing by making its sequence odd, other writers of the same topic wait
+    private static long beginWrite(Page page, int slot) {
+        while (true) {
+            long sequence = (long) LONGS.getVolatile(page.sequences, slot);
+            if ((sequence & 1) == 0 && LONGS.compareAndSet(page.sequences, slot, sequence, sequence + 1)) {
+                return sequence;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void endWrite(Page page, int slot, long sequence) {
+        LONGS.setRelease(page.sequences, slot, sequence + 2);
+    }
+
+    private static long readBegin(Page page, int slot) {
+        while (true) {
+            long sequence = (long) LONGS.getAcquire(page.sequences, slot);
+            if ((sequence & 1) == 0) {
+                return sequence;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // The fields read since readBegin are consistent if no write started in between
+    private static boolean readValid(Page page, int slot, long sequence) {
+        VarHandle.acquireFence();
+        return (long) LONGS.getAcquire(page.sequences, slot) == sequence;
+    }
+}
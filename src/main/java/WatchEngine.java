@@ -0,0 +1,240 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+// Conditions on numeric topics of one connection, checked on every ingested sample.
+// Each watch keeps its state in primitive fields and fired watches go into a preallocated
+// AlertLog, so checking a sample never allocates. Watches are indexed by topic id, so a sample
+// only touches the watches on its own topic, however many other topics are watched.
+//
+//   above x / below x      the value is above or below x, for at least the hold time
+//   rising x / falling x   the value crosses x upwards or downwards, booleans count as 0 and 1
+//   rate x                 the value changes faster than x per second in either direction
+//   ... for s              a level condition must hold for s seconds before it fires
+//
+// Level conditions fire once when they become true (and stay true for the hold time) and re-arm
+// when they are false again. The hold time is measured on sample timestamps, so a topic that
+// stops updating fires with its next sample. Samples of a connection are ingested on one thread
+// at a time, which is what keeps the watch state consistent without locks.
+public final class WatchEngine {
+
+    public enum Kind { ABOVE, BELOW, RISING, FALLING, RATE }
+
+    // Every sample of a watched topic is needed, not just the latest per period
+    private static final double SUBSCRIPTION_PERIOD = 0.01;
+
+    private static final int LOG_CAPACITY = 1024;
+
+    private static final Watch[] NO_WATCHES = new Watch[0];
+
+    public static final class Watch {
+        private final String name;
+        private final String topic;
+        private final Kind kind;
+        private final double threshold;
+        private final long holdMicros;
+        private final Subscription subscription;
+
+        // Ingest thread state
+        private boolean hasLast = false;
+        private double lastValue;
+        private long lastTimestamp;
+        private long trueSince = -1;
+        private boolean fired = false;
+
+        Watch(String name, String topic, Kind kind, double threshold, double holdSeconds, Subscription subscription) {
+            this.name = name;
+            this.topic = topic;
+            this.kind = kind;
+            this.threshold = threshold;
+            this.holdMicros = (long) (holdSeconds * 1_000_000);
+            this.subscription = subscription;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        // Condition as written in the config, e.g. "below 7.0"
+        public String getCondition() {
+            String condition = kind.name().toLowerCase(Locale.ROOT) + " " + threshold;
+            return holdMicros > 0 ? condition + " for " + holdMicros / 1_000_000.0 : condition;
+        }
+
+        // Returns true when the watch fires on this sample
+        boolean check(long timestamp, double value) {
+            boolean fire = switch (kind) {
+                case ABOVE -> level(value > threshold, timestamp);
+                case BELOW -> level(value < threshold, timestamp);
+                case RATE -> hasLast && timestamp > lastTimestamp
+                    && level(Math.abs(value - lastValue) * 1_000_000.0 / (timestamp - lastTimestamp) > threshold, timestamp);
+                case RISING -> hasLast && lastValue < threshold && value >= threshold;
+                case FALLING -> hasLast && lastValue > threshold && value <= threshold;
+            };
+            hasLast = true;
+            lastValue = value;
+            lastTimestamp = timestamp;
+            return fire;
+        }
+
+        private boolean level(boolean conditionTrue, long timestamp) {
+            if (!conditionTrue) {
+                trueSince = -1;
+                fired = false;
+                return false;
+            }
+            if (trueSince < 0) {
+                trueSince = timestamp;
+            }
+            if (!fired && timestamp - trueSince >= holdMicros) {
+                fired = true;
+                return true;
+            }
+            return false;
+        }
+
+        // Forget the previous sample, so a backwards seek is not taken for an edge or a rate
+        void reset() {
+            hasLast = false;
+            trueSince = -1;
+            fired = false;
+        }
+    }
+
+    private final NetworkTableManager connection;
+    private final AlertLog log = new AlertLog(LOG_CAPACITY);
+
+    // Watches by topic id, replaced as a whole on every change so the ingest path reads it without locking
+    private volatile Watch[][] watchesByTopic = new Watch[0][];
+
+    WatchEngine(NetworkTableManager connection) {
+        this.connection = connection;
+    }
+
+    public AlertLog getLog() {
+        return log;
+    }
+
+    // Add a watch, replacing one with the same name. Watches on the same topic share one subscription.
+    public synchronized void define(String name, String topic, Kind kind, double threshold, double holdSeconds) {
+        remove(name);
+        int topicId = connection.getRegistry().idOf(topic);
+        Watch[][] updated = Arrays.copyOf(watchesByTopic, Math.max(watchesByTopic.length, topicId + 1));
+        for (int i = watchesByTopic.length; i < updated.length; i++) {
+            updated[i] = NO_WATCHES;
+        }
+        Watch[] existing = updated[topicId];
+
+        Subscription subscription;
+        if (existing.length > 0) {
+            subscription = existing[0].subscription;
+        } else if (topic.startsWith(DerivedChannels.TOPIC_PREFIX)) {
+            subscription = null;
+        } else {
+            subscription = connection.subscribe(new String[] {topic}, SUBSCRIPTION_PERIOD, true);
+        }
+        Watch watch = new Watch(name, topic, kind, threshold, holdSeconds, subscription);
+
+        Watch[] grown = Arrays.copyOf(existing, existing.length + 1);
+        grown[existing.length] = watch;
+        updated[topicId] = grown;
+        watchesByTopic = updated;
+    }
+
+    // Parse a condition like "below 7", "rate 100" or "above 40 for 0.5" and add the watch, a hold time
+    // in the condition overrides holdSeconds. Throws IllegalArgumentException if the condition does not parse.
+    public void define(String name, String topic, String condition, double holdSeconds) {
+        String[] parts = condition.trim().split("\\s+");
+        if (parts.length == 4 && parts[2].equalsIgnoreCase("for")) {
+            holdSeconds = parseNumber(parts[3]);
+            if (Double.isNaN(holdSeconds) || holdSeconds < 0) {
+                throw new IllegalArgumentException("Invalid hold time " + parts[3]);
+            }
+        } else if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected '<above|below|rising|falling|rate> <number> [for <seconds>]': " + condition);
+        }
+        Kind kind;
+        try {
+            kind = Kind.valueOf(parts[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown watch condition " + parts[0]);
+        }
+        double threshold = parseNumber(parts[1]);
+        if (Double.isNaN(threshold)) {
+            throw new IllegalArgumentException("Invalid threshold " + parts[1]);
+        }
+        define(name, topic, kind, threshold, holdSeconds);
+    }
+
+    // NaN if the text is not a number
+    private static double parseNumber(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // Called with the connection's values reset, e.g. on a source change or a replay seek
+    public void resetState() {
+        for (Watch[] watches : watchesByTopic) {
+            for (Watch watch : watches) {
+                watch.reset();
+            }
+        }
+    }
+
+    public synchronized void remove(String name) {
+        Watch[][] updated = watchesByTopic.clone();
+        for (int topicId = 0; topicId < updated.length; topicId++) {
+            Watch[] watches = updated[topicId];
+            for (int i = 0; i < watches.length; i++) {
+                if (watches[i].name.equals(name)) {
+                    if (watches.length == 1 && watches[i].subscription != null) {
+                        watches[i].subscription.close();
+                    }
+                    Watch[] shrunk = new Watch[watches.length - 1];
+                    System.arraycopy(watches, 0, shrunk, 0, i);
+                    System.arraycopy(watches, i + 1, shrunk, i, shrunk.length - i);
+                    updated[topicId] = shrunk.length == 0 ? NO_WATCHES : shrunk;
+                    watchesByTopic = updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Define every watch listed in watches, logging the ones that do not parse
+    public void defineFromConfig() {
+        for (String watchName : DashboardConfig.getList("watches")) {
+            String prefix = "watch." + watchName + ".";
+            String topic = DashboardConfig.getString(prefix + "topic", null);
+            String condition = DashboardConfig.getString(prefix + "condition", null);
+            if (topic == null || condition == null) {
+                System.out.println("Watch " + watchName + " needs a topic and a condition");
+                continue;
+            }
+            try {
+                define(watchName, topic, condition, DashboardConfig.getDouble(prefix + "hold", 0.0));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Watch " + watchName + " not defined: " + e.getMessage());
+            }
+        }
+    }
+
+    // Called on the ingest thread for every numeric sample, a cheap array check for unwatched topics
+    void onSample(int topicId, long timestamp, double value) {
+        Watch[][] current = watchesByTopic;
+        if (topicId >= current.length) {
+            return;
+        }
+        for (Watch watch : current[topicId]) {
+            if (watch.check(timestamp, value)) {
+                log.append(watch, timestamp, value);
+            }
+        }
+    }
+}
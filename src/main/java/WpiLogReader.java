@@ -0,0 +1,733 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+// Reads a robot's .wpilog file (WPILib DataLog) for replay, however large the file is.
+// The file is memory mapped in 1 GiB windows, so the OS pages it in and nothing is copied onto the
+// heap. Opening it makes one pass over the record headers to build the index: the records are
+// grouped into blocks of about 1 MiB and every entry keeps the set of blocks it has records in.
+// The pass is split across threads. Each part of the file after the first starts at a record found
+// from the headers alone, a few records into a run of plausible ones, and a part the previous one
+// does not end exactly at is scanned again from where it did, so the index is always the one a
+// single sequential pass would build.
+// Only entries passing the topic filter are decoded. Playback skips blocks holding none of them and
+// seeking restores each entry from the last block it has a record in, so the work and memory used
+// depend on the entries shown rather than the file size; the index is a few bits per entry and block.
+// Entries DataLogManager logs from NT are named NT:/topic, they replay as /topic.
+public class WpiLogReader implements ReplayLog {
+
+    private static final byte[] MAGIC = "WPILOG".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAJOR_VERSION = 1;
+    private static final String NT_PREFIX = "NT:";
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+    // Each window runs this far into the next one so few payloads straddle two windows
+    private static final long CHUNK_OVERLAP = 1 << 20;
+
+    private static final long BLOCK_SIZE = 1 << 20;
+    // Parts of the file indexed by one thread are at least this large
+    private static final long MIN_PART_SIZE = 64L << 20;
+
+    // A part starts SYNC_SKIP records into the first run of SYNC_RECORDS plausible records, by
+    // then a run that began inside a payload has almost always fallen in step with the real records
+    private static final int SYNC_RECORDS = 32;
+    private static final int SYNC_SKIP = 8;
+    private static final long SYNC_SEARCH_BYTES = 1 << 20;
+    private static final long MAX_SYNC_GAP_MICROS = 60_000_000L;
+
+    // Entry ids are assigned from 1 upwards, anything larger is treated as corrupt
+    private static final int MAX_ENTRY_ID = 1 << 20;
+
+    private static final int CONTROL_ENTRY = 0;
+    private static final byte CONTROL_START = 0;
+    private static final byte CONTROL_FINISH = 1;
+    private static final byte CONTROL_SET_METADATA = 2;
+
+    private static final class Entry {
+        final String name;
+        final String type;
+        // TelemetryLogFormat type tag the payload decodes to
+        final byte kind;
+        // Blocks holding a record of this entry
+        final BitSet blocks = new BitSet();
+
+        Entry(String name, String type) {
+            this.name = name.startsWith(NT_PREFIX) ? name.substring(NT_PREFIX.length()) : name;
+            this.type = type;
+            this.kind = kindOf(type);
+        }
+    }
+
+    // Entries to decode and the blocks holding any of them, replaced as a whole when it changes
+    private static final class Filter {
+        final boolean[] wanted;
+        final BitSet blocks;
+
+        Filter(boolean[] wanted, BitSet blocks) {
+            this.wanted = wanted;
+            this.blocks = blocks;
+        }
+
+        boolean wants(int entryId) {
+            return entryId >= 0 && entryId < wanted.length && wanted[entryId];
+        }
+    }
+
+    // What one pass over a block found, merged into the index in file order
+    private static final class BlockScan {
+        final long start;
+        final BitSet entryIds = new BitSet();
+        final List<Long> controlPositions = new ArrayList<>();
+        long firstTimestamp = -1;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+
+        BlockScan(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final class PartScan {
+        // Position of the first record, -1 if none was found
+        final long start;
+        // Position after the last record starting inside the part
+        long end;
+        final List<BlockScan> blocks = new ArrayList<>();
+
+        PartScan(long start) {
+            this.start = start;
+            this.end = start;
+        }
+    }
+
+    // Header of the record at a position
+    private final class RecordHeader {
+        long position;
+        // -1 for ids too large to be real
+        int entry;
+        int payloadSize;
+        long timestamp;
+        long payloadPosition;
+
+        // Decode the header at position, false if no whole record starts there before end
+        boolean read(long at, long end) {
+            if (at >= end) {
+                return false;
+            }
+            int bits = byteAt(at) & 0xFF;
+            int idLength = (bits & 0x3) + 1;
+            int sizeLength = ((bits >> 2) & 0x3) + 1;
+            int timeLength = ((bits >> 4) & 0x7) + 1;
+            long headerEnd = at + 1 + idLength + sizeLength + timeLength;
+            if (headerEnd > end) {
+                return false;
+            }
+            long id = readUnsigned(at + 1, idLength);
+            long size = readUnsigned(at + 1 + idLength, sizeLength);
+            if (headerEnd + size > end) {
+                return false;
+            }
+            position = at;
+            entry = id > MAX_ENTRY_ID ? -1 : (int) id;
+            payloadSize = (int) size;
+            timestamp = readUnsigned(at + 1 + idLength + sizeLength, timeLength);
+            payloadPosition = headerEnd;
+            return true;
+        }
+
+        long nextPosition() {
+            return payloadPosition + payloadSize;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final ByteBuffer[] chunks;
+    private final long dataStart;
+
+    // Index, fixed once the constructor returns
+    private long dataEnd;
+    private int blockCount;
+    // Start of every block with the end of the data appended
+    private long[] blockStarts;
+    // First timestamp of every block, never decreasing so it can be searched
+    private long[] blockTimes;
+    private Entry[] entries = new Entry[16];
+    private long startTimestamp = Long.MAX_VALUE;
+    private long endTimestamp = Long.MIN_VALUE;
+
+    // Set from any thread, taken over by the playback thread on the next seek or restore
+    private volatile Filter requestedFilter = new Filter(new boolean[0], new BitSet());
+
+    // Playback state, only used on the playback thread
+    private Filter activeFilter = requestedFilter;
+    private final RecordHeader header = new RecordHeader();
+    private long cursor;
+    private int cursorBlock = 0;
+
+    public WpiLogReader(Path file) throws IOException {
+        channel = FileChannel.open(file);
+        try {
+            fileSize = channel.size();
+            int chunkCount = (int) ((fileSize + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+            chunks = new ByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long chunkStart = (long) i << CHUNK_BITS;
+                long length = Math.min(fileSize - chunkStart, CHUNK_SIZE + CHUNK_OVERLAP);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            dataStart = readFileHeader(file);
+            buildIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        cursor = dataStart;
+    }
+
+    @Override
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    @Override
+    public long getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    @Override
+    public void forEachTopic(BiConsumer<String, String> consumer) {
+        for (Entry entry : entries) {
+            if (entry != null) {
+                consumer.accept(entry.name, entry.type);
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean setTopicFilter(String[] prefixes) {
+        Filter previous = requestedFilter;
+        boolean[] wanted = new boolean[entries.length];
+        BitSet blocks = new BitSet(blockCount);
+        boolean added = false;
+        for (int id = 0; id < entries.length; id++) {
+            if (entries[id] != null && matchesAny(entries[id].name, prefixes)) {
+                wanted[id] = true;
+                blocks.or(entries[id].blocks);
+                added |= !previous.wants(id);
+            }
+        }
+        requestedFilter = new Filter(wanted, blocks);
+        return added;
+    }
+
+    @Override
+    public long peekTimestamp() {
+        return nextWanted() ? header.timestamp : Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean next(ValueConsumer consumer) {
+        if (!nextWanted()) {
+            return false;
+        }
+        emit(header, consumer);
+        cursor = header.nextPosition();
+        return true;
+    }
+
+    // Restore the latest value before the target block of every filtered entry, then play the
+    // target block up to timestamp
+    @Override
+    public void seek(long timestamp, ValueConsumer consumer) {
+        activeFilter = requestedFilter;
+        if (blockCount == 0) {
+            return;
+        }
+        int target = blockAt(timestamp);
+        restoreLatest(activeFilter.wanted, target, consumer);
+        cursor = blockStarts[target];
+        cursorBlock = target;
+        while (peekTimestamp() <= timestamp) {
+            next(consumer);
+        }
+    }
+
+    // Called with the playback time every record up to which has been played. The new entries are
+    // restored like a seek while records of the others are skipped, the cursor ends up at the first
+    // record of any filtered entry after timestamp.
+    @Override
+    public void restoreAddedTopics(long timestamp, ValueConsumer consumer) {
+        Filter filter = requestedFilter;
+        Filter previous = activeFilter;
+        if (filter == previous) {
+            return;
+        }
+        activeFilter = filter;
+        boolean[] added = new boolean[filter.wanted.length];
+        boolean anyAdded = false;
+        for (int id = 0; id < added.length; id++) {
+            added[id] = filter.wanted[id] && !previous.wants(id);
+            anyAdded |= added[id];
+        }
+        if (!anyAdded || blockCount == 0) {
+            return;
+        }
+        int target = blockAt(timestamp);
+        restoreLatest(added, target, consumer);
+        cursor = blockStarts[target];
+        cursorBlock = target;
+        while (nextWanted() && header.timestamp <= timestamp) {
+            if (added[header.entry]) {
+                emit(header, consumer);
+            }
+            cursor = header.nextPosition();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long readFileHeader(Path file) throws IOException {
+        if (fileSize < 12) {
+            throw new IOException("Not a wpilog file: " + file);
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (byteAt(i) != MAGIC[i]) {
+                throw new IOException("Not a wpilog file: " + file);
+            }
+        }
+        int version = (int) readUnsigned(6, 2);
+        if (version >> 8 != MAJOR_VERSION) {
+            throw new IOException("Unsupported wpilog version " + (version >> 8) + "." + (version & 0xFF) + ": " + file);
+        }
+        long extraHeaderLength = readUnsigned(8, 4);
+        return Math.min(fileSize, 12 + extraHeaderLength);
+    }
+
+    // Scan the parts of the file in parallel, then check in order that every part starts where
+    // the previous one ended and merge the blocks into the index
+    private void buildIndex() {
+        int parts = (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), (fileSize - dataStart) / MIN_PART_SIZE));
+        long[] syncPoints = IntStream.range(1, parts).parallel()
+            .mapToLong(part -> findRecordStart(dataStart + (fileSize - dataStart) * part / parts, dataStart + (fileSize - dataStart) * (part + 1) / parts))
+            .toArray();
+        List<Long> partStarts = new ArrayList<>();
+        partStarts.add(dataStart);
+        for (long syncPoint : syncPoints) {
+            if (syncPoint > partStarts.get(partStarts.size() - 1)) {
+                partStarts.add(syncPoint);
+            }
+        }
+        List<PartScan> scans = IntStream.range(0, partStarts.size()).parallel()
+            .mapToObj(part -> scanPart(partStarts.get(part), partEnd(partStarts, part)))
+            .toList();
+
+        List<BlockScan> blocks = new ArrayList<>();
+        long expectedStart = dataStart;
+        for (int part = 0; part < scans.size(); part++) {
+            PartScan scan = scans.get(part);
+            if (scan.start != expectedStart) {
+                scan = scanPart(expectedStart, partEnd(partStarts, part));
+            }
+            appendBlocks(blocks, scan.blocks);
+            expectedStart = scan.end;
+        }
+        dataEnd = expectedStart;
+
+        blockCount = blocks.size();
+        blockStarts = new long[blockCount + 1];
+        blockTimes = new long[blockCount];
+        long blockTime = Long.MIN_VALUE;
+        for (int block = 0; block < blockCount; block++) {
+            BlockScan scan = blocks.get(block);
+            blockStarts[block] = scan.start;
+            for (long controlPosition : scan.controlPositions) {
+                applyControl(controlPosition);
+            }
+            // Ids are not reused within a log, a record belongs to the entry last started with its id
+            for (int id = scan.entryIds.nextSetBit(0); id >= 0; id = scan.entryIds.nextSetBit(id + 1)) {
+                if (id < entries.length && entries[id] != null) {
+                    entries[id].blocks.set(block);
+                }
+            }
+            if (scan.firstTimestamp >= 0) {
+                blockTime = Math.max(blockTime, scan.firstTimestamp);
+                startTimestamp = Math.min(startTimestamp, scan.minTimestamp);
+                endTimestamp = Math.max(endTimestamp, scan.maxTimestamp);
+            }
+            blockTimes[block] = blockTime;
+        }
+        blockStarts[blockCount] = dataEnd;
+
+        if (startTimestamp > endTimestamp) {
+            startTimestamp = 0;
+            endTimestamp = 0;
+        }
+    }
+
+    private long partEnd(List<Long> partStarts, int part) {
+        return part + 1 < partStarts.size() ? partStarts.get(part + 1) : fileSize;
+    }
+
+    // A part's first record only starts a block if a single pass would have started one there
+    private static void appendBlocks(List<BlockScan> blocks, List<BlockScan> partBlocks) {
+        int first = 0;
+        if (!blocks.isEmpty() && !partBlocks.isEmpty()) {
+            BlockScan last = blocks.get(blocks.size() - 1);
+            BlockScan next = partBlocks.get(0);
+            if (next.start < (last.start / BLOCK_SIZE + 1) * BLOCK_SIZE) {
+                last.entryIds.or(next.entryIds);
+                last.controlPositions.addAll(next.controlPositions);
+                if (last.firstTimestamp < 0) {
+                    last.firstTimestamp = next.firstTimestamp;
+                }
+                last.minTimestamp = Math.min(last.minTimestamp, next.minTimestamp);
+                last.maxTimestamp = Math.max(last.maxTimestamp, next.maxTimestamp);
+                first = 1;
+            }
+        }
+        blocks.addAll(partBlocks.subList(first, partBlocks.size()));
+    }
+
+    // Walk the records starting in [start, partEnd), a new block starts at the first record past
+    // every BLOCK_SIZE boundary
+    private PartScan scanPart(long start, long partEnd) {
+        PartScan scan = new PartScan(start);
+        if (start < 0) {
+            return scan;
+        }
+        RecordHeader record = new RecordHeader();
+        BlockScan block = null;
+        long nextBoundary = start;
+        long position = start;
+        while (position < partEnd && record.read(position, fileSize)) {
+            if (position >= nextBoundary) {
+                block = new BlockScan(position);
+                scan.blocks.add(block);
+                nextBoundary = (position / BLOCK_SIZE + 1) * BLOCK_SIZE;
+            }
+            if (record.entry == CONTROL_ENTRY) {
+                block.controlPositions.add(position);
+            } else if (record.entry > 0) {
+                block.entryIds.set(record.entry);
+                if (block.firstTimestamp < 0) {
+                    block.firstTimestamp = record.timestamp;
+                }
+                block.minTimestamp = Math.min(block.minTimestamp, record.timestamp);
+                block.maxTimestamp = Math.max(block.maxTimestamp, record.timestamp);
+            }
+            position = record.nextPosition();
+        }
+        // A record cut off by the end of the file ends the log
+        scan.end = position;
+        return scan;
+    }
+
+    // A record SYNC_SKIP records into the first run of plausible records starting in [from, to),
+    // -1 if there is none nearby
+    private long findRecordStart(long from, long to) {
+        RecordHeader record = new RecordHeader();
+        long searchEnd = Math.min(to, from + SYNC_SEARCH_BYTES);
+        for (long candidate = from; candidate < searchEnd; candidate++) {
+            if (isPlausibleRun(candidate, record)) {
+                long position = candidate;
+                for (int count = 0; count < SYNC_SKIP && record.read(position, fileSize); count++) {
+                    position = record.nextPosition();
+                }
+                return position < fileSize ? position : -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isPlausibleRun(long position, RecordHeader record) {
+        long previousTimestamp = -1;
+        for (int count = 0; count < SYNC_RECORDS; count++) {
+            if (position == fileSize) {
+                return count > 0;
+            }
+            // The top bit of the header byte is reserved and always clear
+            if ((byteAt(position) & 0x80) != 0 || !record.read(position, fileSize) || record.entry < 0) {
+                return false;
+            }
+            if (record.entry == CONTROL_ENTRY && !isPlausibleControl(record)) {
+                return false;
+            }
+            if (previousTimestamp >= 0 && Math.abs(record.timestamp - previousTimestamp) > MAX_SYNC_GAP_MICROS) {
+                return false;
+            }
+            previousTimestamp = record.timestamp;
+            position = record.nextPosition();
+        }
+        return true;
+    }
+
+    private boolean isPlausibleControl(RecordHeader record) {
+        if (record.payloadSize < 5) {
+            return false;
+        }
+        byte control = byteAt(record.payloadPosition);
+        return (control == CONTROL_START && record.payloadSize >= 17) || control == CONTROL_FINISH || control == CONTROL_SET_METADATA;
+    }
+
+    // Start records define entries, finish and metadata records do not change what is replayed
+    private void applyControl(long position) {
+        RecordHeader record = new RecordHeader();
+        record.read(position, dataEnd);
+        ByteBuffer payload = payload(record);
+        if (payload.remaining() < 17 || payload.get() != CONTROL_START) {
+            return;
+        }
+        long id = payload.getInt() & 0xFFFFFFFFL;
+        String name = readString(payload);
+        String type = readString(payload);
+        if (id == CONTROL_ENTRY || id > MAX_ENTRY_ID || name == null || type == null) {
+            return;
+        }
+        if (id >= entries.length) {
+            entries = Arrays.copyOf(entries, (int) Math.max(id + 1, entries.length * 2L));
+        }
+        entries[(int) id] = new Entry(name, type);
+    }
+
+    // Last block whose first timestamp is at or before timestamp, the first block if none is
+    private int blockAt(long timestamp) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blockTimes[middle] <= timestamp) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    // Emit the latest record before the target block of every entry in which, in file order.
+    // Entries are grouped by the block their latest record is in, so each block is walked once.
+    private void restoreLatest(boolean[] which, int target, ValueConsumer consumer) {
+        // Block each entry is searched in next, -1 once found or when it has no earlier record
+        int[] searchBlocks = new int[which.length];
+        long[] latestPositions = new long[which.length];
+        Arrays.fill(searchBlocks, -1);
+        Arrays.fill(latestPositions, -1);
+        int pending = 0;
+        for (int id = 0; id < which.length; id++) {
+            if (which[id] && entries[id] != null && target > 0) {
+                searchBlocks[id] = entries[id].blocks.previousSetBit(target - 1);
+                pending += searchBlocks[id] >= 0 ? 1 : 0;
+            }
+        }
+
+        long[] found = new long[16];
+        int foundCount = 0;
+        while (pending > 0) {
+            int block = -1;
+            for (int searchBlock : searchBlocks) {
+                block = Math.max(block, searchBlock);
+            }
+            for (long position = blockStarts[block]; position < blockStarts[block + 1]; position = header.nextPosition()) {
+                header.read(position, dataEnd);
+                if (header.entry > 0 && header.entry < searchBlocks.length && searchBlocks[header.entry] == block) {
+                    latestPositions[header.entry] = position;
+                }
+            }
+            for (int id = 0; id < searchBlocks.length; id++) {
+                if (searchBlocks[id] != block) {
+                    continue;
+                }
+                searchBlocks[id] = -1;
+                pending--;
+                if (latestPositions[id] >= 0) {
+                    if (foundCount == found.length) {
+                        found = Arrays.copyOf(found, foundCount * 2);
+                    }
+                    found[foundCount++] = latestPositions[id];
+                }
+            }
+        }
+
+        Arrays.sort(found, 0, foundCount);
+        for (int i = 0; i < foundCount; i++) {
+            header.read(found[i], dataEnd);
+            emit(header, consumer);
+        }
+    }
+
+    // Move the cursor to the next record of a filtered entry, false at the end of the log
+    private boolean nextWanted() {
+        Filter filter = activeFilter;
+        while (cursor < dataEnd) {
+            while (cursorBlock + 1 < blockCount && cursor >= blockStarts[cursorBlock + 1]) {
+                cursorBlock++;
+            }
+            if (cursor == blockStarts[cursorBlock] && !filter.blocks.get(cursorBlock)) {
+                int nextBlock = filter.blocks.nextSetBit(cursorBlock + 1);
+                if (nextBlock < 0 || nextBlock >= blockCount) {
+                    cursor = dataEnd;
+                    return false;
+                }
+                cursorBlock = nextBlock;
+                cursor = blockStarts[nextBlock];
+                continue;
+            }
+            header.read(cursor, dataEnd);
+            if (filter.wants(header.entry)) {
+                return true;
+            }
+            cursor = header.nextPosition();
+        }
+        return false;
+    }
+
+    private void emit(RecordHeader record, ValueConsumer consumer) {
+        Entry entry = entries[record.entry];
+        Object value = decode(payload(record), entry.kind);
+        if (value != null) {
+            consumer.accept(entry.name, record.timestamp, value);
+        }
+    }
+
+    // Payload of a record, a view of the mapped file unless it straddles two windows
+    private ByteBuffer payload(RecordHeader record) {
+        ByteBuffer chunk = chunks[(int) (record.payloadPosition >>> CHUNK_BITS)];
+        int offset = (int) (record.payloadPosition & CHUNK_MASK);
+        if (offset + record.payloadSize <= chunk.limit()) {
+            return chunk.slice(offset, record.payloadSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        byte[] copy = new byte[record.payloadSize];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = byteAt(record.payloadPosition + i);
+        }
+        return ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Values as NetworkTableManager.decodeNTValue would decode them, null for malformed payloads
+    private static Object decode(ByteBuffer payload, byte kind) {
+        int size = payload.remaining();
+        switch (kind) {
+            case TelemetryLogFormat.TYPE_BOOLEAN:
+                return size >= 1 ? payload.get(0) != 0 : null;
+            case TelemetryLogFormat.TYPE_DOUBLE:
+                return size >= 8 ? payload.getDouble(0) : null;
+            case TelemetryLogFormat.TYPE_INTEGER:
+                return size >= 8 ? payload.getLong(0) : null;
+            case TelemetryLogFormat.TYPE_FLOAT:
+                return size >= 4 ? payload.getFloat(0) : null;
+            case TelemetryLogFormat.TYPE_STRING: {
+                byte[] bytes = new byte[size];
+                payload.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case TelemetryLogFormat.TYPE_BOOLEAN_ARRAY: {
+                boolean[] values = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = payload.get(i) != 0;
+                }
+                return values;
+            }
+            case TelemetryLogFormat.TYPE_DOUBLE_ARRAY: {
+                double[] values = new double[size / 8];
+                payload.asDoubleBuffer().get(values);
+                return values;
+            }
+            case TelemetryLogFormat.TYPE_INTEGER_ARRAY: {
+                long[] values = new long[size / 8];
+                payload.asLongBuffer().get(values);
+                return values;
+            }
+            case TelemetryLogFormat.TYPE_FLOAT_ARRAY: {
+                float[] values = new float[size / 4];
+                payload.asFloatBuffer().get(values);
+                return values;
+            }
+            case TelemetryLogFormat.TYPE_STRING_ARRAY: {
+                if (size < 4 || payload.getInt(0) < 0 || payload.getInt(0) > (size - 4) / 4) {
+                    return null;
+                }
+                String[] values = new String[payload.getInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readString(payload);
+                    if (values[i] == null) {
+                        return null;
+                    }
+                }
+                return values;
+            }
+            default: {
+                byte[] bytes = new byte[size];
+                payload.get(bytes);
+                return bytes;
+            }
+        }
+    }
+
+    // uint32 length and UTF-8 bytes, null if the length runs past the payload
+    private static String readString(ByteBuffer payload) {
+        if (payload.remaining() < 4) {
+            return null;
+        }
+        long length = payload.getInt() & 0xFFFFFFFFL;
+        if (length > payload.remaining()) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte kindOf(String type) {
+        return switch (type) {
+            case "boolean" -> TelemetryLogFormat.TYPE_BOOLEAN;
+            case "double" -> TelemetryLogFormat.TYPE_DOUBLE;
+            case "int64" -> TelemetryLogFormat.TYPE_INTEGER;
+            case "float" -> TelemetryLogFormat.TYPE_FLOAT;
+            case "string", "json" -> TelemetryLogFormat.TYPE_STRING;
+            case "boolean[]" -> TelemetryLogFormat.TYPE_BOOLEAN_ARRAY;
+            case "double[]" -> TelemetryLogFormat.TYPE_DOUBLE_ARRAY;
+            case "int64[]" -> TelemetryLogFormat.TYPE_INTEGER_ARRAY;
+            case "float[]" -> TelemetryLogFormat.TYPE_FLOAT_ARRAY;
+            case "string[]" -> TelemetryLogFormat.TYPE_STRING_ARRAY;
+            // raw, structs, schemas and anything else stay bytes
+            default -> TelemetryLogFormat.TYPE_RAW;
+        };
+    }
+
+    private static boolean matchesAny(String name, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte byteAt(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+    }
+
+    // Little-endian unsigned integer of 1 to 8 bytes
+    private long readUnsigned(long position, int length) {
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = (value << 8) | (byteAt(position + i) & 0xFF);
+        }
+        return value;
+    }
+}